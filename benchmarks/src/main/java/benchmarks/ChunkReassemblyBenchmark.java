@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import backend.TicketStoreData;
+import entities.Priority;
+import entities.RawData;
+import entities.Ticket;
+import entities.Type;
+
+/**
+ * {@link TicketStoreData#createTicketFromChunk(RawData)}: one invocation feeds all chunks of a ticket
+ * and returns the assembled ticket. Each benchmark thread uses its own client id so threads do not
+ * complete each other's tickets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkReassemblyBenchmark {
+
+    private static final TicketStoreData STORE = new TicketStoreData();
+    private static final AtomicInteger CLIENTS = new AtomicInteger();
+
+    @Param({"1", "4", "16"})
+    public int chunks;
+
+    @Param({"1024", "65536"})
+    public int descriptionLength;
+
+    private RawData[] parts;
+
+    @Setup
+    public void split() {
+        Ticket ticket = new Ticket(1, "reporter", "topic", "d".repeat(descriptionLength), Type.TASK, Priority.MINOR);
+        String json = new Gson().toJson(ticket);
+        String clientId = "bench-" + CLIENTS.incrementAndGet();
+        int partSize = (json.length() + chunks - 1) / chunks;
+        parts = new RawData[chunks];
+        for (int i = 0; i < chunks; i++) {
+            String data = json.substring(Math.min(json.length(), i * partSize), Math.min(json.length(), (i + 1) * partSize));
+            parts[i] = new RawData("new", clientId, json.length(), partSize, chunks, i + 1, data);
+        }
+    }
+
+    @Benchmark
+    public Ticket reassemble() {
+        Ticket assembled = null;
+        for (RawData part : parts) {
+            assembled = STORE.createTicketFromChunk(part);
+        }
+        if (assembled == null) throw new IllegalStateException("ticket was not assembled");
+        return assembled;
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import entities.Priority;
+import entities.RawData;
+import entities.Status;
+import entities.Ticket;
+import entities.Type;
+
+/**
+ * Gson encoding and decoding of the wire entities {@link Ticket} and {@link RawData}.
+ * {@code descriptionLength} varies the size of the free text field that dominates large tickets.
+ * The {@code ...NewGson} variants create a Gson instance per call, as several call sites still do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"16", "1024"})
+    public int descriptionLength;
+
+    private final Gson gson = new Gson();
+    private Ticket ticket;
+    private String ticketJson;
+    private RawData rawData;
+    private String rawDataJson;
+
+    @Setup
+    public void prepare() {
+        String description = "x".repeat(descriptionLength);
+        ticket = new Ticket(4711, "reporter", "Printer on floor 3 is jammed", description,
+                Type.BUG, Priority.MAJOR, Status.IN_PROGRESS);
+        ticketJson = gson.toJson(ticket);
+        rawData = new RawData("new", "client-1", ticketJson.length(), ticketJson.length(), 1, 1, ticketJson);
+        rawDataJson = gson.toJson(rawData);
+    }
+
+    @Benchmark
+    public String encodeTicket() {
+        return gson.toJson(ticket);
+    }
+
+    @Benchmark
+    public Ticket decodeTicket() {
+        return gson.fromJson(ticketJson, Ticket.class);
+    }
+
+    @Benchmark
+    public Ticket decodeTicketNewGson() {
+        return new Gson().fromJson(ticketJson, Ticket.class);
+    }
+
+    @Benchmark
+    public String encodeRawData() {
+        return gson.toJson(rawData);
+    }
+
+    @Benchmark
+    public RawData decodeRawData() {
+        return gson.fromJson(rawDataJson, RawData.class);
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import backend.SimpleTicketStore;
+import backend.TicketRequestHandler;
+import entities.Priority;
+import entities.Ticket;
+import entities.Type;
+import protocol.PayloadCodec;
+
+/**
+ * Server side handling of single datagrams by {@link TicketRequestHandler#handle(byte[], int, int)},
+ * from the encoded request to the encoded response, for a small {@code get} and a {@code put} whose
+ * size grows with {@code descriptionLength}. {@code put} replaces the same ticket, so the store keeps
+ * its size. Run with {@code -prof gc} to compare the bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestDecodeBenchmark {
+
+    @Param({"16", "1024"})
+    public int descriptionLength;
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private TicketRequestHandler handler;
+    private byte[] get;
+    private byte[] put;
+
+    @Setup
+    public void prepare() {
+        Gson gson = new Gson();
+        SimpleTicketStore store = new SimpleTicketStore();
+        Ticket ticket = store.storeNewTicket("reporter", "Printer on floor 3 is jammed", "x".repeat(descriptionLength),
+                Type.BUG, Priority.MAJOR);
+        handler = new TicketRequestHandler(store);
+        get = encode(request("get", gson.toJsonTree(ticket.getId())));
+        put = encode(request("put", gson.toJsonTree(ticket)));
+    }
+
+    private static JsonObject request(String requestType, JsonElement payload) {
+        JsonObject request = new JsonObject();
+        request.addProperty("requestType", requestType);
+        request.addProperty("clientId", "client-1");
+        request.add("payload", payload);
+        return request;
+    }
+
+    private byte[] encode(JsonObject request) {
+        return PayloadCodec.encode(request.toString().getBytes(StandardCharsets.UTF_8), compressed);
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return handler.handle(get, 0, get.length);
+    }
+
+    @Benchmark
+    public byte[] put() {
+        return handler.handle(put, 0, put.length);
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import backend.SimpleTicketStore;
+import backend.TicketStore;
+import backend.TicketStoreData;
+import backend.UnknownTicketException;
+import entities.Priority;
+import entities.Status;
+import entities.Ticket;
+import entities.Type;
+
+/**
+ * The two in-memory {@link TicketStore} implementations side by side at several store sizes.
+ *
+ * - {@code create} grows the store during an iteration; it is reset at every iteration and measured
+ *   in shorter iterations to bound that growth.
+ * - {@code update} and {@code findById} pick uniformly random existing ids.
+ * - {@code list} copies the whole store, so its cost is expected to grow linearly with the size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreBenchmark {
+
+    @Param({"simple", "data"})
+    public String store;
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private TicketStore ticketStore;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        ticketStore = "data".equals(store) ? new TicketStoreData() : new SimpleTicketStore();
+        for (int i = 0; i < size; i++) {
+            ticketStore.storeNewTicket("reporter" + i, "topic " + i, "description of ticket " + i,
+                    Type.values()[i % Type.values().length], Priority.values()[i % Priority.values().length]);
+        }
+    }
+
+    @Benchmark
+    @Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    public Ticket create() {
+        return ticketStore.storeNewTicket("reporter", "topic", "description", Type.TASK, Priority.MINOR);
+    }
+
+    @Benchmark
+    public void update() throws UnknownTicketException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ticketStore.updateTicketStatus(1 + random.nextInt(size), random.nextBoolean() ? Status.IN_PROGRESS : Status.NEW);
+    }
+
+    @Benchmark
+    public List<Ticket> list() {
+        return ticketStore.getAllTickets();
+    }
+
+    @Benchmark
+    public Ticket findById() {
+        return ticketStore.findTicketById(1 + ThreadLocalRandom.current().nextInt(size));
+    }
+}
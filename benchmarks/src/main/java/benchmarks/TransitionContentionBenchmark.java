@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.LocalTicketManagementBackend;
+import entities.Priority;
+import entities.TicketException;
+import entities.Type;
+
+/**
+ * Status transitions on {@link LocalTicketManagementBackend} with {@code threads} workers racing
+ * for the same tickets. One invocation creates {@code tickets} new tickets in a fresh backend; every
+ * worker then tries to accept and afterwards to close each of them, starting at a different ticket.
+ * Exactly one worker wins every transition, the others take the {@link TicketException} path.
+ * The score is the time for the whole batch; it returns the number of lost races.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionContentionBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1", "64"})
+    public int tickets;
+
+    private ExecutorService workers;
+
+    @Setup
+    public void start() {
+        workers = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    @Benchmark
+    public int acceptAndClose() throws InterruptedException, ExecutionException {
+        LocalTicketManagementBackend backend = new LocalTicketManagementBackend();
+        int[] ids = new int[tickets];
+        for (int i = 0; i < tickets; i++) {
+            ids[i] = backend.createNewTicket("reporter", "topic", "description", Type.TASK, Priority.MINOR).getId();
+        }
+        List<Callable<Integer>> batch = new ArrayList<>(threads);
+        for (int w = 0; w < threads; w++) {
+            int offset = w * tickets / threads;
+            batch.add(() -> race(backend, ids, offset));
+        }
+        int lost = 0;
+        for (Future<Integer> f : workers.invokeAll(batch)) lost += f.get();
+        return lost;
+    }
+
+    private static int race(LocalTicketManagementBackend backend, int[] ids, int offset) {
+        int lost = 0;
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                backend.acceptTicket(ids[(offset + i) % ids.length]);
+            } catch (TicketException e) {
+                lost++;
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                backend.closeTicket(ids[(offset + i) % ids.length]);
+            } catch (TicketException e) {
+                lost++;
+            }
+        }
+        return lost;
+    }
+}
@@ -0,0 +1,144 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.JMSTicketManagementBackend;
+import app.RemoteTicketManagementBackend;
+import app.TcpTicketManagementBackend;
+import app.UDPTicketManagementBackend;
+import backend.AdmissionController;
+import backend.JmsRemoteAccess;
+import backend.NotifyingTicketStore;
+import backend.RemoteAccess;
+import backend.ServerMetrics;
+import backend.SimpleTicketStore;
+import backend.TcpRemoteAccess;
+import backend.TicketRequestHandler;
+import backend.UDPRemoteAccess;
+import entities.Priority;
+import entities.Ticket;
+import entities.TicketException;
+import entities.Type;
+
+/**
+ * Request throughput of a complete client and server in one process over each transport:
+ * {@code udp}, {@code tcp}, {@code jms} (embedded broker over loopback TCP) and {@code jms-vm}
+ * (embedded broker in-VM, no sockets at all).
+ *
+ * - Every benchmark thread has its own client backend, with its ticket cache disabled; the server
+ *   side is shared and has rate limiting disabled.
+ * - {@code createBatch} creates {@value #BATCH} tickets per operation, batched into one send by
+ *   the JMS backend and one request after another by the others.
+ * - The server runs on fixed loopback ports 21140 (UDP), 21160 (TCP) and 21616 (JMS), which must
+ *   be free.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class TransportBenchmark {
+
+    static final String HOST = "127.0.0.1";
+    static final int UDP_PORT = 21140;
+    static final int TCP_PORT = 21160;
+    static final int JMS_PORT = 21616;
+    static final int PRELOADED = 1000;
+    static final int BATCH = 32;
+
+    @Param({"udp", "tcp", "jms", "jms-vm"})
+    public String transport;
+
+    private AdmissionController admission;
+    private RemoteAccess server;
+
+    @Setup
+    public void startServer() {
+        NotifyingTicketStore store = new NotifyingTicketStore(new SimpleTicketStore());
+        for (int i = 0; i < PRELOADED; i++) {
+            store.storeNewTicket("reporter" + i, "topic " + i, "description of ticket " + i, Type.TASK, Priority.MINOR);
+        }
+        int workers = Runtime.getRuntime().availableProcessors() * 2;
+        admission = new AdmissionController(new TicketRequestHandler(store), new ServerMetrics(), 1024, workers, 0, 1, 1000);
+        server = switch (transport) {
+        case "udp" -> new UDPRemoteAccess(UDP_PORT, HOST, admission);
+        case "tcp" -> new TcpRemoteAccess(TCP_PORT, HOST, admission);
+        default -> new JmsRemoteAccess(null, HOST, JMS_PORT, 4, admission);
+        };
+        server.prepareStartup(store);
+        Thread.ofPlatform().daemon().name(transport + "-server").start(server);
+    }
+
+    @TearDown
+    public void stopServer() {
+        server.shutdown();
+        admission.shutdown();
+    }
+
+    /** One client backend per benchmark thread. */
+    @State(Scope.Thread)
+    public static class Client {
+
+        RemoteTicketManagementBackend backend;
+
+        @Setup
+        public void connect(TransportBenchmark benchmark) {
+            backend = switch (benchmark.transport) {
+            case "udp" -> new UDPTicketManagementBackend(HOST, UDP_PORT);
+            case "tcp" -> new TcpTicketManagementBackend(HOST, TCP_PORT);
+            case "jms" -> new JMSTicketManagementBackend("tcp://" + HOST + ":" + JMS_PORT);
+            default -> new JMSTicketManagementBackend(JmsRemoteAccess.IN_VM_URL);
+            };
+            backend.getTicketCache().setCapacity(0);
+        }
+
+        @TearDown
+        public void disconnect() {
+            backend.triggerShutdown();
+        }
+    }
+
+    @Benchmark
+    public Ticket get(Client client) throws TicketException {
+        return client.backend.getTicketById(1 + ThreadLocalRandom.current().nextInt(PRELOADED));
+    }
+
+    @Benchmark
+    public Ticket create(Client client) throws TicketException {
+        return client.backend.createNewTicket("reporter", "topic", "description", Type.BUG, Priority.MAJOR);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int createBatch(Client client) throws TicketException {
+        if (client.backend instanceof JMSTicketManagementBackend jms) {
+            List<Ticket> tickets = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) tickets.add(new Ticket(0, "reporter", "topic", "description", Type.BUG, Priority.MAJOR));
+            return jms.createNewTickets(tickets).size();
+        }
+        for (int i = 0; i < BATCH; i++) {
+            client.backend.createNewTicket("reporter", "topic", "description", Type.BUG, Priority.MAJOR);
+        }
+        return BATCH;
+    }
+}
@@ -0,0 +1,64 @@
+package Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.UDPTicketManagementBackend;
+import entities.Priority;
+import entities.Ticket;
+import entities.TicketException;
+import entities.Type;
+
+/**
+ * Writes tickets continuously against a self-electing server cluster and reports write outages.
+ * - args: comma separated {@code host:port} client endpoints of all members, optional duration in seconds
+ * - a refused or failed write moves on to the next member, so the writer follows the leader
+ * - every gap between two successful writes longer than one second is reported as an outage
+ *
+ * Kill the current leader while this runs to measure the failover time.
+ */
+public class FailoverDemo {
+
+    private static final long OUTAGE_THRESHOLD_MS = 1000;
+
+    public static void main(String[] args) throws InterruptedException {
+        String endpoints = args.length > 0 ? args[0] : "127.0.0.1:1140,127.0.0.1:1141,127.0.0.1:1142";
+        long durationMs = (args.length > 1 ? Long.parseLong(args[1]) : 30) * 1000;
+
+        List<String> names = new ArrayList<>();
+        List<UDPTicketManagementBackend> nodes = new ArrayList<>();
+        for (String endpoint : endpoints.split(",")) {
+            String value = endpoint.trim();
+            int sep = value.lastIndexOf(':');
+            names.add(value);
+            nodes.add(new UDPTicketManagementBackend(value.substring(0, sep), Integer.parseInt(value.substring(sep + 1))));
+        }
+
+        int current = 0;
+        long written = 0;
+        long failed = 0;
+        long longestOutage = 0;
+        long start = System.currentTimeMillis();
+        long lastSuccess = start;
+        while (System.currentTimeMillis() - start < durationMs) {
+            try {
+                Ticket t = nodes.get(current).createNewTicket("failover-demo", "write " + written, "", Type.TASK, Priority.MINOR);
+                long now = System.currentTimeMillis();
+                long gap = now - lastSuccess;
+                if (gap > OUTAGE_THRESHOLD_MS) {
+                    System.out.println("Writes resumed on " + names.get(current) + " after " + gap + " ms (ticket " + t.getId() + ")");
+                    longestOutage = Math.max(longestOutage, gap);
+                }
+                lastSuccess = now;
+                written++;
+            } catch (TicketException e) {
+                failed++;
+                current = (current + 1) % nodes.size();
+                Thread.sleep(20);
+            }
+        }
+        for (UDPTicketManagementBackend node : nodes) node.triggerShutdown();
+
+        System.out.println("Written: " + written + ", failed attempts: " + failed + ", longest outage: " + longestOutage + " ms");
+    }
+}
@@ -0,0 +1,153 @@
+package Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.UDPConnManager;
+import app.UDPTicketManagementBackend;
+import entities.Priority;
+import entities.TicketException;
+import entities.Type;
+import metrics.LatencyHistogram;
+import protocol.DatagramChunk;
+
+/**
+ * Goodput of large UDP messages: a few clients fetch the whole ticket list ({@code op=list}) or
+ * create tickets with large descriptions ({@code op=create}) in a closed loop. The bytes of
+ * complete responses, or of requests that were answered, per second are reported, together with
+ * failed calls, retransmissions and requests for missing chunks.
+ *
+ * - args are {@code key=value} pairs, all optional: {@code host} (127.0.0.1), {@code port}
+ *   (1140), {@code clients} (4), {@code duration} seconds (20), {@code preload} tickets created
+ *   first (0), {@code descriptionLength} of preloaded and created tickets (1000), {@code op}
+ *   (list), {@code csv} file results
+ *   are appended to, {@code label} free text stored with the results
+ * - Descriptions are random letters so compression cannot hide the response size.
+ * - Run it through {@link LossyProxy} with {@code mtu=1500} to compare {@code ticket.udp.chunkSize}
+ *   values under loss, e.g. the default 1400 against 60000, which is fragmented by IP. The server
+ *   should run with {@code ticket.admission.clientRate=0}, since lists are expensive requests.
+ */
+public class GoodputTest {
+
+    private static final String CSV_HEADER = "label,op,chunkSize,clients,seconds,calls,failed,bytes,goodputMBs,"
+            + "p50Ms,p99Ms,retransmits,chunkResends,chunkRetransmits,timeouts";
+
+    public static void main(String[] args) throws InterruptedException, IOException, TicketException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Ignoring argument '" + arg + "', expected key=value");
+                continue;
+            }
+            options.put(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        String host = options.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(options.getOrDefault("port", "1140"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "4"));
+        int durationS = Integer.parseInt(options.getOrDefault("duration", "20"));
+        int preload = Integer.parseInt(options.getOrDefault("preload", "0"));
+        int descriptionLength = Integer.parseInt(options.getOrDefault("descriptionLength", "1000"));
+        boolean create = "create".equals(options.getOrDefault("op", "list"));
+
+        List<UDPTicketManagementBackend> backends = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            backends.add(new LoadGenerator.UncachedBackend(host, port, "goodput-" + ProcessHandle.current().pid() + "-" + i));
+        }
+        preload(backends.get(0), preload, descriptionLength);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder calls = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long start = System.nanoTime();
+        long end = start + durationS * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (UDPTicketManagementBackend backend : backends) {
+            String description = randomText(new Random(), descriptionLength);
+            threads.add(Thread.ofPlatform().start(() -> {
+                while (System.nanoTime() < end) {
+                    long t0 = System.nanoTime();
+                    try {
+                        if (create) {
+                            backend.createNewTicket("goodput", "upload", description, Type.TASK, Priority.MINOR);
+                        } else {
+                            backend.getAllTickets();
+                        }
+                        latency.record(System.nanoTime() - t0);
+                        calls.increment();
+                    } catch (TicketException e) {
+                        failed.increment();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long bytes = 0, retransmits = 0, resends = 0, chunkRetransmits = 0, timeouts = 0, windowLosses = 0, windowTimeouts = 0;
+        for (UDPTicketManagementBackend backend : backends) {
+            UDPConnManager connection = backend.getConnection();
+            bytes += create ? connection.getRequestBytes() : connection.getResponseBytes();
+            retransmits += connection.getRetransmits();
+            resends += connection.getChunkResends();
+            chunkRetransmits += connection.getChunkRetransmits();
+            windowLosses += connection.getCongestionWindow().getLosses();
+            windowTimeouts += connection.getCongestionWindow().getTimeouts();
+            timeouts += connection.getTimeouts();
+            backend.triggerShutdown();
+        }
+        double goodput = bytes / seconds / 1e6;
+        double p50 = latency.getValueAtPercentile(50) / 1e6;
+        double p99 = latency.getValueAtPercentile(99) / 1e6;
+        int chunkSize = DatagramChunk.chunkSize();
+        String op = create ? "create" : "list";
+        System.out.printf(Locale.ROOT, "chunk size %d: %d %s calls (%d failed) in %.1f s, goodput %.2f MB/s, p50 %.1f ms, p99 %.1f ms%n",
+                chunkSize, calls.sum(), op, failed.sum(), seconds, goodput, p50, p99);
+        System.out.printf(Locale.ROOT, "Retransmissions %d, requests for missing chunks %d, request chunks sent again %d, timeouts %d%n",
+                retransmits, resends, chunkRetransmits, timeouts);
+        if (create) {
+            System.out.printf(Locale.ROOT, "Congestion window: %d reductions after losses, %d restarts after ack timeouts%n",
+                    windowLosses, windowTimeouts);
+        }
+
+        String csv = options.get("csv");
+        if (csv != null) {
+            Path file = Paths.get(csv);
+            boolean header = !Files.exists(file) || Files.size(file) == 0;
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                if (header) out.println(CSV_HEADER);
+                out.printf(Locale.ROOT, "%s,%s,%d,%d,%.1f,%d,%d,%d,%.3f,%.2f,%.2f,%d,%d,%d,%d%n",
+                        options.getOrDefault("label", ""), op, chunkSize, clients, seconds, calls.sum(), failed.sum(), bytes,
+                        goodput, p50, p99, retransmits, resends, chunkRetransmits, timeouts);
+            } catch (IOException e) {
+                System.err.println("Cannot write " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void preload(UDPTicketManagementBackend backend, int tickets, int descriptionLength) throws TicketException {
+        Random random = new Random(42);
+        for (int i = 0; i < tickets; i++) {
+            backend.createNewTicket("goodput", "ticket " + i, randomText(random, descriptionLength), Type.TASK, Priority.MINOR);
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) text[i] = (char) ('a' + random.nextInt(26));
+        return new String(text);
+    }
+}
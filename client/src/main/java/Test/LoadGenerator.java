@@ -0,0 +1,333 @@
+package Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import app.UDPTicketManagementBackend;
+import entities.Priority;
+import entities.ServerBusyException;
+import entities.Ticket;
+import entities.TicketException;
+import entities.Type;
+import metrics.LatencyHistogram;
+
+/**
+ * Open-loop UDP load generator: many independent {@link UDPTicketManagementBackend} clients issue a
+ * mix of operations at a fixed total rate and the latency distribution is reported per operation.
+ *
+ * - args are {@code key=value} pairs, all optional:
+ *   {@code host} (127.0.0.1), {@code port} (1140), {@code clients} (1000), {@code rate} total
+ *   operations per second (2000), {@code duration} seconds measured (30), {@code warmup} seconds
+ *   not measured (5), {@code mix} weights (create:20,list:2,get:48,accept:15,close:15),
+ *   {@code preload} tickets created before the run (1000), {@code csv} file results are appended
+ *   to, {@code label} free text stored with the results
+ * - Every client has its own socket and client id, so the server rate limits them separately.
+ * - Operation n is scheduled at {@code start + n / rate}, independent of earlier responses. Latency
+ *   is measured from that intended start, so a stalled server is charged for the requests that
+ *   queued up behind the stall (coordinated omission correction). The pure service time from the
+ *   actual send is reported alongside.
+ * - Responses missing after {@code ticket.client.timeoutMs} count as timeouts, BUSY answers as
+ *   busy and all other failures as errors. accept and close work on tickets created earlier in
+ *   the run and fall back to create when there are none.
+ */
+public class LoadGenerator {
+
+    enum Op { CREATE, LIST, GET, ACCEPT, CLOSE }
+
+    private static final String CSV_HEADER = "time,label,op,clients,targetRate,seconds,count,throughput,"
+            + "errors,timeouts,busy,p50Ms,p90Ms,p99Ms,p999Ms,maxMs,serviceP50Ms,serviceP99Ms";
+
+    private final Map<Op, Stats> stats = new EnumMap<>(Op.class);
+    private final ConcurrentLinkedQueue<Integer> created = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Integer> accepted = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger highestId = new AtomicInteger();
+    private final AtomicLong maxStartDelayNanos = new AtomicLong();
+    private final Op[] ops;
+    private final int[] cumulativeWeights;
+
+    LoadGenerator(Map<Op, Integer> mix) {
+        ops = mix.keySet().toArray(new Op[0]);
+        cumulativeWeights = new int[ops.length];
+        int sum = 0;
+        for (int i = 0; i < ops.length; i++) {
+            sum += mix.get(ops[i]);
+            cumulativeWeights[i] = sum;
+        }
+        if (sum <= 0) throw new IllegalArgumentException("operation mix must have a positive weight");
+        for (Op op : Op.values()) stats.put(op, new Stats());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Ignoring argument '" + arg + "', expected key=value");
+                continue;
+            }
+            options.put(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        String host = options.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(options.getOrDefault("port", "1140"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "2000"));
+        long durationS = Long.parseLong(options.getOrDefault("duration", "30"));
+        long warmupS = Long.parseLong(options.getOrDefault("warmup", "5"));
+        int preload = Integer.parseInt(options.getOrDefault("preload", "1000"));
+        String label = options.getOrDefault("label", "");
+
+        LoadGenerator generator = new LoadGenerator(parseMix(options.getOrDefault("mix", "create:20,list:2,get:48,accept:15,close:15")));
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<UDPTicketManagementBackend> backends = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            backends.add(new UncachedBackend(host, port, "load-" + runId + "-" + i));
+        }
+        generator.preload(backends.get(0), preload);
+        System.out.printf(Locale.ROOT, "%d clients, %.0f ops/s for %d s after %d s warmup against %s:%d%n",
+                clients, rate, durationS, warmupS, host, port);
+
+        long elapsed = generator.run(backends, rate, warmupS, durationS);
+        for (UDPTicketManagementBackend backend : backends) backend.triggerShutdown();
+
+        double seconds = elapsed / 1e9;
+        generator.print(seconds);
+        long retransmits = 0, hedges = 0, late = 0;
+        for (UDPTicketManagementBackend backend : backends) {
+            retransmits += backend.getConnection().getRetransmits();
+            hedges += backend.getConnection().getHedges();
+            late += backend.getConnection().getLateResponses();
+        }
+        System.out.printf(Locale.ROOT, "Retransmissions %d, hedged requests %d, late or duplicate responses %d%n",
+                retransmits, hedges, late);
+        String csv = options.get("csv");
+        if (csv != null && !csv.isBlank()) {
+            try {
+                generator.appendCsv(Paths.get(csv), label, clients, rate, seconds);
+                System.out.println("Results appended to " + csv);
+            } catch (IOException e) {
+                System.err.println("Could not write " + csv + ": " + e.getMessage());
+            }
+        }
+    }
+
+    static Map<Op, Integer> parseMix(String mix) {
+        Map<Op, Integer> weights = new EnumMap<>(Op.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) throw new IllegalArgumentException("Expected op:weight but got '" + entry + "'");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) weights.put(Op.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+        return weights;
+    }
+
+    private void preload(UDPTicketManagementBackend backend, int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                remember(backend.createNewTicket("load", "preload " + i, "", Type.TASK, Priority.MINOR));
+            } catch (TicketException e) {
+                System.err.println("Preload stopped after " + i + " tickets: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run all clients until the schedule ends.
+     *
+     * @return nanoseconds of the measured part
+     */
+    long run(List<UDPTicketManagementBackend> backends, double rate, long warmupS, long durationS)
+            throws InterruptedException {
+        long intervalNanos = (long) (1e9 / rate);
+        long start = System.nanoTime() + 100_000_000L;
+        long measureFrom = start + warmupS * 1_000_000_000L;
+        long end = measureFrom + durationS * 1_000_000_000L;
+        AtomicLong sequence = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>(backends.size());
+        for (UDPTicketManagementBackend backend : backends) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                while (true) {
+                    long intended = start + sequence.getAndIncrement() * intervalNanos;
+                    if (intended >= end) return;
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+                    execute(backend, pick(), intended, intended >= measureFrom);
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        return end - measureFrom;
+    }
+
+    private void execute(UDPTicketManagementBackend backend, Op op, long intended, boolean measured) {
+        long sent = System.nanoTime();
+        Outcome outcome = Outcome.OK;
+        try {
+            switch (op) {
+            case CREATE -> remember(backend.createNewTicket("load", "load test", "", Type.TASK, Priority.MINOR));
+            case LIST -> backend.getAllTickets();
+            case GET -> {
+                int highest = highestId.get();
+                backend.getTicketById(highest <= 0 ? 1 : 1 + ThreadLocalRandom.current().nextInt(highest));
+            }
+            case ACCEPT -> {
+                Integer id = created.poll();
+                if (id == null) {
+                    op = Op.CREATE;
+                    remember(backend.createNewTicket("load", "load test", "", Type.TASK, Priority.MINOR));
+                } else {
+                    backend.acceptTicket(id);
+                    accepted.offer(id);
+                }
+            }
+            case CLOSE -> {
+                Integer id = accepted.poll();
+                if (id == null) {
+                    op = Op.CREATE;
+                    remember(backend.createNewTicket("load", "load test", "", Type.TASK, Priority.MINOR));
+                } else {
+                    backend.closeTicket(id);
+                }
+            }
+            }
+        } catch (ServerBusyException e) {
+            outcome = Outcome.BUSY;
+        } catch (TicketException e) {
+            outcome = e.getCause() instanceof SocketTimeoutException ? Outcome.TIMEOUT : Outcome.ERROR;
+        }
+        long done = System.nanoTime();
+        if (!measured) return;
+        long startDelay = sent - intended;
+        long max = maxStartDelayNanos.get();
+        while (startDelay > max && !maxStartDelayNanos.compareAndSet(max, startDelay)) max = maxStartDelayNanos.get();
+        stats.get(op).record(outcome, done - intended, done - sent);
+    }
+
+    private void remember(Ticket ticket) {
+        if (ticket == null) return;
+        created.offer(ticket.getId());
+        int id = ticket.getId();
+        int highest = highestId.get();
+        while (id > highest && !highestId.compareAndSet(highest, id)) highest = highestId.get();
+    }
+
+    private Op pick() {
+        int r = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < ops.length; i++) {
+            if (r < cumulativeWeights[i]) return ops[i];
+        }
+        return ops[ops.length - 1];
+    }
+
+    private Map<String, Stats> results() {
+        Map<String, Stats> results = new LinkedHashMap<>();
+        Stats total = new Stats();
+        for (Map.Entry<Op, Stats> e : stats.entrySet()) {
+            if (e.getValue().latency.getCount() == 0) continue;
+            results.put(e.getKey().name().toLowerCase(), e.getValue());
+            total.add(e.getValue());
+        }
+        results.put("total", total);
+        return results;
+    }
+
+    private void print(double seconds) {
+        System.out.printf(Locale.ROOT, "%-7s %8s %9s %7s %8s %7s %8s %8s %8s %8s %8s %10s%n", "op", "count", "ops/s",
+                "errors", "timeouts", "busy", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        for (Map.Entry<String, Stats> e : results().entrySet()) {
+            Stats s = e.getValue();
+            long count = s.latency.getCount();
+            System.out.printf(Locale.ROOT, "%-7s %8d %9.1f %7d %8d %7d %8.2f %8.2f %8.2f %8.2f %8.2f %10.2f%n",
+                    e.getKey(), count, count / seconds, s.errors.sum(), s.timeouts.sum(), s.busy.sum(),
+                    ms(s.latency.getValueAtPercentile(50)), ms(s.latency.getValueAtPercentile(90)),
+                    ms(s.latency.getValueAtPercentile(99)), ms(s.latency.getValueAtPercentile(99.9)),
+                    ms(s.latency.getMax()), ms(s.service.getValueAtPercentile(99)));
+        }
+        System.out.printf(Locale.ROOT, "Latency from scheduled start (coordinated omission corrected), "
+                + "svc = from actual send. Max send delay behind schedule: %.2f ms%n", ms(maxStartDelayNanos.get()));
+    }
+
+    private void appendCsv(Path file, String label, int clients, double rate, double seconds) throws IOException {
+        boolean header = !Files.exists(file) || Files.size(file) == 0;
+        String time = LocalDateTime.now().withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (header) out.println(CSV_HEADER);
+            for (Map.Entry<String, Stats> e : results().entrySet()) {
+                Stats s = e.getValue();
+                long count = s.latency.getCount();
+                out.printf(Locale.ROOT, "%s,%s,%s,%d,%.1f,%.1f,%d,%.1f,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                        time, label.replace(',', ' '), e.getKey(), clients, rate, seconds, count, count / seconds,
+                        s.errors.sum(), s.timeouts.sum(), s.busy.sum(),
+                        ms(s.latency.getValueAtPercentile(50)), ms(s.latency.getValueAtPercentile(90)),
+                        ms(s.latency.getValueAtPercentile(99)), ms(s.latency.getValueAtPercentile(99.9)),
+                        ms(s.latency.getMax()), ms(s.service.getValueAtPercentile(50)), ms(s.service.getValueAtPercentile(99)));
+            }
+        }
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    enum Outcome { OK, ERROR, TIMEOUT, BUSY }
+
+    /** Latencies and failure counts of one operation. */
+    static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram service = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder busy = new LongAdder();
+
+        void record(Outcome outcome, long latencyNanos, long serviceNanos) {
+            latency.record(latencyNanos);
+            service.record(serviceNanos);
+            switch (outcome) {
+            case ERROR -> errors.increment();
+            case TIMEOUT -> timeouts.increment();
+            case BUSY -> busy.increment();
+            default -> { }
+            }
+        }
+
+        void add(Stats other) {
+            latency.add(other.latency);
+            service.add(other.service);
+            errors.add(other.errors.sum());
+            timeouts.add(other.timeouts.sum());
+            busy.add(other.busy.sum());
+        }
+    }
+
+    /** A client backend whose reads always reach the server. */
+    static final class UncachedBackend extends UDPTicketManagementBackend {
+
+        UncachedBackend(String host, int port, String clientId) {
+            super(host, port, clientId);
+            getTicketCache().setCapacity(0);
+        }
+    }
+}
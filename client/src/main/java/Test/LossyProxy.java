@@ -0,0 +1,133 @@
+package Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * UDP proxy in front of a ticket server that drops a fraction of the datagrams in both directions,
+ * to measure clients under packet loss.
+ *
+ * - args: {@code listen} port (default 1141), {@code target} {@code host:port} (default
+ *   127.0.0.1:1140), {@code loss} probability per datagram and direction (default 0.01)
+ * - With {@code mtu} (e.g. 1500) the loss applies to each IPv4 fragment a datagram of that size
+ *   would be split into, and a datagram passes only if all its fragments do, as on a real link.
+ * - Each client address gets its own upstream socket, so responses find their way back.
+ * - Forwarded and dropped datagrams are printed every 10 seconds.
+ */
+public class LossyProxy {
+
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private final DatagramSocket listen;
+    private final InetSocketAddress target;
+    private final double loss;
+    // bytes of UDP datagram per IP fragment, 0 to drop whole datagrams
+    private final int fragmentPayload;
+    private final Map<SocketAddress, DatagramSocket> upstreams = new ConcurrentHashMap<>();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    LossyProxy(int port, InetSocketAddress target, double loss, int mtu) throws IOException {
+        this.listen = new DatagramSocket(port);
+        this.target = target;
+        this.loss = loss;
+        this.fragmentPayload = mtu > 0 ? (mtu - 20) / 8 * 8 : 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 1141;
+        String target = "127.0.0.1:1140";
+        double loss = 0.01;
+        int mtu = 0;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? "" : arg.substring(eq + 1);
+            switch (key) {
+            case "listen" -> port = Integer.parseInt(value);
+            case "target" -> target = value;
+            case "loss" -> loss = Double.parseDouble(value);
+            case "mtu" -> mtu = Integer.parseInt(value);
+            default -> System.err.println("Ignoring argument '" + arg + "'");
+            }
+        }
+        int sep = target.lastIndexOf(':');
+        LossyProxy proxy = new LossyProxy(port, new InetSocketAddress(target.substring(0, sep),
+                Integer.parseInt(target.substring(sep + 1))), loss, mtu);
+        System.out.printf(Locale.ROOT, "Forwarding UDP port %d to %s, dropping %.2f%% per direction%n", port, target, loss * 100);
+        Thread.ofPlatform().daemon().start(proxy::report);
+        proxy.forwardRequests();
+    }
+
+    private void forwardRequests() throws IOException {
+        byte[] buf = new byte[MAX_DATAGRAM_SIZE];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        while (true) {
+            packet.setLength(buf.length);
+            listen.receive(packet);
+            SocketAddress client = packet.getSocketAddress();
+            DatagramSocket upstream = upstreams.computeIfAbsent(client, this::openUpstream);
+            if (upstream != null && pass(packet.getLength())) {
+                upstream.send(new DatagramPacket(packet.getData(), packet.getOffset(), packet.getLength(), target));
+            }
+        }
+    }
+
+    private DatagramSocket openUpstream(SocketAddress client) {
+        try {
+            DatagramSocket upstream = new DatagramSocket();
+            Thread.ofVirtual().start(() -> forwardResponses(upstream, client));
+            return upstream;
+        } catch (IOException e) {
+            System.err.println("Cannot open upstream socket: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void forwardResponses(DatagramSocket upstream, SocketAddress client) {
+        byte[] buf = new byte[MAX_DATAGRAM_SIZE];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        try {
+            while (true) {
+                packet.setLength(buf.length);
+                upstream.receive(packet);
+                if (pass(packet.getLength())) listen.send(new DatagramPacket(packet.getData(), packet.getOffset(), packet.getLength(), client));
+            }
+        } catch (IOException e) {
+            upstreams.remove(client);
+        }
+    }
+
+    private boolean pass(int length) {
+        // 8 bytes UDP header; the IP header of each fragment is not part of the fragment payload
+        int fragments = fragmentPayload > 0 ? Math.max(1, (length + 8 + fragmentPayload - 1) / fragmentPayload) : 1;
+        for (int i = 0; i < fragments; i++) {
+            if (ThreadLocalRandom.current().nextDouble() < loss) {
+                dropped.increment();
+                return false;
+            }
+        }
+        forwarded.increment();
+        return true;
+    }
+
+    private void report() {
+        while (true) {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            System.out.printf(Locale.ROOT, "%d clients, %d datagrams forwarded, %d dropped%n",
+                    upstreams.size(), forwarded.sum(), dropped.sum());
+        }
+    }
+}
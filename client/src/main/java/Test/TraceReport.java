@@ -0,0 +1,155 @@
+package Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import metrics.LatencyHistogram;
+
+/**
+ * Stage breakdown of recorded request traces ({@code ticket.trace.file} of clients and servers).
+ *
+ * - args: trace files, rolled {@code .1} files included if given, and optionally {@code top=N}
+ *   for the number of slowest requests listed (default 10)
+ * - Prints per side and request type the p50/p99/mean of every stage, in microseconds.
+ * - Client and server traces with the same id are joined: the client's wait for the response
+ *   minus the server's total time is reported as {@code network} (both directions plus socket
+ *   buffers), so each joined request splits into client, network and server stages.
+ */
+public class TraceReport {
+
+    private static final String NETWORK = "network";
+
+    /** One parsed trace line. */
+    record Trace(String id, String side, String requestType, long startMillis, List<String> stages, List<Long> durations) {
+
+        long total() {
+            long sum = 0;
+            for (long d : durations) sum += d;
+            return sum;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int top = 10;
+        Map<String, Trace> clients = new HashMap<>();
+        Map<String, Trace> servers = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("top=")) {
+                top = Integer.parseInt(arg.substring(4));
+                continue;
+            }
+            for (String line : Files.readAllLines(Paths.get(arg), StandardCharsets.UTF_8)) {
+                Trace t = parse(line);
+                if (t != null) ("client".equals(t.side()) ? clients : servers).put(t.id(), t);
+            }
+        }
+        if (clients.isEmpty() && servers.isEmpty()) {
+            System.out.println("Usage: TraceReport <trace file>... [top=N]");
+            return;
+        }
+
+        System.out.println("== Stages per side and request type (us) ==");
+        printStages("client", clients.values());
+        printStages("server", servers.values());
+
+        List<Trace> joined = new ArrayList<>();
+        for (Trace client : clients.values()) {
+            Trace server = servers.get(client.id());
+            if (server != null) joined.add(join(client, server));
+        }
+        System.out.println();
+        System.out.println("== End to end breakdown of " + joined.size() + " joined requests (us) ==");
+        printStages("joined", joined);
+
+        System.out.println();
+        System.out.println("== Slowest joined requests ==");
+        joined.sort(Comparator.comparingLong(Trace::total).reversed());
+        for (Trace t : joined.subList(0, Math.min(top, joined.size()))) {
+            StringBuilder b = new StringBuilder();
+            for (int i = 0; i < t.stages().size(); i++) {
+                if (i > 0) b.append(", ");
+                b.append(t.stages().get(i)).append(' ').append(t.durations().get(i) / 1000);
+            }
+            System.out.printf(Locale.ROOT, "%s %-7s %9d us  %s%n", t.id(), t.requestType(), t.total() / 1000, b);
+        }
+    }
+
+    static Trace parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length < 5) return null;
+        List<String> stages = new ArrayList<>();
+        List<Long> durations = new ArrayList<>();
+        long previous = 0;
+        for (String mark : fields[4].split(",")) {
+            int eq = mark.lastIndexOf('=');
+            if (eq <= 0) continue;
+            long offset = Long.parseLong(mark.substring(eq + 1));
+            stages.add(mark.substring(0, eq));
+            durations.add(Math.max(0, offset - previous));
+            previous = offset;
+        }
+        try {
+            return new Trace(fields[0], fields[1], fields[2], Long.parseLong(fields[3]), stages, durations);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replace the client's wait for the response by the server stages and the remaining network time.
+     */
+    static Trace join(Trace client, Trace server) {
+        List<String> stages = new ArrayList<>();
+        List<Long> durations = new ArrayList<>();
+        for (int i = 0; i < client.stages().size(); i++) {
+            String stage = client.stages().get(i);
+            if ("receive".equals(stage)) {
+                stages.add(NETWORK);
+                durations.add(Math.max(0, client.durations().get(i) - server.total()));
+                for (int j = 0; j < server.stages().size(); j++) {
+                    stages.add("server." + server.stages().get(j));
+                    durations.add(server.durations().get(j));
+                }
+            } else {
+                stages.add("client." + stage);
+                durations.add(client.durations().get(i));
+            }
+        }
+        return new Trace(client.id(), "joined", client.requestType(), client.startMillis(), stages, durations);
+    }
+
+    private static void printStages(String side, Iterable<Trace> traces) {
+        // request type -> stage -> histogram, stages in order of first appearance
+        Map<String, Map<String, LatencyHistogram>> byType = new TreeMap<>();
+        for (Trace t : traces) {
+            Map<String, LatencyHistogram> stages = byType.computeIfAbsent(t.requestType(), k -> new LinkedHashMap<>());
+            for (int i = 0; i < t.stages().size(); i++) {
+                stages.computeIfAbsent(t.stages().get(i), k -> new LatencyHistogram()).record(t.durations().get(i));
+            }
+            stages.computeIfAbsent("total", k -> new LatencyHistogram()).record(t.total());
+        }
+        for (Map.Entry<String, Map<String, LatencyHistogram>> type : byType.entrySet()) {
+            // stages only some traces have, e.g. a failure, were added after the total
+            LatencyHistogram total = type.getValue().remove("total");
+            type.getValue().put("total", total);
+            System.out.printf(Locale.ROOT, "%s %s (%d traces)%n", side, type.getKey(), total.getCount());
+            System.out.printf(Locale.ROOT, "  %-22s %10s %10s %10s %7s%n", "stage", "p50", "p99", "mean", "share");
+            for (Map.Entry<String, LatencyHistogram> stage : type.getValue().entrySet()) {
+                LatencyHistogram h = stage.getValue();
+                double share = total.getMean() == 0 ? 0 : 100.0 * h.getMean() * h.getCount() / total.getCount() / total.getMean();
+                System.out.printf(Locale.ROOT, "  %-22s %10.1f %10.1f %10.1f %6.1f%%%n", stage.getKey(),
+                        h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(99) / 1e3, h.getMean() / 1e3, share);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package app;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Reliable, congestion controlled transmission of the chunks of one request.
+ *
+ * - Chunks are sent while the shared {@link CongestionWindow} has room, lowest index first.
+ * - The server acknowledges every chunk with the ranges it holds. A chunk still unacknowledged
+ *   after {@value #DUPLICATE_THRESHOLD} chunks with higher index were acknowledged is taken as
+ *   lost and sent again at once (fast retransmit); the window is halved at most once per window
+ *   of data. Once the last chunk was sent, one acknowledged chunk above is enough (early
+ *   retransmit), so losses at the tail do not have to wait for the timeout.
+ * - If nothing is acknowledged within the retransmission timeout of the ack round trips, every
+ *   chunk in flight is taken as lost, the window restarts at one chunk and the timeout doubles.
+ * - Only acks of chunks sent once yield round trip samples (Karn).
+ */
+final class ChunkUpload {
+
+    /** Sends chunk {@code index} of the request. */
+    @FunctionalInterface
+    interface ChunkSender {
+        void send(int index) throws IOException;
+    }
+
+    private static final int DUPLICATE_THRESHOLD = 3;
+    private static final byte UNSENT = 0;
+    private static final byte IN_FLIGHT = 1;
+    private static final byte LOST = 2;
+    private static final byte ACKED = 3;
+
+    private final int attempt;
+    private final int count;
+    private final CongestionWindow window;
+    private final RttEstimator ackRtt;
+    private final ChunkSender sender;
+    // guarded by window.lock
+    private final byte[] state;
+    private final long[] sentAt;
+    private final int[] sends;
+    private int acked;
+    private int inFlight;
+    private int lost;
+    private int firstUnacked;
+    private int highestSent = -1;
+    private int highestAcked = -1;
+    private int recoveryPoint;
+    private boolean finished;
+    private long retransmitted;
+
+    ChunkUpload(int attempt, int count, CongestionWindow window, RttEstimator ackRtt, ChunkSender sender) {
+        this.attempt = attempt;
+        this.count = count;
+        this.window = window;
+        this.ackRtt = ackRtt;
+        this.sender = sender;
+        this.state = new byte[count];
+        this.sentAt = new long[count];
+        this.sends = new int[count];
+    }
+
+    int attempt() {
+        return attempt;
+    }
+
+    /**
+     * Send until every chunk is acknowledged.
+     *
+     * @param abandoned checked on every wake-up, e.g. whether the response already arrived
+     * @return true once all chunks are acknowledged, false if abandoned or the deadline passed
+     */
+    boolean run(long deadlineNanos, BooleanSupplier abandoned) throws IOException, InterruptedException {
+        int[] batch = new int[64];
+        try {
+            while (true) {
+                int n = 0;
+                window.lock.lock();
+                try {
+                    if (acked == count) return true;
+                    long now = System.nanoTime();
+                    if (abandoned.getAsBoolean() || now - deadlineNanos >= 0) return false;
+                    long rto = ackRtt.getRtoNanos();
+                    long oldest = oldestInFlight();
+                    if (inFlight > 0 && now - oldest >= rto) {
+                        timeOut();
+                        continue;
+                    }
+                    while (n < batch.length) {
+                        int index = nextToSend();
+                        if (index < 0 || !window.tryAcquire()) break;
+                        if (sends[index]++ > 0) retransmitted++;
+                        if (state[index] == LOST) lost--;
+                        state[index] = IN_FLIGHT;
+                        sentAt[index] = now;
+                        inFlight++;
+                        highestSent = Math.max(highestSent, index);
+                        batch[n++] = index;
+                    }
+                    if (n == 0) {
+                        long wakeAt = inFlight > 0 ? Math.min(deadlineNanos, oldest + rto) : deadlineNanos;
+                        window.changed.await(Math.max(1, wakeAt - now), TimeUnit.NANOSECONDS);
+                        continue;
+                    }
+                } finally {
+                    window.lock.unlock();
+                }
+                for (int i = 0; i < n; i++) {
+                    sender.send(batch[i]);
+                }
+            }
+        } finally {
+            finish();
+        }
+    }
+
+    /** Apply an acknowledgement: start and end index pairs of the chunks the server holds. */
+    void acknowledged(int[] ranges) {
+        window.lock.lock();
+        try {
+            if (finished) return;
+            long now = System.nanoTime();
+            for (int r = 0; r + 1 < ranges.length; r += 2) {
+                int end = Math.min(ranges[r + 1], count);
+                for (int i = Math.max(ranges[r], firstUnacked); i < end; i++) {
+                    if (state[i] == ACKED || state[i] == UNSENT) continue;
+                    if (state[i] == IN_FLIGHT) {
+                        inFlight--;
+                        window.acked();
+                        if (sends[i] == 1) ackRtt.sample(now - sentAt[i]);
+                    } else {
+                        lost--;
+                    }
+                    state[i] = ACKED;
+                    acked++;
+                    highestAcked = Math.max(highestAcked, i);
+                }
+            }
+            while (firstUnacked < count && state[firstUnacked] == ACKED) firstUnacked++;
+            detectLosses();
+            window.changed.signalAll();
+        } finally {
+            window.lock.unlock();
+        }
+    }
+
+    /** Wake the sending thread, e.g. because the response arrived. */
+    void wake() {
+        window.lock.lock();
+        try {
+            window.changed.signalAll();
+        } finally {
+            window.lock.unlock();
+        }
+    }
+
+    /** Chunks sent more than once. */
+    long getRetransmitted() {
+        window.lock.lock();
+        try {
+            return retransmitted;
+        } finally {
+            window.lock.unlock();
+        }
+    }
+
+    // a chunk sent once is lost when enough later chunks were acknowledged
+    private void detectLosses() {
+        int threshold = highestSent == count - 1 ? 1 : DUPLICATE_THRESHOLD;
+        int ackedAbove = 0;
+        for (int i = highestAcked; i >= firstUnacked; i--) {
+            if (state[i] == ACKED) {
+                ackedAbove++;
+            } else if (state[i] == IN_FLIGHT && sends[i] == 1 && ackedAbove >= threshold) {
+                state[i] = LOST;
+                lost++;
+                inFlight--;
+                window.released();
+                if (i >= recoveryPoint) {
+                    window.lossDetected();
+                    recoveryPoint = highestSent + 1;
+                }
+            }
+        }
+    }
+
+    private void timeOut() {
+        for (int i = firstUnacked; i <= highestSent; i++) {
+            if (state[i] == IN_FLIGHT) {
+                state[i] = LOST;
+                lost++;
+                inFlight--;
+                window.released();
+            }
+        }
+        window.timedOut();
+        ackRtt.backOff();
+        recoveryPoint = highestSent + 1;
+    }
+
+    private long oldestInFlight() {
+        long oldest = Long.MAX_VALUE;
+        for (int i = firstUnacked; i <= highestSent; i++) {
+            if (state[i] == IN_FLIGHT && (oldest == Long.MAX_VALUE || sentAt[i] - oldest < 0)) oldest = sentAt[i];
+        }
+        return oldest;
+    }
+
+    private int nextToSend() {
+        if (lost > 0) {
+            for (int i = firstUnacked; i <= highestSent; i++) {
+                if (state[i] == LOST) return i;
+            }
+        }
+        return highestSent + 1 < count ? highestSent + 1 : -1;
+    }
+
+    // give the slots of chunks still in flight back to the shared window
+    private void finish() {
+        window.lock.lock();
+        try {
+            finished = true;
+            for (int i = firstUnacked; i <= highestSent; i++) {
+                if (state[i] == IN_FLIGHT) {
+                    state[i] = UNSENT;
+                    window.released();
+                }
+            }
+            inFlight = 0;
+        } finally {
+            window.lock.unlock();
+        }
+    }
+}
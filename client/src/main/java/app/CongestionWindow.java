@@ -0,0 +1,108 @@
+package app;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD congestion window shared by all chunked uploads to one server, counted in chunks.
+ *
+ * - Slow start grows the window by one chunk per acknowledged chunk up to the slow start
+ *   threshold, then congestion avoidance by about one chunk per window.
+ * - A loss detected from selective acks halves the window (once per window of data, see
+ *   {@link ChunkUpload}); a retransmission timeout halves the threshold and restarts at one chunk.
+ * - The window is bounded by {@code ticket.client.maxWindow} chunks (default 256), so a single
+ *   upload cannot overrun the server's socket receive buffer even on a clean path.
+ * - {@link #lock} guards the window and the state of every upload using it; {@link #changed} is
+ *   signalled whenever acks arrive or slots are freed, so uploads waiting for room wake up.
+ */
+public class CongestionWindow {
+
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition changed = lock.newCondition();
+
+    private final int maxWindow;
+    // guarded by lock
+    private double window;
+    private double slowStartThreshold;
+    private int inFlight;
+    private long losses;
+    private long timeouts;
+
+    public CongestionWindow(int initialWindow, int maxWindow) {
+        this.maxWindow = Math.max(1, maxWindow);
+        this.window = Math.max(1, Math.min(initialWindow, this.maxWindow));
+        this.slowStartThreshold = this.maxWindow;
+    }
+
+    /** Take a slot for one more chunk in flight, if the window has room. Caller holds the lock. */
+    boolean tryAcquire() {
+        if (inFlight >= (int) window) return false;
+        inFlight++;
+        return true;
+    }
+
+    /** A chunk in flight was acknowledged. Caller holds the lock. */
+    void acked() {
+        inFlight--;
+        window = Math.min(maxWindow, window < slowStartThreshold ? window + 1 : window + 1 / window);
+        changed.signalAll();
+    }
+
+    /** A chunk left the network without an ack (lost, or its upload ended). Caller holds the lock. */
+    void released() {
+        inFlight--;
+        changed.signalAll();
+    }
+
+    /** Multiplicative decrease after a loss detected from acks. Caller holds the lock. */
+    void lossDetected() {
+        slowStartThreshold = Math.max(2, window / 2);
+        window = slowStartThreshold;
+        losses++;
+    }
+
+    /** Restart from one chunk after a retransmission timeout. Caller holds the lock. */
+    void timedOut() {
+        slowStartThreshold = Math.max(2, window / 2);
+        window = 1;
+        timeouts++;
+    }
+
+    public int getWindow() {
+        lock.lock();
+        try {
+            return (int) window;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSlowStartThreshold() {
+        lock.lock();
+        try {
+            return (int) slowStartThreshold;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Window reductions after losses detected from selective acks. */
+    public long getLosses() {
+        lock.lock();
+        try {
+            return losses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Window restarts after retransmission timeouts. */
+    public long getTimeouts() {
+        lock.lock();
+        try {
+            return timeouts;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,68 +1,325 @@
 package app;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import com.google.gson.JsonSyntaxException;
 
-import entities.Priority;
 import entities.Ticket;
 import entities.TicketException;
-import entities.Type;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TemporaryQueue;
+import jakarta.jms.TextMessage;
+import logging.AsyncLogger;
+import tracing.Trace;
 
 /**
- * Simple JMSTicketManagementBackend stub.
+ * JMS-backed implementation of TicketManagementBackend (request/reply over a broker queue).
  *
- * - Currently delegates to an in-memory LocalTicketManagementBackend as a safe fallback
- *   so the UI and tests can operate without a JMS infrastructure.
- * - Replace the delegate calls with a real JMS implementation when ready.
+ * - Requests are sent as BytesMessages to queue {@value #REQUEST_QUEUE} with a unique
+ *   {@code JMSCorrelationID} and this backend's temporary queue as {@code JMSReplyTo}. An
+ *   asynchronous listener on that queue completes the waiting request by correlation id, so any
+ *   number of threads can have requests in flight; late replies of timed out requests are dropped.
+ * - Requests expire on the broker after {@code ticket.client.timeoutMs} (default 5000), the time
+ *   a caller waits for the answer.
+ * - {@link #createNewTickets(List)} sends all requests in one transacted session and commits
+ *   once, so the broker receives the whole batch in a single round trip.
+ * - The server's change events on topic {@value #EVENT_TOPIC} keep the {@link TicketCache} up
+ *   to date and are passed to listeners added with {@link #addChangeListener(Consumer)}; listeners
+ *   run on the JMS delivery thread.
+ * - The broker URL comes from system property {@code ticket.jms.url} and defaults to
+ *   {@code tcp://localhost:61616}; {@code vm://0} reaches a broker embedded in the same process.
+ *   A broken connection is re-established on the next request.
  */
-public class JMSTicketManagementBackend implements TicketManagementBackend {
+public class JMSTicketManagementBackend extends RemoteTicketManagementBackend {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(JMSTicketManagementBackend.class);
 
-    // fallback delegate used until JMS integration is implemented
-    private final LocalTicketManagementBackend delegate = new LocalTicketManagementBackend();
+    public static final String REQUEST_QUEUE = "ticket.requests";
+    public static final String EVENT_TOPIC = "ticket.events";
+    public static final String DEFAULT_URL = "tcp://localhost:61616";
+    private static final long RESPONSE_TIMEOUT_MS = Long.getLong("ticket.client.timeoutMs", 5000);
+
+    /** A ticket change published by the server; {@code type} is {@code created} or {@code updated}. */
+    public record ChangeEvent(String type, Ticket ticket) {
+    }
+
+    private final String url;
+    private final Object lock = new Object();
+    private final AtomicLong nextCorrelationId = new AtomicLong();
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    private final List<Consumer<ChangeEvent>> changeListeners = new CopyOnWriteArrayList<>();
+    // guarded by lock
+    private Connection connection;
+    private TemporaryQueue replyQueue;
+    private Session sendSession;
+    private MessageProducer producer;
+    private Session batchSession;
+    private MessageProducer batchProducer;
+    private Session eventSession;
 
     public JMSTicketManagementBackend() {
-        // TODO: initialize JMS resources (ConnectionFactory, Connection, Session, Destinations, etc.)
+        this(System.getProperty("ticket.jms.url", DEFAULT_URL));
     }
 
-    @Override
-    public void triggerShutdown() {
-        // TODO: cleanly close JMS resources
-        delegate.triggerShutdown();
+    public JMSTicketManagementBackend(String url) {
+        this.url = Objects.requireNonNull(url, "url must not be null");
+        try {
+            synchronized (lock) {
+                connect();
+            }
+        } catch (JMSException e) {
+            // Don't throw from ctor; callers will see errors when calling methods.
+            LOG.warn("failed to connect to JMS broker {}: {}", url, e.getMessage());
+        }
     }
 
     @Override
-    public Ticket createNewTicket(String reporter, String topic, String description, Type type, Priority priority)
-            throws TicketException {
-        // TODO: send create request via JMS and wait/receive response
-        return delegate.createNewTicket(reporter, topic, description, type, priority);
+    protected byte[] exchange(byte[] request) throws Exception {
+        try {
+            return exchangeAsync(request).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) return null;
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
     }
 
-    @Override
-    public List<Ticket> getAllTickets() throws TicketException {
-        // TODO: request list via JMS or subscribe to updates
-        return delegate.getAllTickets();
+    /**
+     * Send one encoded request without waiting for the answer.
+     *
+     * @return completed with the encoded response, or exceptionally with a TimeoutException if none
+     *         arrives within {@code ticket.client.timeoutMs} or the connection fails
+     */
+    protected CompletableFuture<byte[]> exchangeAsync(byte[] request) throws JMSException {
+        String correlationId = Long.toString(nextCorrelationId.incrementAndGet());
+        CompletableFuture<byte[]> response = register(correlationId);
+        try {
+            synchronized (lock) {
+                connect();
+                send(sendSession, producer, request, correlationId);
+            }
+        } catch (JMSException e) {
+            pending.remove(correlationId);
+            throw e;
+        }
+        Trace.markCurrent("send");
+        return response;
     }
 
-    @Override
-    public Ticket getTicketById(int id) throws TicketException {
-        // TODO: implement remote lookup via JMS
-        return delegate.getTicketById(id);
+    /**
+     * Create several tickets with one batched send; the tickets' ids and statuses are ignored.
+     *
+     * @return the created tickets in the order given
+     * @throws TicketException if the batch could not be sent or any ticket was not created; tickets
+     *                         created before the failing one stay created
+     */
+    public List<Ticket> createNewTickets(List<Ticket> tickets) throws TicketException {
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>(tickets.size());
+        List<String> correlationIds = new ArrayList<>(tickets.size());
+        synchronized (lock) {
+            try {
+                connect();
+                for (Ticket t : tickets) {
+                    String correlationId = Long.toString(nextCorrelationId.incrementAndGet());
+                    correlationIds.add(correlationId);
+                    responses.add(register(correlationId));
+                    send(batchSession, batchProducer, encodeRequest("create", newTicketPayload(t.getReporter(),
+                            t.getTopic(), t.getDescription(), t.getType(), t.getPriority())), correlationId);
+                }
+                batchSession.commit();
+            } catch (JMSException e) {
+                correlationIds.forEach(pending::remove);
+                rollbackQuietly();
+                throw new TicketException("Failed to send batch of " + tickets.size() + " create requests", e);
+            }
+        }
+        List<Ticket> created = new ArrayList<>(tickets.size());
+        try {
+            for (CompletableFuture<byte[]> response : responses) {
+                try {
+                    Ticket ticket = decodeResponse(response.get(), "create").ticket;
+                    getTicketCache().put(ticket);
+                    created.add(ticket);
+                } catch (ExecutionException e) {
+                    throw new TicketException("No response for create request in batch", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TicketException("Interrupted while waiting for batch", e);
+                }
+            }
+        } finally {
+            writeCompleted();
+        }
+        return created;
     }
 
-    @Override
-    public Ticket acceptTicket(int id) throws TicketException {
-        // TODO: publish accept action via JMS
-        return delegate.acceptTicket(id);
+    /**
+     * Receive the server's ticket change events from now on.
+     *
+     * @throws TicketException if the event topic cannot be subscribed
+     */
+    public void addChangeListener(Consumer<ChangeEvent> listener) throws TicketException {
+        changeListeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+        synchronized (lock) {
+            try {
+                connect();
+                subscribeEvents();
+            } catch (JMSException e) {
+                throw new TicketException("Failed to subscribe to " + EVENT_TOPIC, e);
+            }
+        }
     }
 
-    @Override
-    public Ticket rejectTicket(int id) throws TicketException {
-        // TODO: publish reject action via JMS
-        return delegate.rejectTicket(id);
+    public void removeChangeListener(Consumer<ChangeEvent> listener) {
+        changeListeners.remove(listener);
     }
 
     @Override
-    public Ticket closeTicket(int id) throws TicketException {
-        // TODO: publish close action via JMS
-        return delegate.closeTicket(id);
+    public void triggerShutdown() {
+        synchronized (lock) {
+            disconnect(new JMSException("Backend shut down"));
+        }
+    }
+
+    private CompletableFuture<byte[]> register(String correlationId) {
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        pending.put(correlationId, response);
+        response.orTimeout(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .whenComplete((r, e) -> pending.remove(correlationId));
+        return response;
+    }
+
+    // must hold lock
+    private void send(Session session, MessageProducer target, byte[] request, String correlationId) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(request);
+        message.setJMSCorrelationID(correlationId);
+        message.setJMSReplyTo(replyQueue);
+        target.send(message);
+    }
+
+    // must hold lock; no-op while connected
+    private void connect() throws JMSException {
+        if (connection != null) return;
+        Connection c = new ActiveMQConnectionFactory(url).createConnection();
+        try {
+            c.setExceptionListener(e -> {
+                synchronized (lock) {
+                    if (connection != c) return;
+                    LOG.warn("JMS connection to {} failed: {}", url, e.getMessage());
+                    disconnect(e);
+                }
+            });
+            Session replySession = c.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            replyQueue = replySession.createTemporaryQueue();
+            replySession.createConsumer(replyQueue).setMessageListener(this::onReply);
+
+            sendSession = c.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue requests = sendSession.createQueue(REQUEST_QUEUE);
+            producer = createProducer(sendSession, requests);
+            batchSession = c.createSession(true, Session.SESSION_TRANSACTED);
+            batchProducer = createProducer(batchSession, batchSession.createQueue(REQUEST_QUEUE));
+            connection = c;
+            eventSession = null;
+            subscribeEvents();
+            c.start();
+        } catch (JMSException e) {
+            connection = null;
+            closeQuietly(c);
+            throw e;
+        }
+        LOG.info("connected to JMS broker {}", url);
+    }
+
+    private static MessageProducer createProducer(Session session, Queue queue) throws JMSException {
+        MessageProducer p = session.createProducer(queue);
+        p.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        p.setTimeToLive(RESPONSE_TIMEOUT_MS);
+        return p;
+    }
+
+    // must hold lock and be connected
+    private void subscribeEvents() throws JMSException {
+        if (eventSession != null) return;
+        eventSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        eventSession.createConsumer(eventSession.createTopic(EVENT_TOPIC)).setMessageListener(this::onEvent);
+    }
+
+    // must hold lock; fails all requests still waiting
+    private void disconnect(JMSException cause) {
+        if (connection != null) {
+            closeQuietly(connection);
+            connection = null;
+            eventSession = null;
+        }
+        for (String correlationId : pending.keySet()) {
+            CompletableFuture<byte[]> f = pending.remove(correlationId);
+            if (f != null) f.completeExceptionally(cause);
+        }
+    }
+
+    // must hold lock
+    private void rollbackQuietly() {
+        try {
+            if (batchSession != null) batchSession.rollback();
+        } catch (JMSException e) {
+            disconnect(e);
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (JMSException ignored) {
+        }
+    }
+
+    private void onReply(Message message) {
+        try {
+            CompletableFuture<byte[]> response = pending.remove(message.getJMSCorrelationID());
+            if (response == null || !(message instanceof BytesMessage bytes)) return;
+            byte[] data = new byte[(int) bytes.getBodyLength()];
+            bytes.readBytes(data);
+            response.complete(data);
+        } catch (JMSException e) {
+            LOG.warn("cannot read JMS reply: {}", e.getMessage());
+        }
+    }
+
+    private void onEvent(Message message) {
+        try {
+            if (!(message instanceof TextMessage text)) return;
+            ChangeEvent event = gson.fromJson(text.getText(), ChangeEvent.class);
+            if (event == null || event.ticket() == null) return;
+            getTicketCache().put(event.ticket());
+            for (Consumer<ChangeEvent> listener : changeListeners) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    LOG.warn("change listener failed: {}", e.getMessage(), e);
+                }
+            }
+        } catch (JMSException | JsonSyntaxException e) {
+            LOG.warn("cannot read change event: {}", e.getMessage());
+        }
     }
 }
@@ -1,5 +1,6 @@
 package app;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -10,6 +11,9 @@ import entities.Priority;
 import entities.Status;
 import entities.Ticket;
 import entities.TicketException;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
 import entities.Type;
 
 public class LocalTicketManagementBackend implements TicketManagementBackend {
@@ -54,6 +58,58 @@ public class LocalTicketManagementBackend implements TicketManagementBackend {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) {
+        if (!sort.isById()) {
+            TicketPage sorted = TicketPage.of(localTicketStore.values(), sort, offset, limit);
+            List<Ticket> page = new ArrayList<>(sorted.getTickets().size());
+            for (Ticket t : sorted.getTickets()) page.add(t.clone());
+            return new TicketPage(offset, sorted.getTotal(), page);
+        }
+        // ids are handed out densely from 1 and never removed, so position i holds id i + 1
+        int total = localTicketStore.size();
+        List<Ticket> page = new ArrayList<>(Math.max(0, Math.min(limit, total - offset)));
+        for (int id = offset + 1; id <= total && page.size() < limit; id++) {
+            Ticket t = localTicketStore.get(id);
+            if (t != null) page.add(t.clone());
+        }
+        return new TicketPage(offset, total, page);
+    }
+
+    @Override
+    public List<Ticket> searchTickets(String query, Type type, int limit) {
+        TicketQuery q = new TicketQuery(query, type);
+        int total = localTicketStore.size();
+        List<Ticket> found = new ArrayList<>();
+        // dense ids, see getTicketPage
+        for (int id = 1; id <= total && found.size() < limit; id++) {
+            Ticket t = localTicketStore.get(id);
+            if (q.matches(t)) found.add(t.clone());
+        }
+        return found;
+    }
+
+    @Override
+    public List<Ticket> searchTickets(String query, Type type, TicketSort sort, int limit) {
+        if (sort.isById()) return searchTickets(query, type, limit);
+        TicketQuery q = new TicketQuery(query, type);
+        TicketSort.Top top = sort.top(limit);
+        for (Ticket t : localTicketStore.values()) {
+            if (q.matches(t) && top.wants(t)) top.offer(t.clone());
+        }
+        return top.toList();
+    }
+
+    @Override
+    public List<Ticket> getTicketsByName(String name) {
+        return searchTickets(name, null, DEFAULT_SEARCH_LIMIT);
+    }
+
+    @Override
+    public List<Ticket> getTicketsByNameAndType(String name, Type type) {
+        return searchTickets(name, type, DEFAULT_SEARCH_LIMIT);
+    }
+
     @Override
     public Ticket getTicketById(int id) throws TicketException {
         Ticket t = getTicketByIdInternal(id);
@@ -78,7 +134,7 @@ public class LocalTicketManagementBackend implements TicketManagementBackend {
             if (ticketToModify.getStatus() != Status.OPEN && ticketToModify.getStatus() != Status.NEW) {
                 throw new TicketException("Cannot accept Ticket as it is currently in status " + ticketToModify.getStatus());
             }
-            ticketToModify.setStatus(Status.IN_PROGRESS);
+            ticketToModify.changeStatus(Status.IN_PROGRESS);
             try {
                 return ticketToModify.clone();
             } catch (Exception e) {
@@ -95,7 +151,7 @@ public class LocalTicketManagementBackend implements TicketManagementBackend {
             if (ticketToModify.getStatus() != Status.OPEN && ticketToModify.getStatus() != Status.NEW) {
                 throw new TicketException("Cannot reject Ticket as it is currently in status " + ticketToModify.getStatus());
             }
-            ticketToModify.setStatus(Status.CLOSED);
+            ticketToModify.changeStatus(Status.CLOSED);
             try {
                 return ticketToModify.clone();
             } catch (Exception e) {
@@ -112,7 +168,7 @@ public class LocalTicketManagementBackend implements TicketManagementBackend {
             if (ticketToModify.getStatus() != Status.IN_PROGRESS) {
                 throw new TicketException("Cannot close Ticket as it is currently in status " + ticketToModify.getStatus());
             }
-            ticketToModify.setStatus(Status.CLOSED);
+            ticketToModify.changeStatus(Status.CLOSED);
             try {
                 return ticketToModify.clone();
             } catch (Exception e) {
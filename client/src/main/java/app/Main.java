@@ -98,10 +98,35 @@ public class Main {
                     }
                 }
                 System.out.println("Using UDP backend -> " + host + ":" + port);
-                return new UDPTicketManagementBackend(); // UDPTicketManagementBackend reads system props or defaults; consider adding ctor(host,port) if needed
+                return new UDPTicketManagementBackend(host, port);
+            }
+            case "tcp": {
+                // optional args: tcp [host] [port]
+                String host = "127.0.0.1";
+                int port = 1160;
+                if (args.length >= 2 && args[1] != null && !args[1].isEmpty()) {
+                    host = args[1];
+                }
+                if (args.length >= 3) {
+                    try {
+                        port = Integer.parseInt(args[2]);
+                    } catch (NumberFormatException nfe) {
+                        System.err.println("Invalid port specified, falling back to default 1160");
+                        port = 1160;
+                    }
+                }
+                System.out.println("Using TCP backend -> " + host + ":" + port);
+                return new TcpTicketManagementBackend(host, port);
+            }
+            case "jms": {
+                // optional args: jms [broker url]
+                if (args.length >= 2 && args[1] != null && !args[1].isEmpty()) {
+                    System.out.println("Using JMS backend -> " + args[1]);
+                    return new JMSTicketManagementBackend(args[1]);
+                }
+                System.out.println("Using JMS backend -> " + System.getProperty("ticket.jms.url", JMSTicketManagementBackend.DEFAULT_URL));
+                return new JMSTicketManagementBackend();
             }
-            case "jms" :
-                    return new JMSTicketManagementBackend();
             // TODO Register new backend implementations here as additional
             // cases. E.g.:
             // case "udp":
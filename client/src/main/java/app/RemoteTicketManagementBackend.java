@@ -0,0 +1,529 @@
+package app;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import entities.Priority;
+import entities.ServerBusyException;
+import entities.Ticket;
+import entities.TicketException;
+import entities.TicketPage;
+import entities.TicketSort;
+import entities.Type;
+import protocol.CompressionStats;
+import protocol.PayloadCodec;
+import tracing.Trace;
+import tracing.TraceRecorder;
+
+/**
+ * Base class for backends talking the JSON ticket protocol to a remote server.
+ *
+ * - Builds {@code {"requestType", "payload"}} requests and unwraps the response envelope.
+ * - Subclasses only provide the transport through {@link #exchange(byte[])}.
+ * - Messages above the size threshold are deflate compressed once both sides agreed on it.
+ * - Transport failures and error responses from the server are wrapped as TicketException; requests
+ *   shed by the server's admission control raise {@link ServerBusyException}.
+ * - Sampled requests ({@link TraceRecorder}) carry a {@code traceId} and record the client stages
+ *   serialize, send (transports that can tell), receive, decode and parse.
+ * - Every ticket received is put into a {@link TicketCache}; {@link #getTicketById(int)} answers
+ *   from it without a round trip while the cached copy is fresh.
+ * - Concurrent identical reads ({@code get} of the same id, {@code list}) share one request
+ *   ({@link SingleFlight}). A read never joins one that was sent before a change made through
+ *   this backend completed, so callers always see their own changes.
+ * - Searches are numbered; when the searching thread is interrupted, the server is told to stop
+ *   the search, as the user typed on and waits for the next one.
+ * - {@link #streamAllTickets} reads the {@code list} response ticket by ticket from the received
+ *   bytes and hands them out in batches, instead of holding the JSON text and the whole list at once.
+ */
+public abstract class RemoteTicketManagementBackend implements TicketManagementBackend {
+
+    /** Identifies this client process to the server's per-client rate limits ({@code ticket.client.id}). */
+    protected static final String CLIENT_ID = System.getProperty("ticket.client.id", UUID.randomUUID().toString());
+
+    private static final String ERROR_BUSY = "BUSY";
+    private static final Set<String> IDEMPOTENT_REQUESTS = Set.of("get", "list", "page", "search");
+    // numbers the searches of all backends, the server keeps the newest per client id
+    private static final AtomicLong SEARCH_SEQ = new AtomicLong();
+
+    protected final Gson gson = new Gson();
+    private final String clientId;
+    private final CompressionStats compressionStats = new CompressionStats();
+    private final TicketCache ticketCache = new TicketCache();
+    // incremented whenever a change request completes, part of the single flight keys
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final SingleFlight<Long, List<Ticket>> listReads = new SingleFlight<>();
+    private final SingleFlight<GetKey, Optional<Ticket>> getReads = new SingleFlight<>();
+    // set once the server answered with acceptEncoding, requests are compressed from then on
+    private volatile boolean serverAcceptsCompression;
+
+    protected RemoteTicketManagementBackend() {
+        this(CLIENT_ID);
+    }
+
+    /**
+     * @param clientId identifies this backend instead of the process wide {@code ticket.client.id},
+     *                 e.g. to simulate many independent clients in one process
+     */
+    protected RemoteTicketManagementBackend(String clientId) {
+        this.clientId = clientId == null || clientId.isBlank() ? CLIENT_ID : clientId;
+    }
+
+    /**
+     * Send one encoded request ({@link PayloadCodec}) and return the encoded response.
+     *
+     * @return the response, or null/empty if the server did not answer
+     * @throws Exception on any transport failure
+     */
+    protected abstract byte[] exchange(byte[] request) throws Exception;
+
+    /**
+     * Variant of {@link #exchange(byte[])} for transports that treat request types differently,
+     * e.g. retransmit only {@link #isIdempotent(String) idempotent} ones.
+     */
+    protected byte[] exchange(String requestType, byte[] request) throws Exception {
+        return exchange(request);
+    }
+
+    /** Whether the server may execute a request of this type repeatedly without changing the outcome. */
+    protected static boolean isIdempotent(String requestType) {
+        return IDEMPOTENT_REQUESTS.contains(requestType);
+    }
+
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    public TicketCache getTicketCache() {
+        return ticketCache;
+    }
+
+    /** Reads that were answered by sharing an identical request already in flight. */
+    public long getCollapsedReads() {
+        return listReads.getCollapsed() + getReads.getCollapsed();
+    }
+
+    @Override
+    public Ticket createNewTicket(String reporter, String topic, String description, Type type,
+            Priority priority) throws TicketException {
+        String resp;
+        try {
+            resp = send("create", newTicketPayload(reporter, topic, description, type, priority));
+        } finally {
+            writeCompleted();
+        }
+        if (resp == null || resp.isEmpty()) throw new TicketException("Empty response from server");
+        ResponseWrapper wrapper = parseResponse(resp, "create");
+        return wrapper == null ? null : cached(wrapper.ticket);
+    }
+
+    @Override
+    public List<Ticket> getAllTickets() throws TicketException {
+        // coalesced callers share the fetched list, every caller gets its own copies of the mutable tickets
+        List<Ticket> shared = listReads.execute(writeEpoch.get(), this::fetchAllTickets);
+        List<Ticket> own = new ArrayList<>(shared.size());
+        for (Ticket t : shared) own.add(t.clone());
+        return own;
+    }
+
+    private List<Ticket> fetchAllTickets() throws TicketException {
+        String resp = send("list", null);
+        if (resp == null || resp.isEmpty()) return Collections.emptyList();
+        ResponseWrapper wrapper = parseResponse(resp, "list");
+        if (wrapper == null || wrapper.tickets == null) return Collections.emptyList();
+        ticketCache.putAll(wrapper.tickets);
+        return wrapper.tickets;
+    }
+
+    /**
+     * Streams the {@code list} response: tickets are read one by one from the received bytes and
+     * handed out per batch, without decoding the response into a String or all tickets into one list.
+     */
+    @Override
+    public void streamAllTickets(TicketSort sort, int batchSize, Consumer<List<Ticket>> batches) throws TicketException {
+        Reader json = sendForReader("list", new ListPayload(sort));
+        if (json == null) return;
+        TypeAdapter<Ticket> tickets = gson.getAdapter(Ticket.class);
+        // every field but the tickets, to be checked for an error once read
+        JsonObject envelope = new JsonObject();
+        try {
+            JsonReader reader = new JsonReader(json);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (!"tickets".equals(name) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    envelope.add(name, JsonParser.parseReader(reader));
+                    continue;
+                }
+                reader.beginArray();
+                List<Ticket> batch = new ArrayList<>(batchSize);
+                while (reader.hasNext()) {
+                    batch.add(tickets.read(reader));
+                    if (batch.size() == batchSize) {
+                        deliver(batch, batches);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                reader.endArray();
+                if (!batch.isEmpty()) deliver(batch, batches);
+            }
+            reader.endObject();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            finishTrace("parse");
+            throw new TicketException("Malformed response for list request", e);
+        }
+        finishTrace("parse");
+        checkResponse(gson.fromJson(envelope, ResponseWrapper.class));
+    }
+
+    private void deliver(List<Ticket> batch, Consumer<List<Ticket>> batches) throws TicketException {
+        ticketCache.putAll(batch);
+        batches.accept(batch);
+        if (Thread.currentThread().isInterrupted()) {
+            finishTrace("cancelled");
+            throw new TicketException("Listing tickets interrupted", new InterruptedException());
+        }
+    }
+
+    @Override
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) throws TicketException {
+        String resp = send("page", new PagePayload(offset, limit, sort));
+        if (resp == null || resp.isEmpty()) throw new TicketException("No response to page request");
+        ResponseWrapper wrapper = parseResponse(resp, "page");
+        if (wrapper == null || wrapper.tickets == null) return new TicketPage(offset, 0, Collections.emptyList());
+        ticketCache.putAll(wrapper.tickets);
+        return new TicketPage(offset, wrapper.total == null ? wrapper.tickets.size() : wrapper.total, wrapper.tickets);
+    }
+
+    @Override
+    public List<Ticket> searchTickets(String query, Type type, int limit) throws TicketException {
+        return searchTickets(query, type, TicketSort.BY_ID, limit);
+    }
+
+    @Override
+    public List<Ticket> searchTickets(String query, Type type, TicketSort sort, int limit) throws TicketException {
+        long seq = SEARCH_SEQ.incrementAndGet();
+        String resp;
+        try {
+            resp = send("search", new SearchPayload(query, type, sort, limit, seq));
+        } catch (TicketException e) {
+            if (Thread.currentThread().isInterrupted() || isInterruption(e)) cancelSearch(seq);
+            throw e;
+        }
+        if (resp == null || resp.isEmpty()) throw new TicketException("No response to search request");
+        ResponseWrapper wrapper = parseResponse(resp, "search");
+        if (wrapper == null || wrapper.tickets == null) return Collections.emptyList();
+        ticketCache.putAll(wrapper.tickets);
+        return wrapper.tickets;
+    }
+
+    @Override
+    public List<Ticket> getTicketsByName(String name) throws TicketException {
+        return searchTickets(name, null, DEFAULT_SEARCH_LIMIT);
+    }
+
+    @Override
+    public List<Ticket> getTicketsByNameAndType(String name, Type type) throws TicketException {
+        return searchTickets(name, type, DEFAULT_SEARCH_LIMIT);
+    }
+
+    // from a fresh thread, the interrupted one would abort the send right away; best effort,
+    // the server also stops it when the next search of this client arrives
+    private void cancelSearch(long seq) {
+        Thread.ofVirtual().name("cancel-search-" + seq).start(() -> {
+            try {
+                send("cancelSearch", seq);
+            } catch (TicketException e) {
+                // nothing to do, the search ends on its own
+            }
+        });
+    }
+
+    private static boolean isInterruption(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException
+                    || t instanceof ClosedByInterruptException) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Ticket getTicketById(int id) throws TicketException {
+        Ticket cached = ticketCache.get(id);
+        if (cached != null) return cached;
+        Optional<Ticket> ticket = getReads.execute(new GetKey(id, writeEpoch.get()), () -> fetchTicketById(id));
+        return ticket.map(Ticket::clone).orElse(null);
+    }
+
+    private Optional<Ticket> fetchTicketById(int id) throws TicketException {
+        String resp = send("get", id);
+        if (resp == null || resp.isEmpty()) return Optional.empty();
+        ResponseWrapper wrapper = parseResponse(resp, "get");
+        return Optional.ofNullable(wrapper == null ? null : cached(wrapper.ticket));
+    }
+
+    @Override
+    public Ticket acceptTicket(int id) throws TicketException {
+        return changeTicketStatus(id, "accept");
+    }
+
+    @Override
+    public Ticket rejectTicket(int id) throws TicketException {
+        return changeTicketStatus(id, "reject");
+    }
+
+    @Override
+    public Ticket closeTicket(int id) throws TicketException {
+        return changeTicketStatus(id, "close");
+    }
+
+    private Ticket cached(Ticket ticket) {
+        ticketCache.put(ticket);
+        return ticket;
+    }
+
+    /**
+     * Mark that a change request sent by this backend has completed, failed or not: reads issued
+     * from now on must not share a request sent before.
+     */
+    protected void writeCompleted() {
+        writeEpoch.incrementAndGet();
+    }
+
+    /**
+     * Encode a request without tracing or compression statistics, for transports that send
+     * several requests at once instead of going through {@link #exchange(byte[])}.
+     */
+    protected byte[] encodeRequest(String requestType, Object payload) {
+        byte[] raw = gson.toJson(new RequestWrapper(requestType, payload, clientId)).getBytes(StandardCharsets.UTF_8);
+        return PayloadCodec.encode(raw, serverAcceptsCompression);
+    }
+
+    /** Decode and unwrap a response to a request encoded by {@link #encodeRequest(String, Object)}. */
+    protected ResponseWrapper decodeResponse(byte[] response, String action) throws TicketException {
+        try {
+            return parseResponse(PayloadCodec.decode(response, 0, response.length), action);
+        } catch (IllegalArgumentException e) {
+            throw new TicketException("Malformed response for " + action + " request", e);
+        }
+    }
+
+    /** The request payload for a new ticket, with missing reporter and topic defaulted. */
+    protected static Ticket newTicketPayload(String reporter, String topic, String description, Type type,
+            Priority priority) {
+        return new Ticket(0, reporter == null ? "unknown" : reporter, topic == null ? "" : topic, description, type,
+                priority);
+    }
+
+    private Ticket changeTicketStatus(int id, String action) throws TicketException {
+        String resp;
+        try {
+            resp = send(action, id);
+        } finally {
+            writeCompleted();
+        }
+        if (resp == null || resp.isEmpty()) return null;
+        ResponseWrapper wrapper;
+        try {
+            wrapper = parseResponse(resp, action);
+        } catch (ServerBusyException e) {
+            throw e;
+        } catch (TicketException e) {
+            // the ticket is unknown or in another status than this client believed
+            ticketCache.invalidate(id);
+            throw e;
+        }
+        return wrapper == null ? null : cached(wrapper.ticket);
+    }
+
+    /**
+     * Send a request and return the decoded JSON response (null if there was none).
+     * Compression is always offered for the response and used for the request once the server
+     * has shown it understands it.
+     */
+    protected String send(String requestType, Object payload) throws TicketException {
+        Exchange exchange = exchangeTraced(requestType, payload);
+        if (exchange == null) return null;
+        byte[] response = exchange.response;
+        long codecStart = System.nanoTime();
+        String json;
+        try {
+            json = PayloadCodec.decode(response, 0, response.length);
+        } catch (IllegalArgumentException e) {
+            finishTrace("failed");
+            throw new TicketException("Malformed response for " + requestType + " request", e);
+        }
+        exchange.decoded(PayloadCodec.decodedLength(response, 0, response.length), System.nanoTime() - codecStart);
+        return json;
+    }
+
+    /**
+     * Send a request like {@link #send(String, Object)} and return a reader over the JSON response
+     * that decodes it from the received bytes as it is read (null if there was none or it was empty).
+     */
+    private Reader sendForReader(String requestType, Object payload) throws TicketException {
+        Exchange exchange = exchangeTraced(requestType, payload);
+        if (exchange == null || exchange.response.length == 0) return null;
+        byte[] response = exchange.response;
+        long codecStart = System.nanoTime();
+        Reader json;
+        try {
+            json = PayloadCodec.reader(response, 0, response.length);
+        } catch (IllegalArgumentException e) {
+            finishTrace("failed");
+            throw new TicketException("Malformed response for " + requestType + " request", e);
+        }
+        exchange.decoded(PayloadCodec.decodedLength(response, 0, response.length), System.nanoTime() - codecStart);
+        return json;
+    }
+
+    // encode, send and receive, with the trace stages up to receive; null if there was no response
+    private Exchange exchangeTraced(String requestType, Object payload) throws TicketException {
+        Trace trace = null;
+        Trace.detach();
+        if (TraceRecorder.sample()) {
+            trace = new Trace(Trace.newId(), Trace.CLIENT, System.nanoTime());
+            trace.setRequestType(requestType);
+            trace.attach();
+        }
+        RequestWrapper wrapper = new RequestWrapper(requestType, payload, clientId);
+        if (trace != null) wrapper.traceId = trace.getId();
+        byte[] raw = gson.toJson(wrapper).getBytes(StandardCharsets.UTF_8);
+        long codecStart = System.nanoTime();
+        byte[] request = PayloadCodec.encode(raw, serverAcceptsCompression);
+        long codecNanos = System.nanoTime() - codecStart;
+        if (trace != null) trace.mark("serialize");
+        byte[] response;
+        try {
+            response = exchange(requestType, request);
+        } catch (Exception e) {
+            finishTrace("failed");
+            throw new TicketException("Failed to send " + requestType + " request", e);
+        }
+        if (response == null) {
+            finishTrace("timeout");
+            return null;
+        }
+        if (trace != null) trace.mark("receive");
+        return new Exchange(requestType, raw.length, request.length, codecNanos, response);
+    }
+
+    /** A request sent and its response received, until the response is decoded. */
+    private final class Exchange {
+        final String requestType;
+        final int rawRequestLength;
+        final int requestLength;
+        final long codecNanos;
+        final byte[] response;
+
+        Exchange(String requestType, int rawRequestLength, int requestLength, long codecNanos, byte[] response) {
+            this.requestType = requestType;
+            this.rawRequestLength = rawRequestLength;
+            this.requestLength = requestLength;
+            this.codecNanos = codecNanos;
+            this.response = response;
+        }
+
+        void decoded(int rawResponseLength, long decodeNanos) {
+            Trace trace = Trace.current();
+            if (trace != null) trace.mark("decode");
+            compressionStats.record(requestType, rawRequestLength, requestLength, rawResponseLength, response.length,
+                    codecNanos + decodeNanos);
+        }
+    }
+
+    protected ResponseWrapper parseResponse(String resp, String action) throws TicketException {
+        ResponseWrapper wrapper;
+        try {
+            wrapper = gson.fromJson(resp, ResponseWrapper.class);
+        } catch (JsonSyntaxException jse) {
+            throw new TicketException("Malformed response for " + action + " request", jse);
+        } finally {
+            finishTrace("parse");
+        }
+        checkResponse(wrapper);
+        return wrapper;
+    }
+
+    // remembers whether the server accepts compression and raises the error the server answered with
+    private void checkResponse(ResponseWrapper wrapper) throws TicketException {
+        if (wrapper != null && PayloadCodec.DEFLATE.equals(wrapper.acceptEncoding)) {
+            serverAcceptsCompression = true;
+        }
+        if (wrapper != null && ERROR_BUSY.equals(wrapper.errorCode)) {
+            throw new ServerBusyException(wrapper.error, wrapper.retryAfterMs == null ? 0 : wrapper.retryAfterMs);
+        }
+        if (wrapper != null && wrapper.error != null) {
+            throw new TicketException(wrapper.error);
+        }
+    }
+
+    /** End the trace of the request in flight on this thread, if it is sampled, with a last stage. */
+    private static void finishTrace(String stage) {
+        Trace trace = Trace.current();
+        if (trace == null) return;
+        trace.mark(stage);
+        Trace.detach();
+        TraceRecorder.record(trace);
+    }
+
+    /** Single flight key of a {@code get}: the ticket id and the write epoch. */
+    private record GetKey(int id, long writeEpoch) {
+    }
+
+    /** Payload of a {@code list} request. */
+    private record ListPayload(TicketSort sort) {
+    }
+
+    /** Payload of a {@code page} request. */
+    private record PagePayload(int offset, int limit, TicketSort sort) {
+    }
+
+    /** Payload of a {@code search} request. */
+    private record SearchPayload(String query, Type type, TicketSort sort, int limit, long seq) {
+    }
+
+    // simple request/response wrappers used by client/server protocol (JSON)
+    protected static class RequestWrapper {
+        String requestType;
+        Object payload;
+        String acceptEncoding = PayloadCodec.DEFLATE;
+        String clientId;
+        String traceId;
+
+        RequestWrapper(String requestType, Object payload, String clientId) {
+            this.requestType = requestType;
+            this.payload = payload;
+            this.clientId = clientId;
+        }
+    }
+
+    protected static class ResponseWrapper {
+        Ticket ticket;
+        List<Ticket> tickets;
+        Integer total;
+        String error;
+        String errorCode;
+        String acceptEncoding;
+        Long retryAfterMs;
+    }
+}
@@ -0,0 +1,83 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * Round trip time estimate of one server, in the style of TCP (RFC 6298).
+ *
+ * - {@code SRTT} and {@code RTTVAR} are smoothed with gains 1/8 and 1/4; the retransmission
+ *   timeout is {@code SRTT + 4 * RTTVAR}, clamped to [{@code minRto}, {@code maxRto}].
+ * - Until the first sample the timeout is {@code initialRto}.
+ * - {@link #backOff()} doubles the timeout after a retransmission; it stays doubled until the next
+ *   sample, so a server that stopped answering is not flooded.
+ * - The hedge delay is a high percentile of the last {@value #WINDOW} samples, recomputed every
+ *   {@value #RECOMPUTE_EVERY} samples.
+ */
+public class RttEstimator {
+
+    private static final int WINDOW = 256;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final long minRtoNanos;
+    private final long maxRtoNanos;
+    private final double hedgePercentile;
+    private final long[] window = new long[WINDOW];
+    // guarded by this
+    private long srtt;
+    private long rttvar;
+    private long rto;
+    private long samples;
+    private long hedgeDelay;
+
+    public RttEstimator(long initialRtoMs, long minRtoMs, long maxRtoMs, double hedgePercentile) {
+        this.minRtoNanos = minRtoMs * 1_000_000L;
+        this.maxRtoNanos = Math.max(maxRtoMs * 1_000_000L, minRtoNanos);
+        this.hedgePercentile = hedgePercentile;
+        this.rto = clamp(initialRtoMs * 1_000_000L);
+        this.hedgeDelay = rto;
+    }
+
+    /** Record the round trip of a request answered on the transmission it was timed from. */
+    public synchronized void sample(long rttNanos) {
+        if (samples == 0) {
+            srtt = rttNanos;
+            rttvar = rttNanos / 2;
+        } else {
+            rttvar += (Math.abs(srtt - rttNanos) - rttvar) / 4;
+            srtt += (rttNanos - srtt) / 8;
+        }
+        rto = clamp(srtt + 4 * rttvar);
+        window[(int) (samples % WINDOW)] = rttNanos;
+        samples++;
+        if (samples <= RECOMPUTE_EVERY || samples % RECOMPUTE_EVERY == 0) {
+            long[] sorted = Arrays.copyOf(window, (int) Math.min(samples, WINDOW));
+            Arrays.sort(sorted);
+            hedgeDelay = sorted[(int) Math.min(sorted.length - 1, Math.ceil(hedgePercentile / 100 * sorted.length) - 1)];
+        }
+    }
+
+    /** Double the timeout after a retransmission, up to {@code maxRto}. */
+    public synchronized void backOff() {
+        rto = clamp(rto * 2);
+    }
+
+    public synchronized long getRtoNanos() {
+        return rto;
+    }
+
+    public synchronized long getSmoothedRttNanos() {
+        return srtt;
+    }
+
+    public synchronized long getHedgeDelayNanos() {
+        return hedgeDelay;
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    private long clamp(long nanos) {
+        return Math.max(minRtoNanos, Math.min(maxRtoNanos, nanos));
+    }
+}
@@ -0,0 +1,79 @@
+package app;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import entities.TicketException;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in flight, further callers with
+ * the same key wait for it and share its result or exception instead of making their own.
+ *
+ * - Only calls that overlap in time are collapsed, nothing is cached after a call returned.
+ * - Meant for reads; the key must cover everything the result depends on.
+ */
+public class SingleFlight<K, V> {
+
+    /** A call that may fail like a backend request. */
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws TicketException;
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Run {@code call} for {@code key}, or wait for the call already running for it.
+     *
+     * @throws TicketException the exception of the shared call, or if interrupted while waiting
+     */
+    public V execute(K key, Call<V> call) throws TicketException {
+        calls.increment();
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            collapsed.increment();
+            return await(running);
+        }
+        try {
+            V result = call.call();
+            mine.complete(result);
+            return result;
+        } catch (Throwable t) {
+            // also Errors, otherwise callers that joined would wait forever
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) throws TicketException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TicketException("Interrupted while waiting for a shared request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TicketException te) throw te;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new TicketException("Shared request failed", e.getCause());
+        }
+    }
+
+    /** Calls passed to {@link #execute(Object, Call)}. */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /** Calls that joined a call in flight instead of running their own. */
+    public long getCollapsed() {
+        return collapsed.sum();
+    }
+}
@@ -0,0 +1,121 @@
+package app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import logging.AsyncLogger;
+import protocol.Framing;
+
+/**
+ * TCP-backed implementation of TicketManagementBackend using length-prefixed frames.
+ *
+ * - One connection is shared by all callers; requests from several threads are pipelined and the
+ *   server answers them in order, so a reader thread completes the oldest pending request per frame.
+ * - Responses are not limited in size, so large ticket lists arrive in one piece.
+ * - Default host/port come from system properties `ticket.server.host` / `ticket.server.tcpPort`
+ *   or fall back to localhost:1160. A broken connection is re-established on the next request.
+ */
+public class TcpTicketManagementBackend extends RemoteTicketManagementBackend {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(TcpTicketManagementBackend.class);
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long RESPONSE_TIMEOUT_MS = 30_000;
+
+    private final String host;
+    private final int port;
+    private final Object writeLock = new Object();
+    // guarded by writeLock: requests sent on the current connection and not yet answered
+    private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private Socket socket;
+    private DataOutputStream out;
+
+    public TcpTicketManagementBackend() {
+        this(System.getProperty("ticket.server.host", "127.0.0.1"), Integer.getInteger("ticket.server.tcpPort", 1160));
+    }
+
+    public TcpTicketManagementBackend(String host, int port) {
+        this.host = host;
+        this.port = port;
+        try {
+            synchronized (writeLock) {
+                connect();
+            }
+        } catch (IOException e) {
+            // Don't throw from ctor; callers will see errors when calling methods.
+            LOG.warn("failed to establish TCP connection: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    protected byte[] exchange(byte[] request) throws Exception {
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        synchronized (writeLock) {
+            if (socket == null || socket.isClosed()) connect();
+            pending.add(response);
+            try {
+                out.writeInt(request.length);
+                out.write(request);
+                out.flush();
+            } catch (IOException e) {
+                disconnect(socket, e);
+                throw e;
+            }
+        }
+        return response.get(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void triggerShutdown() {
+        synchronized (writeLock) {
+            if (socket != null) disconnect(socket, new IOException("Backend shut down"));
+        }
+    }
+
+    // must hold writeLock
+    private void connect() throws IOException {
+        Socket s = new Socket();
+        s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        s.setTcpNoDelay(true);
+        socket = s;
+        out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+        Thread.ofPlatform().daemon().name("tcp-reader-" + host + ":" + port).start(() -> readResponses(s, in));
+        LOG.info("connected to {}:{}", host, port);
+    }
+
+    private void readResponses(Socket s, DataInputStream in) {
+        try {
+            while (true) {
+                byte[] response = Framing.readFrame(in);
+                CompletableFuture<byte[]> next;
+                synchronized (writeLock) {
+                    next = pending.poll();
+                }
+                if (next != null) next.complete(response);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            synchronized (writeLock) {
+                if (s == socket) disconnect(s, e instanceof IOException ? (IOException) e : new IOException(e));
+            }
+        }
+    }
+
+    // must hold writeLock; fails all requests still waiting on this connection
+    private void disconnect(Socket s, IOException cause) {
+        try {
+            s.close();
+        } catch (IOException ignored) {
+        }
+        CompletableFuture<byte[]> f;
+        while ((f = pending.poll()) != null) f.completeExceptionally(cause);
+    }
+}
@@ -0,0 +1,121 @@
+package app;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import entities.Ticket;
+
+/**
+ * Bounded client side cache of tickets by id, so a ticket that arrived with a list or mutation
+ * response moments ago can be shown without another round trip.
+ *
+ * - Least recently used entries are evicted beyond the capacity ({@code ticket.client.cacheSize},
+ *   default 10000; 0 disables the cache).
+ * - A copy is only replaced by one with an equal or higher {@link Ticket#getVersion() version}, so
+ *   a late response cannot roll a ticket back to an older status.
+ * - Entries older than {@code ticket.client.cacheTtlMs} (default 10000) are misses: changes made by
+ *   other clients are only seen through responses, or change events where the transport has them.
+ * - Tickets are copied on the way in and out; callers may modify what they get.
+ */
+public class TicketCache {
+
+    static final int DEFAULT_CAPACITY = 10_000;
+    static final long DEFAULT_TTL_MS = 10_000;
+
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // guarded by this
+    private int capacity;
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    private record Entry(Ticket ticket, long storedNanos) {
+    }
+
+    /** Configure from system properties {@code ticket.client.cacheSize} and {@code ticket.client.cacheTtlMs}. */
+    public TicketCache() {
+        this(Integer.getInteger("ticket.client.cacheSize", DEFAULT_CAPACITY),
+                Long.getLong("ticket.client.cacheTtlMs", DEFAULT_TTL_MS));
+    }
+
+    public TicketCache(int capacity, long ttlMs) {
+        this.capacity = Math.max(0, capacity);
+        this.ttlNanos = ttlMs * 1_000_000L;
+    }
+
+    /** @return a copy of the cached ticket, or null if it is not cached or expired */
+    public Ticket get(int id) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(id);
+            if (entry != null && System.nanoTime() - entry.storedNanos() > ttlNanos) {
+                entries.remove(id);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.ticket().clone();
+    }
+
+    /** Cache a ticket received from the server unless a newer version is cached already. */
+    public void put(Ticket ticket) {
+        if (ticket == null || ticket.getId() <= 0) return;
+        Ticket copy = ticket.clone();
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (capacity == 0) return;
+            Entry cached = entries.get(copy.getId());
+            if (cached == null || cached.ticket().getVersion() <= copy.getVersion()) {
+                entries.put(copy.getId(), new Entry(copy, now));
+            }
+        }
+    }
+
+    public void putAll(Collection<Ticket> tickets) {
+        if (tickets == null) return;
+        for (Ticket t : tickets) put(t);
+    }
+
+    /** Forget a ticket, e.g. after the server rejected a change the cached copy would have allowed. */
+    public synchronized void invalidate(int id) {
+        entries.remove(id);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /** Change the capacity; 0 disables the cache, e.g. for load tests that must reach the server. */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        Iterator<Integer> it = entries.keySet().iterator();
+        while (entries.size() > this.capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -1,10 +1,14 @@
 package app;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import entities.Priority;
 import entities.Ticket;
 import entities.TicketException;
+import entities.TicketPage;
+import entities.TicketSort;
 import entities.Type;
 
 /**
@@ -45,6 +49,54 @@ public interface TicketManagementBackend extends Shutdown, TicketSearchBackend {
      */
     List<Ticket> getAllTickets() throws TicketException;
 
+    /**
+     * Hand all tickets in {@code sort} order to {@code batches}, at most {@code batchSize} at a time,
+     * so a caller can show the first ones before the last arrived and never needs all of them in
+     * one list. The default implementation splits {@link #getAllTickets()}; remote backends decode
+     * the response ticket by ticket instead.
+     *
+     * Interrupting the calling thread stops the listing after the current batch.
+     *
+     * @param sort      order of the tickets
+     * @param batchSize maximum number of tickets per batch, at least 1
+     * @param batches   called on the calling thread with each batch, which it may keep
+     * @throws TicketException if a technical problem occurs, or the thread was interrupted
+     */
+    default void streamAllTickets(TicketSort sort, int batchSize, Consumer<List<Ticket>> batches)
+            throws TicketException {
+        List<Ticket> all = new ArrayList<>(getAllTickets());
+        all.sort(sort.comparator());
+        for (int i = 0; i < all.size(); i += batchSize) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new TicketException("Listing tickets interrupted", new InterruptedException());
+            }
+            batches.accept(new ArrayList<>(all.subList(i, Math.min(all.size(), i + batchSize))));
+        }
+    }
+
+    /**
+     * Return the tickets at positions {@code offset .. offset + limit} in id order, see
+     * {@link #getTicketPage(int, int, TicketSort)}.
+     */
+    default TicketPage getTicketPage(int offset, int limit) throws TicketException {
+        return getTicketPage(offset, limit, TicketSort.BY_ID);
+    }
+
+    /**
+     * Return the tickets at positions {@code offset .. offset + limit} in {@code sort} order, so
+     * a view of a huge ticket set can load what it shows. The default implementation selects them
+     * from {@link #getAllTickets()}; backends that can ask for a page only should override it.
+     *
+     * @param offset position of the first ticket, 0 based
+     * @param limit  maximum number of tickets to return; servers may return fewer
+     * @param sort   order of the tickets
+     * @return the page and the total number of tickets (never null)
+     * @throws TicketException if a technical problem occurs
+     */
+    default TicketPage getTicketPage(int offset, int limit, TicketSort sort) throws TicketException {
+        return TicketPage.of(getAllTickets(), sort, offset, limit);
+    }
+
     /**
      * Return a single ticket by id.
      *
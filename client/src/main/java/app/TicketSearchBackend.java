@@ -6,6 +6,7 @@ import java.util.Objects;
 
 import entities.Ticket;
 import entities.TicketException;
+import entities.TicketSort;
 import entities.Type;
 
 /**
@@ -17,6 +18,35 @@ import entities.Type;
  */
 public interface TicketSearchBackend {
 
+    /** Number of results the GUI asks for while the user types. */
+    int DEFAULT_SEARCH_LIMIT = 200;
+
+    /**
+     * Search for tickets as the user types: every word of {@code query} must start a word of the
+     * ticket's topic or reporter ({@link entities.TicketQuery}). Default implementation uses
+     * {@link #getTicketsByNameAndType} and keeps the first {@code limit} tickets.
+     *
+     * Callers may interrupt the calling thread to abandon a search that was superseded.
+     *
+     * @param query text to search (may be null or blank)
+     * @param type  ticket type filter (may be null)
+     * @param limit maximum number of tickets to return
+     * @return the first matching tickets in id order (never null)
+     * @throws TicketException if something failed during search
+     */
+    default List<Ticket> searchTickets(String query, Type type, int limit) throws TicketException {
+        List<Ticket> found = type == null ? getTicketsByName(query) : getTicketsByNameAndType(query, type);
+        return found.size() <= limit ? found : found.subList(0, limit);
+    }
+
+    /**
+     * Like {@link #searchTickets(String, Type, int)}, but the first {@code limit} matches in
+     * {@code sort} order. Default implementation sorts all matches.
+     */
+    default List<Ticket> searchTickets(String query, Type type, TicketSort sort, int limit) throws TicketException {
+        return sort.first(searchTickets(query, type, Integer.MAX_VALUE), limit);
+    }
+
     /**
      * Search for tickets by name/text.
      *
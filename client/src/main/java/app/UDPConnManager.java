@@ -1,68 +1,197 @@
 package app;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
+import java.io.InterruptedIOException;
 import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.DatagramChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import logging.AsyncLogger;
+import protocol.ChunkAssembler;
+import protocol.DatagramChunk;
+import protocol.DatagramHeader;
+import tracing.Trace;
 
 /**
- * Lightweight, robust UDP connection helper.
+ * UDP connection to one server with request ids, adaptive retransmission and optional hedging.
  *
- * - create connection with makeConnection()
- * - sendData(payload, expectResponse) sends payload (splits into safe UDP sized chunks) and optionally waits for a single response
- * - sendData(payload) convenience overload (delegates to sendData(payload, true))
- * - close()/shutdown()/endConnection() close the socket
- *
- * This class is intentionally conservative: it uses a connected DatagramSocket and synchronous send/receive.
+ * - create connection with makeConnection(), close it with close()/shutdown()/endConnection()
+ * - {@link #request(byte[], boolean)} sends one request with a {@link DatagramHeader} and waits for
+ *   its response. Any number of threads may have requests in flight: a receiver thread matches
+ *   responses by request id and drops late ones of requests already given up on.
+ * - Idempotent requests are retransmitted when the retransmission timeout of the server's
+ *   {@link RttEstimator} expires, doubling the timeout each time. Other requests are sent once.
+ * - With {@code ticket.client.hedge=true} an idempotent request is sent a second time once it is
+ *   older than the {@code ticket.client.hedgePercentile} (default 95) of recent round trips,
+ *   usually long before a loss is suspected; the first response wins.
+ * - A request without response within {@code ticket.client.timeoutMs} (default 5000) fails with
+ *   SocketTimeoutException. Timeout bounds come from {@code ticket.client.initialRtoMs} (250),
+ *   {@code ticket.client.minRtoMs} (20) and {@code ticket.client.maxRtoMs} (2000).
+ * - Messages larger than one {@code ticket.udp.chunkSize} datagram travel as {@link DatagramChunk}s.
+ *   Requests are written as gather writes of a small header and a slice of the encoded payload,
+ *   without copying it per chunk. When a response is partly received at the retransmission
+ *   timeout, only its missing chunks are asked for again instead of retransmitting the request.
+ * - Chunked requests are sent reliably by a {@link ChunkUpload}: the server acknowledges the
+ *   chunks it holds, lost ones are sent again, and a {@link CongestionWindow} shared by all
+ *   uploads to the server ({@code ticket.client.initialWindow} 10 and
+ *   {@code ticket.client.maxWindow} 256 chunks) limits how many are in flight. The request
+ *   timers start once all chunks are acknowledged.
+ * - Interrupting a requesting thread (e.g. to cancel a superseded UI call) fails only its own
+ *   request: interrupted threads do not write, and a channel closed by an interrupt arriving
+ *   during a write is reopened on the same local port.
  */
-public class UDPConnManager implements Runnable {
+public class UDPConnManager {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(UDPConnManager.class);
 
-    private static final int DEFAULT_TIMEOUT_MS = 5000;
-    private static final int MAX_UDP_PAYLOAD = 60_000; // safe threshold under MTU
+    // how long to wait for a response, system property ticket.client.timeoutMs
+    private static final int DEFAULT_TIMEOUT_MS = Integer.getInteger("ticket.client.timeoutMs", 5000);
+    private static final long INITIAL_RTO_MS = Long.getLong("ticket.client.initialRtoMs", 250);
+    private static final long MIN_RTO_MS = Long.getLong("ticket.client.minRtoMs", 20);
+    private static final long MAX_RTO_MS = Long.getLong("ticket.client.maxRtoMs", 2000);
+    private static final boolean HEDGE = Boolean.getBoolean("ticket.client.hedge");
+    private static final double HEDGE_PERCENTILE = Double.parseDouble(System.getProperty("ticket.client.hedgePercentile", "95"));
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int MAX_TRANSMISSIONS = 32;
+    private static final int RECEIVE_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_ASSEMBLING = 1024;
+    // requests for missing chunks that brought none before the request is retransmitted instead
+    private static final int MAX_STALLED_RESENDS = 2;
+    private static final int INITIAL_WINDOW = Integer.getInteger("ticket.client.initialWindow", 10);
+    private static final int MAX_WINDOW = Integer.getInteger("ticket.client.maxWindow", 256);
+    // floor of the chunk ack timeout as in TCP; fast and early retransmit repair most losses sooner
+    private static final long MIN_ACK_RTO_MS = 200;
 
     private final String ip;
     private final int port;
+    private final long timeoutNanos;
+    private final int chunkSize = DatagramChunk.chunkSize();
+    private final ChunkAssembler<ChunkKey> assembler = new ChunkAssembler<>(DEFAULT_TIMEOUT_MS, MAX_ASSEMBLING);
+    // round trips of chunk acks, which unlike request round trips include no server processing
+    private final RttEstimator ackRtt = new RttEstimator(INITIAL_RTO_MS, Math.max(MIN_RTO_MS, MIN_ACK_RTO_MS),
+            MAX_RTO_MS, HEDGE_PERCENTILE);
+    private final CongestionWindow window = new CongestionWindow(INITIAL_WINDOW, MAX_WINDOW);
+    private final RttEstimator rtt = new RttEstimator(INITIAL_RTO_MS, MIN_RTO_MS, MAX_RTO_MS, HEDGE_PERCENTILE);
+    private final ConcurrentMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private final LongAdder retransmits = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder lateResponses = new LongAdder();
+    private final LongAdder chunkResends = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder chunkRetransmits = new LongAdder();
 
-    private DatagramSocket socket;
+    private volatile DatagramChannel channel;
     private InetAddress remoteAddress;
+    private InetSocketAddress localAddress;
     private final AtomicBoolean connected = new AtomicBoolean(false);
 
+    /** A request waiting for its response; {@code answeredAttempt} is set before completion. */
+    private static final class Pending {
+        final CompletableFuture<byte[]> response = new CompletableFuture<>();
+        volatile int answeredAttempt;
+        // attempt whose chunked response is being assembled, or -1
+        volatile int chunkedAttempt = -1;
+        // upload of a chunked request in progress, receives the server's acks
+        volatile ChunkUpload upload;
+        // asking for missing chunks, only touched by the requesting thread; no sample after asking
+        boolean resendRequested;
+        int resendAttempt = -1;
+        int receivedAtResend;
+        int stalledResends;
+    }
+
+    private record ChunkKey(long requestId, int attempt) {
+    }
+
     public UDPConnManager(String ip, int port) {
         this.ip = ip;
         this.port = port;
+        this.timeoutNanos = DEFAULT_TIMEOUT_MS * 1_000_000L;
     }
 
     public synchronized void makeConnection() throws SocketException, UnknownHostException {
         if (connected.get()) return;
 
-        DatagramSocket s = new DatagramSocket(null);
-        s.setSoTimeout(DEFAULT_TIMEOUT_MS);
         remoteAddress = Inet4Address.getByName(this.ip);
-        s.connect(remoteAddress, this.port);
-        this.socket = s;
+        DatagramChannel c = open(null);
+        this.channel = c;
         connected.set(true);
-        System.out.println("UDPConnManager: connected to " + this.ip + ":" + this.port);
+        LOG.debug("connected to {}:{}", this.ip, this.port);
+    }
+
+    // open a channel connected to the server and start its receiver thread
+    private DatagramChannel open(InetSocketAddress local) throws SocketException {
+        DatagramChannel c;
+        try {
+            c = DatagramChannel.open();
+            c.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_BYTES);
+            if (local != null) c.bind(local);
+            c.connect(new InetSocketAddress(remoteAddress, this.port));
+            localAddress = (InetSocketAddress) c.getLocalAddress();
+        } catch (SocketException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new SocketException("Cannot open UDP channel: " + e.getMessage());
+        }
+        Thread.ofPlatform().daemon().name("udp-receiver-" + ip + ":" + port).start(() -> receive(c));
+        return c;
+    }
+
+    /**
+     * Replace a channel that a thread interrupted while writing closed (DatagramChannel is an
+     * InterruptibleChannel), on the same local port if possible so responses still arrive.
+     */
+    private synchronized void reopen(DatagramChannel closed) {
+        if (channel != closed || !connected.get()) return;
+        try {
+            channel = open(localAddress);
+        } catch (SocketException e) {
+            try {
+                channel = open(null);
+            } catch (SocketException again) {
+                LOG.warn("cannot reopen UDP channel: {}", again.getMessage());
+                return;
+            }
+        }
+        LOG.debug("reopened UDP channel closed by an interrupt");
     }
 
     /**
      * Close the connection / socket.
      */
     public synchronized void endConnection() {
-        if (socket != null && !socket.isClosed()) {
+        if (channel != null && channel.isOpen()) {
             try {
-                socket.close();
+                channel.close();
             } catch (Exception ignored) {
             }
         }
         connected.set(false);
-        socket = null;
-        System.out.println("UDPConnManager: connection closed");
+        channel = null;
+        for (Pending p : pending.values()) p.response.completeExceptionally(new SocketException("Connection closed"));
+        LOG.debug("connection closed");
     }
 
     // provide common aliases expected by other code/reflection
@@ -76,70 +205,315 @@ public class UDPConnManager implements Runnable {
 
     /**
      * Send data. If expectResponse==true this method will wait for a single UDP response and return it (may be null).
-     * If expectResponse==false method returns immediately after sending all chunks and returns "Sent!".
+     * If expectResponse==false method returns immediately after sending and returns "Sent!".
      */
     public String sendData(String data, boolean expectResponse) throws IOException {
         if (data == null) data = "";
-        if (!isConnected()) throw new IllegalStateException("Not connected. Call makeConnection() first.");
-
-        byte[] payloadBytes = data.getBytes(StandardCharsets.UTF_8);
-        int totalLen = payloadBytes.length;
-        int chunks = (totalLen + MAX_UDP_PAYLOAD - 1) / MAX_UDP_PAYLOAD;
-        if (chunks <= 0) chunks = 1;
-
-        for (int i = 0; i < chunks; i++) {
-            int offset = i * MAX_UDP_PAYLOAD;
-            int len = Math.min(MAX_UDP_PAYLOAD, totalLen - offset);
-            byte[] piece = new byte[len];
-            System.arraycopy(payloadBytes, offset, piece, 0, len);
-            DatagramPacket packet = new DatagramPacket(piece, piece.length);
-            socket.send(packet);
-        }
-
+        byte[] response = sendBytes(data.getBytes(StandardCharsets.UTF_8), expectResponse);
         if (!expectResponse) return "Sent!";
+        return response == null ? null : new String(response, StandardCharsets.UTF_8);
+    }
 
-        // wait for single response
-        byte[] recvBuf = new byte[65507];
-        DatagramPacket recvPacket = new DatagramPacket(recvBuf, recvBuf.length);
-        try {
-            socket.receive(recvPacket);
-            return new String(recvPacket.getData(), recvPacket.getOffset(), recvPacket.getLength(), StandardCharsets.UTF_8);
-        } catch (SocketException se) {
-            if (!isConnected()) {
-                return null;
+    /**
+     * Byte level variant of {@link #sendData(String, boolean)} for already encoded payloads, sent
+     * once without retransmission. Returns the response, or null if none arrived in time or no
+     * response was expected.
+     */
+    public byte[] sendBytes(byte[] payloadBytes, boolean expectResponse) throws IOException {
+        if (!expectResponse) {
+            long requestId = nextRequestId.incrementAndGet();
+            Pending p = new Pending();
+            pending.put(requestId, p);
+            try {
+                new Transmission(requestId, payloadBytes).send(0, p, System.nanoTime() + timeoutNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending", e);
+            } finally {
+                pending.remove(requestId);
             }
-            throw se;
-        } catch (IOException ioe) {
-            // timeout or IO error -> return null to indicate no response
             return null;
         }
+        try {
+            return request(payloadBytes, false);
+        } catch (SocketTimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Send one request and wait for its response, retransmitting it if it is idempotent.
+     *
+     * @param idempotent whether the server may execute the request more than once
+     * @return the response without header
+     * @throws SocketTimeoutException if no response arrived within {@code ticket.client.timeoutMs}
+     */
+    public byte[] request(byte[] payload, boolean idempotent) throws IOException {
+        long requestId = nextRequestId.incrementAndGet();
+        Transmission transmission = new Transmission(requestId, payload);
+        Pending p = new Pending();
+        pending.put(requestId, p);
+        long[] sentAt = new long[MAX_TRANSMISSIONS];
+        int attempts = 0;
+        try {
+            long deadline = System.nanoTime() + timeoutNanos;
+            transmission.send(attempts, p, deadline);
+            long start = System.nanoTime();
+            sentAt[attempts++] = start;
+            Trace.markCurrent("send");
+            long rto = rtt.getRtoNanos();
+            // non-idempotent requests only ask for missing response chunks at this time
+            long retransmitAt = start + rto;
+            long hedgeAt = HEDGE && idempotent ? start + rtt.getHedgeDelayNanos() : Long.MAX_VALUE;
+            while (true) {
+                long now = System.nanoTime();
+                long wakeAt = Math.min(deadline, Math.min(retransmitAt, hedgeAt));
+                try {
+                    byte[] response = p.response.get(Math.max(0, wakeAt - now), TimeUnit.NANOSECONDS);
+                    int answered = p.answeredAttempt;
+                    if (answered < attempts && !p.resendRequested) rtt.sample(System.nanoTime() - sentAt[answered]);
+                    responseBytes.add(response.length);
+                    requestBytes.add(payload.length);
+                    return response;
+                } catch (TimeoutException e) {
+                    now = System.nanoTime();
+                    if (now - deadline >= 0) {
+                        timeouts.increment();
+                        throw new SocketTimeoutException("No response from " + ip + ":" + port + " within "
+                                + DEFAULT_TIMEOUT_MS + " ms after " + attempts + " transmission(s)");
+                    }
+                    if (attempts == sentAt.length) {
+                        retransmitAt = hedgeAt = Long.MAX_VALUE;
+                        continue;
+                    }
+                    if (now - hedgeAt >= 0) {
+                        hedgeAt = Long.MAX_VALUE;
+                        hedges.increment();
+                    } else if (now - retransmitAt >= 0) {
+                        if (requestMissingChunks(requestId, p)) {
+                            // the server is answering, back off only while asking brings nothing
+                            if (p.stalledResends > 0) rto = Math.min(rto * 2, MAX_RTO_MS * 1_000_000L);
+                            retransmitAt = now + rto;
+                            chunkResends.increment();
+                            continue;
+                        }
+                        rto = Math.min(rto * 2, MAX_RTO_MS * 1_000_000L);
+                        retransmitAt = now + rto;
+                        if (!idempotent) continue;
+                        rtt.backOff();
+                        retransmits.increment();
+                    } else {
+                        continue;
+                    }
+                    transmission.send(attempts, p, deadline);
+                    sentAt[attempts++] = System.nanoTime();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for response", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            pending.remove(requestId);
+            if (p.chunkedAttempt >= 0) {
+                for (int attempt = 0; attempt < attempts; attempt++) assembler.discard(new ChunkKey(requestId, attempt));
+            }
+        }
     }
 
     /**
-     * Convenience single-arg sendData used by some callers.
+     * Ask the server for the chunks still missing of a partly received response. Returns false if
+     * there is none, or the last {@value #MAX_STALLED_RESENDS} times brought nothing, so the
+     * request should be retransmitted.
      */
-    public String sendData(String data) throws IOException {
-        return sendData(data, true);
+    private boolean requestMissingChunks(long requestId, Pending p) throws IOException {
+        int attempt = p.chunkedAttempt;
+        if (attempt < 0) return false;
+        ChunkKey key = new ChunkKey(requestId, attempt);
+        int received = assembler.received(key);
+        int[] missing = assembler.missing(key);
+        if (missing == null || missing.length == 0) return false;
+        if (attempt != p.resendAttempt || received > p.receivedAtResend) {
+            p.stalledResends = 0;
+        } else if (++p.stalledResends > MAX_STALLED_RESENDS) {
+            return false;
+        }
+        p.resendRequested = true;
+        p.resendAttempt = attempt;
+        p.receivedAtResend = received;
+        write(ByteBuffer.wrap(DatagramChunk.resend(attempt, requestId, missing, chunkSize)));
+        return true;
     }
 
     /**
-     * Runnable loop - optional listener that prints incoming messages while connected.
-     * Not required for synchronous request/response usage but provided for completeness.
+     * One request payload and the header buffers to send it as one datagram or as chunks. The
+     * payload is never copied; each datagram is a gather write of a header and a payload slice.
+     * Only the requesting thread uses it.
      */
-    @Override
-    public void run() {
-        // simple listener that prints received packets until socket closed
-        while (isConnected() && socket != null && !socket.isClosed()) {
-            byte[] buf = new byte[65507];
-            DatagramPacket p = new DatagramPacket(buf, buf.length);
+    private final class Transmission {
+        private final long requestId;
+        private final byte[] payload;
+        private final int count;
+        private final int[] crcs;
+        private final ByteBuffer header;
+
+        Transmission(long requestId, byte[] payload) throws IOException {
+            this.requestId = requestId;
+            this.payload = payload;
+            if (DatagramChunk.fitsOneDatagram(payload.length, chunkSize)) {
+                this.count = 0;
+                this.crcs = null;
+                this.header = ByteBuffer.allocate(DatagramHeader.BYTES);
+                return;
+            }
+            this.count = DatagramChunk.count(payload.length, chunkSize);
+            if (count > DatagramChunk.MAX_CHUNKS) {
+                throw new IOException("Request of " + payload.length + " bytes exceeds " + DatagramChunk.MAX_CHUNKS + " chunks");
+            }
+            this.crcs = new int[count];
+            for (int i = 0; i < count; i++) {
+                crcs[i] = DatagramChunk.crc(payload, DatagramChunk.bodyOffset(i, chunkSize),
+                        DatagramChunk.bodyLength(i, payload.length, chunkSize));
+            }
+            this.header = ByteBuffer.allocate(DatagramChunk.BYTES);
+        }
+
+        /** Send one transmission; a chunked one returns when all chunks are acknowledged. */
+        void send(int attempt, Pending p, long deadline) throws IOException, InterruptedException {
+            if (count == 0) {
+                DatagramHeader.writeHeader(header, requestId, attempt);
+                write(header, ByteBuffer.wrap(payload));
+                return;
+            }
+            ChunkUpload upload = new ChunkUpload(attempt, count, window, ackRtt, index -> sendChunk(attempt, index));
+            p.upload = upload;
+            try {
+                upload.run(deadline, p.response::isDone);
+            } finally {
+                chunkRetransmits.add(upload.getRetransmitted());
+            }
+        }
+
+        private void sendChunk(int attempt, int index) throws IOException {
+            DatagramChunk.writeHeader(header, attempt, requestId, index, count, crcs[index]);
+            write(header, ByteBuffer.wrap(payload, DatagramChunk.bodyOffset(index, chunkSize),
+                    DatagramChunk.bodyLength(index, payload.length, chunkSize)));
+        }
+    }
+
+    private void write(ByteBuffer... datagram) throws IOException {
+        DatagramChannel c = channel;
+        if (c == null || !isConnected()) throw new IllegalStateException("Not connected. Call makeConnection() first.");
+        // writing from an interrupted thread would close the channel shared by all requests
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Interrupted before sending");
+        try {
+            c.write(datagram);
+        } catch (ClosedByInterruptException e) {
+            reopen(c);
+            throw e;
+        }
+    }
+
+    /** Receiver thread: completes pending requests until the channel is closed. */
+    private void receive(DatagramChannel c) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+        byte[] buf = buffer.array();
+        while (c.isOpen()) {
             try {
-                socket.receive(p);
-                String msg = new String(p.getData(), p.getOffset(), p.getLength(), StandardCharsets.UTF_8);
-                System.out.println("UDPConnManager received: " + msg);
+                buffer.clear();
+                int length = c.read(buffer);
+                if (DatagramChunk.isAck(buf, 0, length)) {
+                    Pending p = pending.get(DatagramHeader.requestId(buf, 0));
+                    ChunkUpload upload = p == null ? null : p.upload;
+                    if (upload != null && upload.attempt() == DatagramHeader.attempt(buf, 0)) {
+                        upload.acknowledged(DatagramChunk.ackRanges(buf, 0, length));
+                    }
+                    continue;
+                }
+                boolean chunk = DatagramChunk.isChunk(buf, 0, length);
+                if (!chunk && !DatagramHeader.isPresent(buf, 0, length)) {
+                    lateResponses.increment();
+                    continue;
+                }
+                long requestId = DatagramHeader.requestId(buf, 0);
+                int attempt = DatagramHeader.attempt(buf, 0);
+                Pending p = pending.get(requestId);
+                if (p == null || p.response.isDone()) {
+                    // duplicate of a retransmitted or hedged request, or the caller gave up
+                    lateResponses.increment();
+                    continue;
+                }
+                byte[] response;
+                if (chunk) {
+                    p.chunkedAttempt = attempt;
+                    response = assembler.accept(new ChunkKey(requestId, attempt), buf, 0, length, System.nanoTime());
+                    if (response == null) continue;
+                } else {
+                    response = Arrays.copyOfRange(buf, DatagramHeader.BYTES, length);
+                }
+                p.answeredAttempt = attempt;
+                p.response.complete(response);
+                ChunkUpload upload = p.upload;
+                if (upload != null) upload.wake();
             } catch (IOException e) {
-                // timeout expected; continue loop unless socket closed
-                if (socket == null || socket.isClosed()) break;
+                // ICMP port unreachable, channel closed etc.; the request is retransmitted or times out
+                if (!c.isOpen()) break;
+                if (LOG.isDebugEnabled()) LOG.debug("receive failed: {}", e.getMessage());
             }
         }
     }
+
+    /** Retransmissions after a retransmission timeout expired. */
+    public long getRetransmits() {
+        return retransmits.sum();
+    }
+
+    /** Hedged duplicates sent. */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /** Requests that got no response at all. */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /** Requests for the missing chunks of a partly received response. */
+    public long getChunkResends() {
+        return chunkResends.sum();
+    }
+
+    /** Bytes of the responses returned by {@link #request(byte[], boolean)}. */
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    /** Bytes of the requests that got a response from {@link #request(byte[], boolean)}. */
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /** Request chunks sent again after a loss was detected or their ack timed out. */
+    public long getChunkRetransmits() {
+        return chunkRetransmits.sum();
+    }
+
+    public CongestionWindow getCongestionWindow() {
+        return window;
+    }
+
+    /** Response chunks dropped because their CRC or framing was wrong. */
+    public long getChunkCrcErrors() {
+        return assembler.getCrcErrors();
+    }
+
+    /** Responses that matched no waiting request: duplicates, or too late. */
+    public long getLateResponses() {
+        return lateResponses.sum();
+    }
+
+    public RttEstimator getRttEstimator() {
+        return rtt;
+    }
 }
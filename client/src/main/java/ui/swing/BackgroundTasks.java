@@ -0,0 +1,196 @@
+package ui.swing;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+import entities.TicketException;
+
+/**
+ * Runs backend calls on virtual threads and hands their outcome back to the Event Dispatch Thread.
+ *
+ * - {@link #submit} is called on the EDT; the call runs on a new virtual thread and
+ *   {@code onSuccess} or {@code onFailure} run on the EDT afterwards.
+ * - Calls submitted with the same slot supersede each other: submitting cancels the previous call
+ *   of that slot, which interrupts its thread (so a UDP request stops waiting and retransmitting)
+ *   and drops its outcome. Calls without slot, like status changes, are never superseded.
+ * - {@link #stream} runs a call that publishes parts of its result, e.g. batches of tickets, which
+ *   are handed to the EDT as they come.
+ * - The busy listener is told on the EDT when the first call starts and the last one ends.
+ *   Cancelled calls no longer count as busy even while their thread winds down, calls submitted
+ *   with {@link #submitQuietly}, like page prefetches while scrolling, never do.
+ */
+class BackgroundTasks {
+
+    /** A backend call. */
+    @FunctionalInterface
+    interface Call<T> {
+        T call() throws TicketException;
+    }
+
+    /** A backend call that hands out its result in parts while it runs. */
+    @FunctionalInterface
+    interface StreamingCall<P> {
+        void call(Consumer<P> publish) throws TicketException;
+    }
+
+    /** A submitted call, confined to the EDT apart from its volatile cancellation flag. */
+    final class Task {
+        private final String slot;
+        private final boolean quiet;
+        private volatile boolean cancelled;
+        private Thread thread;
+
+        private Task(String slot, boolean quiet) {
+            this.slot = slot;
+            this.quiet = quiet;
+        }
+
+        /** Interrupt the call and drop its outcome; must be called on the EDT. */
+        void cancel() {
+            if (cancelled || !running.remove(this)) return;
+            cancelled = true;
+            if (thread != null) thread.interrupt();
+            if (slot != null) slots.remove(slot, this);
+            busyChanged();
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final int MAX_PENDING_PARTS = 4;
+
+    private final Consumer<Boolean> busyListener;
+    // EDT confined
+    private final Map<String, Task> slots = new HashMap<>();
+    private final Set<Task> running = new HashSet<>();
+    private boolean busy;
+
+    BackgroundTasks(Consumer<Boolean> busyListener) {
+        this.busyListener = busyListener;
+    }
+
+    /**
+     * Run {@code call} in the background.
+     *
+     * @param slot calls with the same slot cancel each other, null for a call that is never superseded
+     */
+    <T> Task submit(String slot, Call<T> call, Consumer<? super T> onSuccess, Consumer<? super TicketException> onFailure) {
+        return submit(slot, false, call, onSuccess, onFailure);
+    }
+
+    /**
+     * Run {@code call} in the background like {@link #submit} without slot, but without turning
+     * on the busy indicator: for loads the user does not wait for.
+     */
+    <T> Task submitQuietly(Call<T> call, Consumer<? super T> onSuccess, Consumer<? super TicketException> onFailure) {
+        return submit(null, true, call, onSuccess, onFailure);
+    }
+
+    private <T> Task submit(String slot, boolean quiet, Call<T> call, Consumer<? super T> onSuccess,
+            Consumer<? super TicketException> onFailure) {
+        Task task = new Task(slot, quiet);
+        // running first, so superseding a call does not flicker the busy indicator
+        running.add(task);
+        if (slot != null) {
+            Task previous = slots.put(slot, task);
+            if (previous != null) previous.cancel();
+        }
+        busyChanged();
+        task.thread = Thread.ofVirtual().name("ui-" + (slot == null ? "call" : slot)).start(() -> {
+            T result = null;
+            TicketException failure = null;
+            try {
+                result = call.call();
+            } catch (TicketException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new TicketException("Unexpected error: " + e.getMessage(), e);
+            }
+            T value = result;
+            TicketException error = failure;
+            SwingUtilities.invokeLater(() -> {
+                if (task.cancelled) return;
+                running.remove(task);
+                if (task.slot != null) slots.remove(task.slot, task);
+                busyChanged();
+                if (error != null) {
+                    onFailure.accept(error);
+                } else {
+                    onSuccess.accept(value);
+                }
+            });
+        });
+        return task;
+    }
+
+    /**
+     * Run {@code call} in the background and hand every part it publishes to {@code onPart} on the
+     * EDT, in order, then call {@code onDone} or {@code onFailure}. Parts published after the call
+     * was cancelled are dropped. Publishing waits while {@value #MAX_PENDING_PARTS} parts wait for
+     * the EDT, so a call faster than the EDT holds only a few parts in memory.
+     *
+     * @param slot as for {@link #submit}
+     */
+    <P> Task stream(String slot, StreamingCall<P> call, Consumer<? super P> onPart, Runnable onDone,
+            Consumer<? super TicketException> onFailure) {
+        Semaphore pending = new Semaphore(MAX_PENDING_PARTS);
+        // set right after submitting on the EDT, before any part is handed out there
+        AtomicReference<Task> self = new AtomicReference<>();
+        Task task = submit(slot, () -> {
+            call.call(part -> {
+                try {
+                    pending.acquire();
+                } catch (InterruptedException e) {
+                    // cancelled, the call sees the interrupt and stops
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    pending.release();
+                    if (!self.get().cancelled) onPart.accept(part);
+                });
+            });
+            return null;
+        }, done -> onDone.run(), onFailure);
+        self.set(task);
+        return task;
+    }
+
+    /** Cancel the running call of {@code slot}, if any; must be called on the EDT. */
+    void cancel(String slot) {
+        Task task = slots.get(slot);
+        if (task != null) task.cancel();
+    }
+
+    /** Cancel every running call, e.g. on shutdown; must be called on the EDT. */
+    void cancelAll() {
+        for (Task task : running.toArray(new Task[0])) task.cancel();
+    }
+
+    boolean isBusy() {
+        return busy;
+    }
+
+    private void busyChanged() {
+        boolean now = false;
+        for (Task task : running) {
+            if (!task.quiet) {
+                now = true;
+                break;
+            }
+        }
+        if (now != busy) {
+            busy = now;
+            if (busyListener != null) busyListener.accept(now);
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package ui.swing;
 
 import java.awt.BorderLayout;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.PrintWriter;
@@ -18,6 +23,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.function.Consumer;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -26,29 +32,37 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumn;
 
 import entities.Priority;
 import entities.Status;
 import entities.Ticket;
 import entities.TicketException;
+import entities.TicketSort;
 
 public class MainFrame extends JFrame implements Observer {
 
     private static final long serialVersionUID = -6236283098582578310L;
+    // list all tickets into the table as they arrive instead of loading the pages in view
+    private static final boolean STREAM_LIST = Boolean.getBoolean("ticket.ui.streamList");
     private final SwingMainController controller;
     private final SwingMainModel mainModel;
 
     private int currentId;
 
-    private TicketTableModel tableModel;
+    private PagedTicketTableModel tableModel;
+    private JTable table;
     private JPanel ticketPanel;
     private JTextArea descArea;
     private JComboBox<entities.Type> typeBox;
@@ -61,6 +75,7 @@ public class MainFrame extends JFrame implements Observer {
     private JButton closeButton;
     private JButton saveButton;
     private JLabel statusLabel;
+    private JProgressBar busyBar;
 
     public MainFrame(SwingMainController controller, SwingMainModel mainModel) {
         this.controller = Objects.requireNonNull(controller, "controller must not be null");
@@ -70,17 +85,12 @@ public class MainFrame extends JFrame implements Observer {
     }
 
     public void showUI() {
-        try {
-            init();
-            this.setVisible(true);
-        } catch (TicketException e) {
-            showErrorDialog(
-                    "Unable to create UI as there were problems connecting to the backend! Shutting down system...", e);
-            controller.triggerApplicationShutdown();
-        }
+        init();
+        this.setVisible(true);
+        controller.loadInitialTicketList();
     }
 
-    private void init() throws TicketException {
+    private void init() {
         this.setTitle("Ticket Management System 5000");
         this.setResizable(false);
         JPanel panel = new JPanel();
@@ -112,6 +122,13 @@ public class MainFrame extends JFrame implements Observer {
 
         newRefreshPanel.add(refreshButton);
 
+        busyBar = new JProgressBar();
+        busyBar.setIndeterminate(true);
+        busyBar.setPreferredSize(new Dimension(80, refreshButton.getPreferredSize().height / 2));
+        busyBar.setToolTipText("Waiting for the backend");
+        busyBar.setVisible(false);
+        newRefreshPanel.add(busyBar);
+
         JPanel searchAndTablePanel = new JPanel();
         searchAndTablePanel.setLayout(new BorderLayout());
         searchAndTablePanel.add(createSearchPanel(), BorderLayout.NORTH);
@@ -353,24 +370,27 @@ public class MainFrame extends JFrame implements Observer {
         JOptionPane.showMessageDialog(this, scrollPane, msg, JOptionPane.ERROR_MESSAGE);
     }
 
-    private JPanel createTicketTablePanel() throws TicketException {
+    private JPanel createTicketTablePanel() {
         JPanel pane = new JPanel();
         pane.setLayout(new BorderLayout());
         pane.add(new JLabel("Tickets currently available:"), BorderLayout.NORTH);
-        tableModel = new TicketTableModel();
-        try {
-            List<Ticket> all = mainModel.getAllTickets();
-            tableModel.updateData(all == null ? new ArrayList<>() : all);
-        } catch (TicketException e) {
-            // propagate so caller can react
-            throw e;
-        }
-        final JTable table = new JTable(tableModel);
+        // filled page by page once the frame is visible, or as the list of all tickets streams in
+        tableModel = new PagedTicketTableModel(controller.getTasks(), mainModel::getTicketPage,
+                STREAM_LIST ? mainModel::streamAllTickets : null,
+                e -> showErrorDialog("Loading tickets failed, refresh to try again.", e));
+        table = new JTable(tableModel);
         table.setPreferredScrollableViewportSize(new Dimension(580, 250));
         table.setFillsViewportHeight(true);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setColumnSelectionAllowed(false);
         table.setRowSelectionAllowed(true);
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) controller.sortTable(table.convertColumnIndexToModel(column));
+            }
+        });
 
         ListSelectionModel listSelect = table.getSelectionModel();
 
@@ -395,10 +415,22 @@ public class MainFrame extends JFrame implements Observer {
         table.setSelectionModel(listSelect);
 
         JScrollPane scrollPane = new JScrollPane(table);
+        // pages are loaded as rows scroll into view, also when the table grows or shrinks
+        scrollPane.getViewport().addChangeListener(e -> showVisibleRows());
         pane.add(scrollPane, BorderLayout.CENTER);
         return pane;
     }
 
+    private void showVisibleRows() {
+        Rectangle visible = table.getVisibleRect();
+        int first = table.rowAtPoint(new Point(0, visible.y));
+        if (first < 0) return;
+        int last = table.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+        // below the last row when the table is shorter than the viewport
+        if (last < 0) last = table.getRowCount() - 1;
+        tableModel.rowsShown(first, last);
+    }
+
     private JPanel createSearchPanel() {
         JPanel searchPanel = new JPanel();
         searchPanel.setLayout(new FlowLayout(FlowLayout.RIGHT));
@@ -414,12 +446,32 @@ public class MainFrame extends JFrame implements Observer {
         JComboBox<entities.Type> localTypeBox = new JComboBox<>(types.toArray(new entities.Type[types.size()]));
         searchPanel.add(localTypeBox);
         JButton searchButton = new JButton("Search");
-        searchButton.addActionListener(new ActionListener() {
+        ActionListener searchNow = new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 entities.Type type = (entities.Type) localTypeBox.getSelectedItem();
                 controller.searchTicket(searchField.getText(), type);
             }
+        };
+        searchButton.addActionListener(searchNow);
+        searchField.addActionListener(searchNow);
+        localTypeBox.addActionListener(searchNow);
+        // live search, the controller waits until the user paused typing
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                changedUpdate(e);
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                changedUpdate(e);
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                controller.searchTicketLater(searchField.getText(), (entities.Type) localTypeBox.getSelectedItem());
+            }
         });
         searchPanel.add(searchButton);
 
@@ -463,18 +515,48 @@ public class MainFrame extends JFrame implements Observer {
 
     @Override
     public void update(Observable arg0, Object arg1) {
-        try {
-            List<Ticket> all = mainModel.getAllTickets();
-            updateTable(all == null ? new ArrayList<>() : all);
-        } catch (TicketException e) {
-            showErrorDialog("Updating ticket data failed!", e);
+        // notified from the thread that changed the data, update the table on the EDT
+        if (arg1 instanceof SwingMainModel.TicketChange change) {
+            SwingUtilities.invokeLater(() -> {
+                if (tableModel != null) tableModel.ticketChanged(change);
+            });
+        } else {
+            SwingUtilities.invokeLater(controller::refreshTicketList);
+        }
+    }
+
+    /** Show or hide the busy indicator while backend calls are in flight. */
+    public void setBusy(boolean busy) {
+        if (busyBar != null) busyBar.setVisible(busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    /** Order the table by {@code sort} and show its first rows. */
+    public void sortTable(TicketSort sort) {
+        if (tableModel == null) return;
+        tableModel.sort(sort);
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            TableColumn column = table.getColumnModel().getColumn(i);
+            column.setHeaderValue(tableModel.getColumnName(column.getModelIndex()));
         }
+        table.getTableHeader().repaint();
+        table.scrollRectToVisible(table.getCellRect(0, 0, true));
+    }
 
+    /** Show a fixed list of tickets, e.g. search results. */
+    public void updateTable(List<Ticket> tickets) {
+        if (tableModel == null) return;
+        tableModel.showTickets(tickets);
     }
 
-    public void updateTable(List<Ticket> allTickets) {
+    /**
+     * Switch the table back to all tickets and reload the rows in view.
+     *
+     * @param onFailure called on the EDT if the tickets could not be loaded
+     */
+    public void reloadTickets(Consumer<? super TicketException> onFailure) {
         if (tableModel == null) return;
-        tableModel.updateData(allTickets == null ? new ArrayList<>() : allTickets);
+        tableModel.refresh(onFailure);
     }
 
     public void clearTicketDetails() {
@@ -499,60 +581,4 @@ public class MainFrame extends JFrame implements Observer {
         showSaveButton();
     }
 
-    private class TicketTableModel extends AbstractTableModel {
-
-        private static final long serialVersionUID = -2733923133633436528L;
-
-        private String[] columns = { "Status", "#", "Topic", "Reporter", "Prio", "Type" };
-
-        private List<Ticket> ticketsToShow = new ArrayList<>();
-
-        @Override
-        public String getColumnName(int i) {
-            return columns[i];
-        }
-
-        @Override
-        public int getColumnCount() {
-            return columns.length;
-        }
-
-        @Override
-        public int getRowCount() {
-            return ticketsToShow == null ? 0 : ticketsToShow.size();
-        }
-
-        @Override
-        public Object getValueAt(int arg0, int arg1) {
-            if (ticketsToShow == null || arg0 < 0 || arg0 >= ticketsToShow.size()) return null;
-            Ticket ticket = ticketsToShow.get(arg0);
-            if (arg1 == 0) {
-                return ticket.getStatus();
-            } else if (arg1 == 1) {
-                return ticket.getId();
-            } else if (arg1 == 2) {
-                return ticket.getTopic();
-            } else if (arg1 == 3) {
-                return ticket.getReporter();
-            } else if (arg1 == 4) {
-                return ticket.getPriority();
-            } else if (arg1 == 5) {
-                return ticket.getType();
-            }
-            return null;
-
-        }
-
-        @Override
-        public boolean isCellEditable(int row, int col) {
-            return false;
-        }
-
-        public void updateData(List<Ticket> allTickets) {
-            this.ticketsToShow = allTickets == null ? new ArrayList<>() : allTickets;
-            this.fireTableDataChanged();
-        }
-
-    }
-
 }
@@ -0,0 +1,459 @@
+package ui.swing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import entities.Ticket;
+import entities.TicketException;
+import entities.TicketPage;
+import entities.TicketSort;
+import ui.swing.SwingMainModel.TicketChange;
+import ui.swing.SwingMainModel.TicketChange.Kind;
+
+/**
+ * Table model that loads the tickets it shows page by page, so the first rows appear as soon as
+ * one page arrived however many tickets the server holds.
+ *
+ * - Rows are fetched in pages of {@value #PAGE_SIZE} in the background once they are scrolled into
+ *   view, as reported by {@link #rowsShown} from a viewport listener, never from painting; until
+ *   then they show a placeholder. The pages before and after the rows shown are prefetched, so
+ *   scrolling on rarely reaches rows that are still loading. Each page is loaded at most once at
+ *   a time, and page loads do not turn on the busy indicator.
+ * - At most {@code ticket.ui.cachedPages} pages (default 20) are kept, the least recently shown
+ *   is dropped. Loads of pages far away from the one just shown are cancelled, so dragging the
+ *   scrollbar through millions of rows only loads what the table stops at.
+ * - The row count follows the total the server sends with every page. {@link #refresh} reloads
+ *   the page shown last and marks the other cached pages stale; they keep showing their rows
+ *   until they are reloaded the next time they are shown.
+ * - {@link #sort} orders the rows by status, id, priority or type, as sorted by the server: the
+ *   pages are dropped and loaded again in the new order as they are shown, so sorting a million
+ *   tickets costs what the first page costs.
+ * - {@link #showTickets(List)} shows a fixed list instead, e.g. search results.
+ * - Given a {@link ListSource} ({@code ticket.ui.streamList}), all tickets are listed instead of
+ *   paged: {@link #refresh} and {@link #sort} stream them in and the rows are appended batch by
+ *   batch as they are decoded, so the table fills while the rest is still being read.
+ * - {@link #ticketChanged} patches the row of a changed ticket in place and appends created
+ *   tickets, where their new id goes in id order; in other orders the rows are moved where they
+ *   belong when their pages are loaded again. Changes are collected and applied together at
+ *   most once per {@value #FRAME_MS} ms, so a burst of events costs one table event per kind
+ *   instead of one per change. Changes of tickets not cached are dropped; the row shows the new
+ *   state once its page is loaded.
+ * - Must be used on the EDT only.
+ */
+class PagedTicketTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 3650281962347158514L;
+
+    /** Loads a page of tickets; called on a background thread. */
+    @FunctionalInterface
+    interface PageSource {
+        TicketPage load(int offset, int limit, TicketSort sort) throws TicketException;
+    }
+
+    /** Lists all tickets in batches; called on a background thread. */
+    @FunctionalInterface
+    interface ListSource {
+        void load(TicketSort sort, int batchSize, Consumer<List<Ticket>> batches) throws TicketException;
+    }
+
+    static final int PAGE_SIZE = 100;
+    private static final int CACHED_PAGES = Math.max(4, Integer.getInteger("ticket.ui.cachedPages", 20));
+    private static final String LOADING = "Loading...";
+    private static final int FRAME_MS = 16;
+    private static final int REMEMBERED_CREATIONS = 1024;
+
+    private final String[] columns = { "Status", "#", "Topic", "Reporter", "Prio", "Type" };
+    // sort key per column, null if the server cannot sort by it
+    private static final TicketSort.Key[] SORT_KEYS = { TicketSort.Key.STATUS, TicketSort.Key.ID, null, null,
+            TicketSort.Key.PRIORITY, TicketSort.Key.TYPE };
+    private final transient BackgroundTasks tasks;
+    private final transient PageSource source;
+    // null if the tickets are paged
+    private final transient ListSource listSource;
+    private final transient Consumer<? super TicketException> onLoadFailure;
+    // page number to its rows, in access order for the LRU eviction
+    private final transient Map<Integer, List<Ticket>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Ticket>> eldest) {
+            if (size() <= CACHED_PAGES) return false;
+            stale.remove(eldest.getKey());
+            return true;
+        }
+    };
+    private final transient Set<Integer> stale = new HashSet<>();
+    private final transient Map<Integer, BackgroundTasks.Task> loading = new HashMap<>();
+    // latest change per ticket id since the last flush
+    private final transient Map<Integer, TicketChange> pendingChanges = new LinkedHashMap<>();
+    private final transient Timer flushTimer = new Timer(FRAME_MS, e -> flushChanges());
+    // ids of tickets appended recently, a creation reported twice (own change and server event) is added once
+    private final transient Set<Integer> appended = Collections.newSetFromMap(new LinkedHashMap<>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+            return size() > REMEMBERED_CREATIONS;
+        }
+    });
+    // non-null while a fixed list is shown instead of pages
+    private transient List<Ticket> fixed;
+    // whether the fixed list holds all tickets, as streamed from the list source
+    private boolean listed;
+    private TicketSort sort = TicketSort.BY_ID;
+    private int rowCount;
+    private int lastPage;
+    // rows in view, as reported by rowsShown
+    private int shownFirst;
+    private int shownLast = -1;
+    // set after a page failed to load, no more pages are loaded until the next refresh
+    private boolean failed;
+
+    /**
+     * @param onLoadFailure called when a page requested by scrolling fails to load
+     */
+    PagedTicketTableModel(BackgroundTasks tasks, PageSource source, Consumer<? super TicketException> onLoadFailure) {
+        this(tasks, source, null, onLoadFailure);
+    }
+
+    /**
+     * @param listSource lists all tickets instead of loading pages from {@code source}, null to page
+     * @param onLoadFailure called when a page requested by scrolling fails to load
+     */
+    PagedTicketTableModel(BackgroundTasks tasks, PageSource source, ListSource listSource,
+            Consumer<? super TicketException> onLoadFailure) {
+        this.tasks = tasks;
+        this.source = source;
+        this.listSource = listSource;
+        this.onLoadFailure = onLoadFailure;
+        flushTimer.setRepeats(false);
+    }
+
+    @Override
+    public String getColumnName(int i) {
+        if (SORT_KEYS[i] != sort.getKey() || sort.isById()) return columns[i];
+        return columns[i] + (sort.isDescending() ? " \u25BC" : " \u25B2");
+    }
+
+    /** The key column {@code i} sorts by, null if it cannot be sorted. */
+    static TicketSort.Key sortKey(int i) {
+        return i >= 0 && i < SORT_KEYS.length ? SORT_KEYS[i] : null;
+    }
+
+    TicketSort getSort() {
+        return sort;
+    }
+
+    /**
+     * Order the pages by {@code sort} from now on; they are loaded again as they are shown.
+     * All tickets streamed from the list source are listed again. A fixed list is left as it is,
+     * the caller shows it sorted.
+     */
+    void sort(TicketSort sort) {
+        if (sort.equals(this.sort)) return;
+        this.sort = sort;
+        if (listed) {
+            list(onLoadFailure);
+            return;
+        }
+        if (fixed != null) return;
+        tasks.cancel(SwingMainController.TABLE);
+        cancelLoads();
+        pages.clear();
+        stale.clear();
+        failed = false;
+        fireTableDataChanged();
+        loadShown();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Ticket ticket = ticketAt(row);
+        if (ticket == null) return column == 2 && !failed ? LOADING : null;
+        switch (column) {
+        case 0:
+            return ticket.getStatus();
+        case 1:
+            return ticket.getId();
+        case 2:
+            return ticket.getTopic();
+        case 3:
+            return ticket.getReporter();
+        case 4:
+            return ticket.getPriority();
+        case 5:
+            return ticket.getType();
+        default:
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return false;
+    }
+
+    /**
+     * The ticket shown in {@code row}, or null if it is not loaded yet. Loads nothing, pages are
+     * requested by {@link #rowsShown}.
+     */
+    Ticket ticketAt(int row) {
+        if (row < 0 || row >= rowCount) return null;
+        if (fixed != null) return fixed.get(row);
+        int page = row / PAGE_SIZE;
+        List<Ticket> rows = pages.get(page);
+        int index = row - page * PAGE_SIZE;
+        return rows != null && index < rows.size() ? rows.get(index) : null;
+    }
+
+    /**
+     * Rows {@code first} to {@code last} are in view now; loads their pages if missing or stale,
+     * and prefetches the pages around them.
+     */
+    void rowsShown(int first, int last) {
+        shownFirst = first;
+        shownLast = last;
+        loadShown();
+    }
+
+    private void loadShown() {
+        if (fixed != null || failed || shownLast < shownFirst || rowCount == 0) return;
+        int first = Math.min(shownFirst, rowCount - 1) / PAGE_SIZE;
+        int last = Math.min(shownLast, rowCount - 1) / PAGE_SIZE;
+        lastPage = first;
+        for (int page = first; page <= last; page++) load(page);
+        if (last + 1 < pageCount()) load(last + 1);
+        if (first > 0) load(first - 1);
+    }
+
+    /**
+     * Reload the page shown last, or list all tickets again with a list source, and switch back
+     * from a fixed list to all tickets.
+     * Superseded by the next refresh or search.
+     *
+     * @param onFailure called if the page could not be loaded
+     */
+    void refresh(Consumer<? super TicketException> onFailure) {
+        if (listSource != null) {
+            list(onFailure);
+            return;
+        }
+        int page = fixed != null ? 0 : lastPage;
+        TicketSort order = sort;
+        tasks.submit(SwingMainController.TABLE, () -> source.load(page * PAGE_SIZE, PAGE_SIZE, order), result -> {
+            cancelLoads();
+            failed = false;
+            if (fixed != null) {
+                fixed = null;
+                pages.clear();
+                stale.clear();
+                pages.put(page, new ArrayList<>(result.getTickets()));
+                lastPage = page;
+                rowCount = result.getTotal();
+                fireTableDataChanged();
+                loadShown();
+                return;
+            }
+            stale.addAll(pages.keySet());
+            stale.remove(page);
+            loaded(page, result);
+        }, onFailure);
+    }
+
+    // the rows shown stay until the first batch replaces them, as a refresh of pages keeps its rows
+    private void list(Consumer<? super TicketException> onFailure) {
+        TicketSort order = sort;
+        boolean[] replaced = { false };
+        BackgroundTasks.StreamingCall<List<Ticket>> call = batches -> listSource.load(order, PAGE_SIZE, batches);
+        tasks.stream(SwingMainController.TABLE, call, batch -> {
+            if (!replaced[0]) {
+                replaced[0] = true;
+                showTickets(new ArrayList<>(batch.size()));
+                listed = true;
+            }
+            int first = rowCount;
+            fixed.addAll(batch);
+            rowCount = fixed.size();
+            if (rowCount > first) fireTableRowsInserted(first, rowCount - 1);
+        }, () -> {
+            if (replaced[0]) return;
+            showTickets(null);
+            listed = true;
+        }, onFailure);
+    }
+
+    /** Show {@code tickets} instead of the pages of all tickets. */
+    void showTickets(List<Ticket> tickets) {
+        cancelLoads();
+        pages.clear();
+        stale.clear();
+        listed = false;
+        fixed = tickets == null ? new ArrayList<>() : tickets;
+        rowCount = fixed.size();
+        fireTableDataChanged();
+    }
+
+    /** A ticket was created or changed; shown with the next flush. */
+    void ticketChanged(TicketChange change) {
+        pendingChanges.merge(change.ticket().getId(), change, (older, newer) -> {
+            Ticket latest = newer.ticket().getVersion() >= older.ticket().getVersion() ? newer.ticket() : older.ticket();
+            return new TicketChange(older.kind() == Kind.CREATED ? Kind.CREATED : newer.kind(), latest);
+        });
+        if (!flushTimer.isRunning()) flushTimer.start();
+    }
+
+    private void flushChanges() {
+        int firstUpdated = Integer.MAX_VALUE;
+        int lastUpdated = -1;
+        int oldRowCount = rowCount;
+        for (TicketChange change : pendingChanges.values()) {
+            int row = replace(change.ticket());
+            if (row >= 0) {
+                firstUpdated = Math.min(firstUpdated, row);
+                lastUpdated = Math.max(lastUpdated, row);
+            } else if (change.kind() == Kind.CREATED && (fixed == null || listed)
+                    && appended.add(change.ticket().getId())) {
+                append(change.ticket());
+            }
+        }
+        pendingChanges.clear();
+        if (rowCount > oldRowCount) fireTableRowsInserted(oldRowCount, rowCount - 1);
+        if (lastUpdated >= 0) fireTableRowsUpdated(firstUpdated, lastUpdated);
+        // appending may have marked pages in view stale
+        loadShown();
+    }
+
+    // put the new state of a ticket shown in a row there, returns the row or -1
+    private int replace(Ticket ticket) {
+        if (fixed != null) {
+            for (int i = 0; i < fixed.size(); i++) {
+                if (fixed.get(i).getId() == ticket.getId()) {
+                    if (ticket.getVersion() >= fixed.get(i).getVersion()) fixed.set(i, ticket);
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (Map.Entry<Integer, List<Ticket>> entry : pages.entrySet()) {
+            List<Ticket> rows = entry.getValue();
+            // the id never changes, other keys may have changed since the page was loaded
+            int index = sort.getKey() == TicketSort.Key.ID ? Collections.binarySearch(rows, ticket, sort.comparator())
+                    : indexOf(rows, ticket.getId());
+            if (index >= 0) {
+                if (ticket.getVersion() >= rows.get(index).getVersion()) rows.set(index, ticket);
+                return entry.getKey() * PAGE_SIZE + index;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(List<Ticket> rows, int id) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getId() == id) return i;
+        }
+        return -1;
+    }
+
+    // a new ticket has the highest id so far and goes to the last row in id order
+    private void append(Ticket ticket) {
+        if (listed) {
+            // in other orders it shows where it belongs once listed again
+            if (!sort.isById()) return;
+            fixed.add(ticket);
+            rowCount++;
+            return;
+        }
+        int row = rowCount++;
+        if (!sort.isById()) {
+            // somewhere in between, every row after it moves down by one
+            stale.addAll(pages.keySet());
+            return;
+        }
+        int page = row / PAGE_SIZE;
+        List<Ticket> rows = pages.get(page);
+        if (rows == null) return;
+        boolean fits = rows.size() == row - page * PAGE_SIZE
+                && (rows.isEmpty() || rows.get(rows.size() - 1).getId() < ticket.getId());
+        if (fits) {
+            rows.add(ticket);
+        } else {
+            stale.add(page);
+        }
+    }
+
+    private int pageCount() {
+        return (rowCount + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    private void load(int page) {
+        if (failed || loading.containsKey(page)) return;
+        if (pages.containsKey(page) && !stale.contains(page)) return;
+        // the table moved on, pages that would be evicted right away are not worth waiting for
+        loading.entrySet().removeIf(e -> {
+            if (Math.abs(e.getKey() - page) <= CACHED_PAGES / 2) return false;
+            e.getValue().cancel();
+            return true;
+        });
+        TicketSort order = sort;
+        loading.put(page, tasks.submitQuietly(() -> source.load(page * PAGE_SIZE, PAGE_SIZE, order), result -> {
+            loading.remove(page);
+            loaded(page, result);
+        }, e -> {
+            loading.remove(page);
+            failed = true;
+            cancelLoads();
+            fireTableRowsUpdated(0, Math.max(0, rowCount - 1));
+            onLoadFailure.accept(e);
+        }));
+    }
+
+    private void loaded(int page, TicketPage result) {
+        // mutable, changes are patched in
+        pages.put(page, new ArrayList<>(result.getTickets()));
+        stale.remove(page);
+        resize(result.getTotal());
+        int first = page * PAGE_SIZE;
+        int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (last >= first) fireTableRowsUpdated(first, last);
+        // e.g. the first page after a refresh, the stale pages still in view follow
+        loadShown();
+    }
+
+    private void resize(int total) {
+        int old = rowCount;
+        if (total == old) return;
+        rowCount = total;
+        if (total > old) {
+            fireTableRowsInserted(old, total - 1);
+        } else {
+            pages.keySet().removeIf(p -> p * PAGE_SIZE >= total);
+            stale.removeIf(p -> p * PAGE_SIZE >= total);
+            fireTableRowsDeleted(total, old - 1);
+        }
+    }
+
+    private void cancelLoads() {
+        for (BackgroundTasks.Task task : loading.values()) task.cancel();
+        loading.clear();
+    }
+}
@@ -1,19 +1,56 @@
 package ui.swing;
 
-import java.util.List;
 import java.util.Objects;
 
+import javax.swing.Timer;
+
 import app.Shutdown;
 import entities.Priority;
 import entities.Ticket;
 import entities.TicketException;
+import entities.TicketQuery;
+import entities.TicketSort;
 import entities.Type;
 
+/**
+ * Mediates between the Swing frame and the model.
+ *
+ * - Every backend call runs on a virtual thread via {@link BackgroundTasks}, so a slow or lost UDP
+ *   request never freezes the window; results and errors are shown on the EDT.
+ * - Loading the ticket details of a selection and filling the table (refresh, search) are each
+ *   superseded by the next call of their kind: the older call is cancelled and its result dropped.
+ *   The table loads further pages itself as it is scrolled, see {@link PagedTicketTableModel}.
+ *   Status changes and ticket creation always run to completion.
+ * - Clicking a column header sorts by that column, a second click reverses the order. The server
+ *   sorts: the table reloads its pages, a search is run again in the new order.
+ * - Searches run as the user types, once typing paused for {@code ticket.ui.searchDebounceMs}
+ *   (default {@value #DEFAULT_SEARCH_DEBOUNCE_MS}); a search still running when the next one starts
+ *   is cancelled on the server too. Edits that leave the search words as they were search nothing.
+ * - All public methods must be called on the EDT.
+ */
 public class SwingMainController {
 
+    private static final String SELECTION = "selection";
+    static final String TABLE = "table";
+    static final int DEFAULT_SEARCH_DEBOUNCE_MS = 250;
+    private static final int SEARCH_DEBOUNCE_MS =
+            Math.max(0, Integer.getInteger("ticket.ui.searchDebounceMs", DEFAULT_SEARCH_DEBOUNCE_MS));
+    private static final String ALL_TICKETS = searchKey("", null);
+
+    private final BackgroundTasks tasks = new BackgroundTasks(busy -> {
+        if (this.mainFrame != null) this.mainFrame.setBusy(busy);
+    });
     private SwingMainModel model;
     private MainFrame mainFrame;
     private Shutdown connector;
+    private final Timer searchDebounce = new Timer(SEARCH_DEBOUNCE_MS, e -> searchIfChanged());
+    private String pendingName;
+    private Type pendingType;
+    // search words and type the table shows the result of, null if unknown after a failure
+    private String searchShown = ALL_TICKETS;
+    private String shownName;
+    private Type shownType;
+    private TicketSort sort = TicketSort.BY_ID;
 
     /**
      * Create a controller that only has a shutdown connector for now.
@@ -53,88 +90,136 @@ public class SwingMainController {
             return;
         }
         mainFrame.showUI();
+        tasks.submit(null, model::listenForServerChanges, listening -> {
+            // nothing to do, changes of other clients now show up in the table
+        }, e -> System.out.println("Not receiving ticket changes of other clients: " + e.getMessage()));
     }
 
     public void getAndShowTicketById(int id) {
         if (mainFrame == null || model == null) return;
-        try {
-            Ticket t = model.getTicket(id);
+        tasks.submit(SELECTION, () -> model.getTicket(id), t -> {
             if (t == null) {
                 mainFrame.clearTicketDetails();
                 mainFrame.showErrorDialog("Ticket with Id " + id + " does not exist!", null);
             } else {
                 mainFrame.showTicketDetails(t);
             }
-        } catch (TicketException e) {
+        }, e -> {
             mainFrame.clearTicketDetails();
             mainFrame.showErrorDialog("Error retrieving ticket with Id " + id + ".", e);
-        }
+        });
     }
 
     public void acceptTicket(int id) {
         if (mainFrame == null || model == null) return;
-        try {
-            model.acceptTicket(id);
-            mainFrame.showTicketDetails(model.getTicket(id));
-        } catch (TicketException exec) {
-            mainFrame.showErrorDialog("Invalid status change.", exec);
-        }
+        changeStatus(() -> model.acceptTicket(id));
     }
 
     public void closeTicket(int id) {
         if (mainFrame == null || model == null) return;
-        try {
-            model.closeTicket(id);
-            mainFrame.showTicketDetails(model.getTicket(id));
-        } catch (TicketException e) {
-            mainFrame.showErrorDialog("Invalid status change.", e);
-        }
+        changeStatus(() -> model.closeTicket(id));
     }
 
     public void rejectTicket(int id) {
         if (mainFrame == null || model == null) return;
-        try {
-            model.rejectTicket(id);
-            mainFrame.showTicketDetails(model.getTicket(id));
-        } catch (TicketException e) {
-            mainFrame.showErrorDialog("Invalid status change.", e);
-        }
+        changeStatus(() -> model.rejectTicket(id));
+    }
+
+    // status changes are never superseded, but the ticket shown afterwards replaces any pending selection
+    private void changeStatus(BackgroundTasks.Call<Ticket> change) {
+        tasks.cancel(SELECTION);
+        tasks.submit(null, change, mainFrame::showTicketDetails, e -> mainFrame.showErrorDialog("Invalid status change.", e));
     }
 
     public void createNewTicket(String reporter, String topic, String description, Type type, Priority priority) {
         if (mainFrame == null || model == null) return;
-        try {
-            Ticket ticket = model.createNewTicket(reporter, topic, description, type, priority);
+        tasks.cancel(SELECTION);
+        tasks.submit(null, () -> model.createNewTicket(reporter, topic, description, type, priority), ticket -> {
             if (ticket != null) {
                 mainFrame.showTicketDetails(ticket);
             } else {
                 mainFrame.showErrorDialog("Failed to create ticket.", null);
             }
-        } catch (TicketException e) {
-            mainFrame.showErrorDialog("Failed to create ticket.", e);
-        }
+        }, e -> mainFrame.showErrorDialog("Failed to create ticket.", e));
     }
     
+    /**
+     * The search text or type was edited: search once the user stopped typing for the debounce
+     * time, unless the words to search for did not change.
+     */
+    public void searchTicketLater(String name, Type type) {
+        pendingName = name;
+        pendingType = type;
+        searchDebounce.setRepeats(false);
+        searchDebounce.restart();
+    }
+
+    /** Search right away, e.g. on Enter; a blank text without type shows all tickets again. */
     public void searchTicket(String name, Type type) {
         if (mainFrame == null || model == null) return;
-        try {
-            List<Ticket> tickets = model.searchTicket(name, type);
-            mainFrame.updateTable(tickets);
-        } catch (TicketException e) {
-            mainFrame.showErrorDialog("Could not perform ticket search", e);
+        searchDebounce.stop();
+        String key = searchKey(name, type);
+        if (key.equals(ALL_TICKETS)) {
+            refreshTicketList();
+            return;
         }
+        searchShown = key;
+        shownName = name;
+        shownType = type;
+        TicketSort order = sort;
+        tasks.submit(TABLE, () -> model.searchTicket(name, type, order), mainFrame::updateTable, e -> {
+            searchShown = null;
+            mainFrame.showErrorDialog("Could not perform ticket search", e);
+        });
+    }
+
+    /**
+     * Sort the table by the column with model index {@code column}, or reverse the order if it is
+     * sorted by it already. Columns the server cannot sort by are ignored.
+     */
+    public void sortTable(int column) {
+        if (mainFrame == null || model == null) return;
+        TicketSort.Key key = PagedTicketTableModel.sortKey(column);
+        if (key == null) return;
+        sort = sort.getKey() == key ? sort.reversed() : TicketSort.by(key);
+        mainFrame.sortTable(sort);
+        if (!ALL_TICKETS.equals(searchShown)) searchTicket(shownName, shownType);
+    }
+
+    private void searchIfChanged() {
+        if (!searchKey(pendingName, pendingType).equals(searchShown)) searchTicket(pendingName, pendingType);
+    }
+
+    private static String searchKey(String name, Type type) {
+        return String.join(" ", TicketQuery.words(name)) + "|" + type;
     }
 
     public void refreshTicketList() {
         if (mainFrame == null || model == null) return;
-        try {
-            mainFrame.updateTable(model.getAllTickets());
-        } catch (TicketException e) {
-            mainFrame.showErrorDialog("Error refreshing list of tickets", e);
-        }
+        searchShown = ALL_TICKETS;
+        mainFrame.reloadTickets(e -> mainFrame.showErrorDialog("Error refreshing list of tickets", e));
+    }
+
+    /**
+     * Fill the table for the first time; without a backend to talk to the application shuts down.
+     */
+    void loadInitialTicketList() {
+        if (mainFrame == null || model == null) return;
+        mainFrame.reloadTickets(e -> {
+            mainFrame.showErrorDialog(
+                    "Unable to create UI as there were problems connecting to the backend! Shutting down system...", e);
+            triggerApplicationShutdown();
+        });
+    }
+
+    /** The background calls of this controller, shared with the table loading its pages. */
+    BackgroundTasks getTasks() {
+        return tasks;
     }
 
     public void triggerApplicationShutdown() {
+        searchDebounce.stop();
+        tasks.cancelAll();
         // attempt to trigger shutdown if connector is provided; always dispose UI if present
         if (connector != null) {
             try {
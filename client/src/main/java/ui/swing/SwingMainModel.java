@@ -2,14 +2,36 @@ package ui.swing;
 
 import java.util.List;
 import java.util.Observable;
+import java.util.function.Consumer;
 
+import app.JMSTicketManagementBackend;
 import app.TicketManagementBackend;
+import app.TicketSearchBackend;
 import entities.Priority;
 import entities.Ticket;
 import entities.TicketException;
+import entities.TicketPage;
+import entities.TicketSort;
 import entities.Type;
 
+/**
+ * Model of the Swing client, a thin layer over the {@link TicketManagementBackend}.
+ *
+ * - Observers are notified after every change with a {@link TicketChange} carrying the created or
+ *   updated ticket, so views can update the affected row only; the argument is the model itself
+ *   if the change is unknown and everything should be reloaded.
+ * - Observers are notified on the thread that made the change, which is a background thread for
+ *   changes made through the UI and the JMS delivery thread for changes made by other clients.
+ */
 public class SwingMainModel extends Observable {
+
+    /** A ticket was created or changed; {@code ticket} is its new state. */
+    public record TicketChange(Kind kind, Ticket ticket) {
+        public enum Kind {
+            CREATED, UPDATED
+        }
+    }
+
     private final TicketManagementBackend backend;
 
     public SwingMainModel(TicketManagementBackend backend) {
@@ -21,6 +43,16 @@ public class SwingMainModel extends Observable {
         return backend.getAllTickets();
     }
 
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) throws TicketException {
+        return backend.getTicketPage(offset, limit, sort);
+    }
+
+    /** All tickets in {@code sort} order, handed out in batches as they arrive. */
+    public void streamAllTickets(TicketSort sort, int batchSize, Consumer<List<Ticket>> batches) throws TicketException {
+        backend.streamAllTickets(sort, batchSize, batches);
+    }
+
+    /** Reload everything: the data changed in a way not described by a {@link TicketChange}. */
     public void tmDataChanged() {
         setChanged();
         notifyObservers(this);
@@ -37,38 +69,67 @@ public class SwingMainModel extends Observable {
         // simple null-coercion to avoid NPEs in backend
         if (reporter == null) reporter = "unknown";
         if (topic == null) topic = "";
-    Ticket newTicket = backend.createNewTicket(reporter, topic, description, type, priority);
-    setChanged();
-    notifyObservers(this);
-    return newTicket;
+        Ticket newTicket = backend.createNewTicket(reporter, topic, description, type, priority);
+        changed(TicketChange.Kind.CREATED, newTicket);
+        return newTicket;
     }
 
-    public void rejectTicket(int id) throws TicketException {
-    backend.rejectTicket(id);
-    setChanged();
-    notifyObservers(this);
+    /** Reject a ticket and return it in its new state. */
+    public Ticket rejectTicket(int id) throws TicketException {
+        return updated(id, backend.rejectTicket(id));
     }
 
-    public void acceptTicket(int id) throws TicketException {
-    backend.acceptTicket(id);
-    setChanged();
-    notifyObservers(this);
+    /** Accept a ticket and return it in its new state. */
+    public Ticket acceptTicket(int id) throws TicketException {
+        return updated(id, backend.acceptTicket(id));
+    }
+
+    /** Close a ticket and return it in its new state. */
+    public Ticket closeTicket(int id) throws TicketException {
+        return updated(id, backend.closeTicket(id));
+    }
+
+    // backends answer a status change with the changed ticket; ask for it if one did not
+    private Ticket updated(int id, Ticket ticket) throws TicketException {
+        if (ticket == null) {
+            tmDataChanged();
+            return getTicket(id);
+        }
+        changed(TicketChange.Kind.UPDATED, ticket);
+        return ticket;
+    }
+
+    private void changed(TicketChange.Kind kind, Ticket ticket) {
+        if (ticket == null) {
+            tmDataChanged();
+            return;
+        }
+        setChanged();
+        notifyObservers(new TicketChange(kind, ticket));
     }
 
-    public void closeTicket(int id) throws TicketException {
-    backend.closeTicket(id);
-    setChanged();
-    notifyObservers(this);
+    /**
+     * Report the changes the server publishes for all clients as well, if the backend receives
+     * them (JMS). Blocks while subscribing.
+     *
+     * @return whether the backend delivers change events
+     * @throws TicketException if subscribing failed
+     */
+    public boolean listenForServerChanges() throws TicketException {
+        if (!(backend instanceof JMSTicketManagementBackend jms)) return false;
+        jms.addChangeListener(event -> changed(
+                "created".equals(event.type()) ? TicketChange.Kind.CREATED : TicketChange.Kind.UPDATED, event.ticket()));
+        return true;
     }
     
-    public List<Ticket> searchTicket(String name, Type type) throws TicketException {
+    /**
+     * The first {@link TicketSearchBackend#DEFAULT_SEARCH_LIMIT} tickets in {@code sort} order
+     * matching the search text and type. Interrupting the calling thread abandons the search, on
+     * the server too.
+     */
+    public List<Ticket> searchTicket(String name, Type type, TicketSort sort) throws TicketException {
         try {
-            if (name == null) name = "";
-            if (type == null) {
-                return backend.getTicketsByName(name);
-            } else {
-                return backend.getTicketsByNameAndType(name, type);
-            }
+            return backend.searchTickets(name == null ? "" : name, type, sort, TicketSearchBackend.DEFAULT_SEARCH_LIMIT);
         } catch (UnsupportedOperationException e) {
             throw new TicketException("No search service registered", e);
         }
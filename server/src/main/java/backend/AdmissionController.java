@@ -0,0 +1,275 @@
+package backend;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import logging.AsyncLogger;
+import tracing.TraceRecorder;
+
+/**
+ * Admission control in front of a {@link TicketRequestHandler}, shared by all transports.
+ *
+ * - Every client (its {@code clientId}, or its address if none is sent) has a token bucket;
+ *   requests cost tokens by type, so one client hammering {@code list} runs dry long before a client
+ *   creating tickets at a normal pace.
+ * - Admitted requests wait in one bounded queue served by a fixed number of workers. Expensive
+ *   requests may only fill half of it, so under overload they are shed first and cheap requests
+ *   still get through.
+ * - A request that waited longer than the queue deadline is answered without being executed;
+ *   its client has most likely given up already.
+ * - Every answered request, shed or not, is recorded in the {@link ServerMetrics}.
+ * - Every rejection is an immediate {@code BUSY} error with a {@code retryAfterMs} hint. It is
+ *   decided before any store work is done, so shedding stays cheap while overloaded.
+ */
+public class AdmissionController implements AdmissionStatsMXBean {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(AdmissionController.class);
+
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    static final double DEFAULT_CLIENT_RATE = 500;
+    static final double DEFAULT_CLIENT_BURST = 1000;
+    static final long DEFAULT_MAX_QUEUE_DELAY_MS = 1000;
+    private static final int MAX_TRACKED_CLIENTS = 10_000;
+    private static final long MIN_RETRY_AFTER_MS = 10;
+
+    /** Token cost per request type; anything not listed costs 1. */
+    private static final Map<String, Integer> COST = Map.of("list", 10, "search", 2);
+
+    private final TicketRequestHandler handler;
+    private final ServerMetrics metrics;
+    private final BlockingQueue<Task> queue;
+    private final int expensiveLimit;
+    private final int workers;
+    private final double clientRate;
+    private final double clientBurst;
+    private final long maxQueueDelayNanos;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong avgServiceNanos = new AtomicLong(1_000_000);
+    private volatile boolean active = true;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder queueFull = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * Configure from system properties:
+     * {@code ticket.admission.queueCapacity} (default 1024), {@code ticket.admission.workers}
+     * (default 2 per CPU), {@code ticket.admission.clientRate} tokens per second and client
+     * (default 500, 0 disables rate limiting), {@code ticket.admission.clientBurst} (default 1000)
+     * and {@code ticket.admission.maxQueueDelayMs} (default 1000).
+     */
+    public AdmissionController(TicketRequestHandler handler, ServerMetrics metrics) {
+        this(handler, metrics,
+                Integer.getInteger("ticket.admission.queueCapacity", DEFAULT_QUEUE_CAPACITY),
+                Integer.getInteger("ticket.admission.workers", Runtime.getRuntime().availableProcessors() * 2),
+                doubleProperty("ticket.admission.clientRate", DEFAULT_CLIENT_RATE),
+                doubleProperty("ticket.admission.clientBurst", DEFAULT_CLIENT_BURST),
+                Long.getLong("ticket.admission.maxQueueDelayMs", DEFAULT_MAX_QUEUE_DELAY_MS));
+    }
+
+    public AdmissionController(TicketRequestHandler handler, ServerMetrics metrics, int queueCapacity, int workers,
+                               double clientRate, double clientBurst, long maxQueueDelayMs) {
+        if (queueCapacity < 2) throw new IllegalArgumentException("queueCapacity must be at least 2");
+        if (workers < 1) throw new IllegalArgumentException("workers must be positive");
+        this.handler = Objects.requireNonNull(handler, "handler must not be null");
+        this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.expensiveLimit = queueCapacity / 2;
+        this.workers = workers;
+        this.clientRate = clientRate;
+        this.clientBurst = Math.max(clientBurst, 1);
+        this.maxQueueDelayNanos = maxQueueDelayMs * 1_000_000L;
+        for (int i = 0; i < workers; i++) {
+            Thread.ofVirtual().name("request-worker-" + i).start(this::work);
+        }
+    }
+
+    /**
+     * Decode the request, decide on admission and eventually pass the encoded response to
+     * {@code reply}: right away when shed, otherwise from a worker thread. Every decoded request
+     * ends in either {@link TicketRequestHandler#process} or {@link TicketRequestHandler#reject}.
+     *
+     * @param transport name of the transport for the metrics, e.g. {@code udp}
+     * @param remote    address of the sender, used when the request carries no clientId
+     */
+    public void submit(byte[] data, int offset, int length, String transport, String remote, Consumer<byte[]> respond) {
+        long arrival = System.nanoTime();
+        TicketRequestHandler.Request request = handler.decode(data, offset, length);
+        Consumer<byte[]> reply = response -> {
+            metrics.record(transport, request.requestType, System.nanoTime() - arrival, request.errorCode != null,
+                    length, response.length);
+            respond.accept(response);
+            if (request.trace != null) {
+                request.trace.mark("send");
+                TraceRecorder.record(request.trace);
+            }
+        };
+        // Map.of rejects null keys, and requests without requestType are answered with an error
+        int cost = request.requestType == null ? 1 : COST.getOrDefault(request.requestType, 1);
+
+        String client = request.clientId != null ? request.clientId : remote;
+        long waitNanos = acquire(client, cost);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            reply.accept(handler.reject(request, TicketRequestHandler.Response.busy(
+                    "Rate limit exceeded for client " + client, Math.max(MIN_RETRY_AFTER_MS, waitNanos / 1_000_000))));
+            return;
+        }
+
+        boolean expensive = cost > 1;
+        // marked before enqueueing, a worker may pick the request up right away
+        if (request.trace != null) request.trace.mark("admit");
+        if ((expensive && queue.size() >= expensiveLimit) || !queue.offer(new Task(request, reply, System.nanoTime()))) {
+            queueFull.increment();
+            reply.accept(handler.reject(request, TicketRequestHandler.Response.busy(
+                    "Server busy, retry later", estimatedDrainMillis())));
+            return;
+        }
+        admitted.increment();
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void shutdown() {
+        active = false;
+        queue.clear();
+        for (int i = 0; i < workers; i++) queue.offer(Task.POISON);
+    }
+
+    private void work() {
+        while (active) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException ie) {
+                return;
+            }
+            if (task == Task.POISON) return;
+            if (task.request.trace != null) task.request.trace.mark("queue");
+            long start = System.nanoTime();
+            if (start - task.enqueuedNanos > maxQueueDelayNanos) {
+                expired.increment();
+                task.reply.accept(handler.reject(task.request, TicketRequestHandler.Response.busy(
+                        "Request expired in server queue", estimatedDrainMillis())));
+                continue;
+            }
+            try {
+                byte[] response = handler.process(task.request);
+                long took = System.nanoTime() - start;
+                // exponentially weighted average, 1/8 weight for the newest sample
+                avgServiceNanos.updateAndGet(avg -> avg + (took - avg) / 8);
+                task.reply.accept(response);
+            } catch (RuntimeException e) {
+                LOG.error("Request worker failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private long estimatedDrainMillis() {
+        long nanos = queue.size() * avgServiceNanos.get() / workers;
+        return Math.max(MIN_RETRY_AFTER_MS, nanos / 1_000_000);
+    }
+
+    /**
+     * Take {@code cost} tokens from the client's bucket.
+     *
+     * @return 0 if admitted, otherwise the nanoseconds until enough tokens are available
+     */
+    private long acquire(String client, int cost) {
+        if (clientRate <= 0) return 0;
+        if (buckets.size() > MAX_TRACKED_CLIENTS) evictIdleBuckets();
+        TokenBucket bucket = buckets.computeIfAbsent(client, k -> new TokenBucket(clientBurst));
+        return bucket.take(cost, clientRate, clientBurst);
+    }
+
+    private void evictIdleBuckets() {
+        long now = System.nanoTime();
+        // a bucket idle long enough to be full again carries no state worth keeping
+        long idleNanos = (long) (clientBurst / clientRate * 1e9);
+        buckets.values().removeIf(b -> now - b.lastRefill > idleNanos);
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        try {
+            return Double.parseDouble(System.getProperty(name, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    // ----- AdmissionStatsMXBean -----
+
+    @Override
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    @Override
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    @Override
+    public long getQueueFull() {
+        return queueFull.sum();
+    }
+
+    @Override
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    @Override
+    public int getQueueLength() {
+        return queue.size();
+    }
+
+    @Override
+    public int getTrackedClients() {
+        return buckets.size();
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private volatile long lastRefill = System.nanoTime();
+
+        TokenBucket(double tokens) {
+            this.tokens = tokens;
+        }
+
+        synchronized long take(int cost, double rate, double burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * rate);
+            lastRefill = now;
+            if (tokens >= cost) {
+                tokens -= cost;
+                return 0;
+            }
+            return (long) ((cost - tokens) / rate * 1e9);
+        }
+    }
+
+    private static final class Task {
+        static final Task POISON = new Task(null, null, 0);
+
+        final TicketRequestHandler.Request request;
+        final Consumer<byte[]> reply;
+        final long enqueuedNanos;
+
+        Task(TicketRequestHandler.Request request, Consumer<byte[]> reply, long enqueuedNanos) {
+            this.request = request;
+            this.reply = reply;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
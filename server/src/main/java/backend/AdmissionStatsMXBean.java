@@ -0,0 +1,22 @@
+package backend;
+
+/**
+ * JMX view of the {@link AdmissionController}: how many requests were admitted and why others were shed.
+ */
+public interface AdmissionStatsMXBean {
+
+    long getAdmitted();
+
+    /** Requests refused because their client exceeded its token bucket. */
+    long getRateLimited();
+
+    /** Requests refused because the queue (or its share for expensive requests) was full. */
+    long getQueueFull();
+
+    /** Admitted requests answered unexecuted because they waited too long. */
+    long getExpired();
+
+    int getQueueLength();
+
+    int getTrackedClients();
+}
@@ -0,0 +1,472 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.gson.Gson;
+
+import logging.AsyncLogger;
+
+/**
+ * Lease-based leader election among a fixed group of replicated ticket servers.
+ *
+ * - Nodes exchange small JSON datagrams on a dedicated election port. Every message carries the
+ *   sender's epoch; seeing a higher epoch always turns a node into a follower of that epoch.
+ * - The leader sends heartbeats every {@value #HEARTBEAT_INTERVAL_MS} ms. A follower that hears nothing
+ *   for a randomised election timeout starts an election for the next epoch.
+ * - A vote is only granted to a candidate whose replicated log is at least as new as the voter's
+ *   (compared by epoch, then sequence number), so the newest replica wins.
+ * - The leader only accepts writes while a majority acknowledged heartbeats it sent within the lease
+ *   period (acks echo the heartbeat's send time), which is shorter than the minimum election timeout. A partitioned or paused old leader
+ *   therefore stops writing before anyone else can be elected, and its replication stream is
+ *   rejected by followers that already know the newer epoch (fencing).
+ * - Epoch and vote are persisted to {@code stateFile} (if given) before they are acted upon.
+ */
+public class ClusterNode implements RemoteAccess {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(ClusterNode.class);
+
+    public enum State { FOLLOWER, CANDIDATE, LEADER }
+
+    static final long HEARTBEAT_INTERVAL_MS = 150;
+    static final long LEASE_MS = 600;
+    static final long ELECTION_TIMEOUT_MIN_MS = 800;
+    static final long ELECTION_TIMEOUT_MAX_MS = 1600;
+    private static final long TICK_MS = 25;
+
+    private static final Gson GSON = new Gson();
+
+    private final int nodeId;
+    private final Map<Integer, InetSocketAddress> peers;
+    private final ReplicatingTicketStore store;
+    private final ReplicationBackup backup;
+    private final String replicationEndpoint;
+    private final String clientEndpoint;
+    private final Path stateFile;
+    private final Map<Integer, Long> heartbeatAcks = new HashMap<>();
+    private final Set<Integer> votes = new HashSet<>();
+
+    private DatagramSocket socket;
+    private volatile boolean active = true;
+    private Thread ticker;
+
+    private State state = State.FOLLOWER;
+    private long epoch;
+    private int votedFor = -1;
+    private int leaderId = -1;
+    private String leaderClientEndpoint = "";
+    private long electionDeadline;
+    private long nextHeartbeat;
+    private long electionStartedAt;
+    // read by writers holding the store's write lock, so it must not need this node's monitor
+    private volatile long leaseExpiry;
+
+    /**
+     * @param nodeId              id of this node, must be a key of {@code members}
+     * @param members             node id to election address of every node including this one
+     * @param store               local replicated store, promoted and demoted by this node
+     * @param backup              replication follower retargeted to the current leader
+     * @param replicationEndpoint {@code host:port} backups use to stream from this node when it leads
+     * @param clientEndpoint      {@code host:port} clients use to reach this node, passed on as a hint
+     * @param stateFile           where epoch and vote are persisted (may be null)
+     */
+    public ClusterNode(int nodeId, Map<Integer, InetSocketAddress> members, ReplicatingTicketStore store,
+                       ReplicationBackup backup, String replicationEndpoint, String clientEndpoint, Path stateFile) {
+        if (!members.containsKey(nodeId)) throw new IllegalArgumentException("node " + nodeId + " is not a cluster member");
+        this.nodeId = nodeId;
+        this.peers = Map.copyOf(members);
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        this.backup = Objects.requireNonNull(backup, "backup must not be null");
+        this.replicationEndpoint = replicationEndpoint;
+        this.clientEndpoint = clientEndpoint;
+        this.stateFile = stateFile;
+    }
+
+    @Override
+    public void prepareStartup(TicketStore ticketStore) {
+        loadState();
+        store.demote(epoch);
+        store.setWriteLease(this::holdsLease);
+        try {
+            socket = new DatagramSocket(peers.get(nodeId));
+        } catch (SocketException e) {
+            throw new UncheckedIOException("Cannot bind election port " + peers.get(nodeId), e);
+        }
+        synchronized (this) {
+            resetElectionDeadline();
+        }
+        LOG.info("Cluster node {} listening on {}, epoch {}", nodeId, peers.get(nodeId), epoch);
+    }
+
+    @Override
+    public void run() {
+        ticker = Thread.ofPlatform().daemon().name("cluster-ticker-" + nodeId).start(this::tickLoop);
+        byte[] buf = new byte[8192];
+        while (active && !socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buf, buf.length);
+            try {
+                socket.receive(packet);
+                ElectionMessage msg = GSON.fromJson(
+                        new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8),
+                        ElectionMessage.class);
+                if (msg != null && msg.type != null && peers.containsKey(msg.from)) handle(msg);
+            } catch (IOException e) {
+                if (!active) break;
+            } catch (UncheckedIOException e) {
+                LOG.error("Cluster node {}: {}", nodeId, e.getMessage());
+            } catch (RuntimeException e) {
+                LOG.warn("Cluster node {}: bad election message: {}", nodeId, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        active = false;
+        if (socket != null) socket.close();
+        if (ticker != null) ticker.interrupt();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized String getLeaderClientEndpoint() {
+        return leaderClientEndpoint;
+    }
+
+    // ----- message handling -----
+
+    private synchronized void handle(ElectionMessage msg) {
+        InetSocketAddress repl = null;
+        if (ElectionMessage.HEARTBEAT.equals(msg.type)) {
+            // followers stream from the leader's replication endpoint, a heartbeat without one is useless
+            repl = parse(msg.replicationEndpoint);
+            if (repl == null) {
+                LOG.warn("Cluster node {}: ignoring heartbeat of node {} without valid replication endpoint: {}",
+                        nodeId, msg.from, msg.replicationEndpoint);
+                return;
+            }
+        }
+        if (msg.epoch > epoch) {
+            becomeFollower(msg.epoch);
+        }
+        switch (msg.type) {
+        case ElectionMessage.HEARTBEAT:
+            if (msg.epoch < epoch) {
+                // stale leader: tell it about the newer epoch so it steps down
+                send(msg.from, reply(ElectionMessage.HEARTBEAT_ACK, false));
+                return;
+            }
+            if (state != State.FOLLOWER) becomeFollower(msg.epoch);
+            if (leaderId != msg.from) {
+                leaderId = msg.from;
+                leaderClientEndpoint = msg.clientEndpoint;
+                LOG.info("Cluster node {}: following leader {} in epoch {}", nodeId, leaderId, epoch);
+                backup.follow(repl.getHostString(), repl.getPort());
+                store.setLeaderEndpoint(leaderClientEndpoint);
+            }
+            resetElectionDeadline();
+            ElectionMessage ack = reply(ElectionMessage.HEARTBEAT_ACK, true);
+            ack.sentAt = msg.sentAt;
+            send(msg.from, ack);
+            break;
+        case ElectionMessage.HEARTBEAT_ACK:
+            // timed from when the heartbeat was sent, a slow ack must not stretch the lease
+            if (state == State.LEADER && msg.epoch == epoch && msg.granted && msg.sentAt > 0) {
+                heartbeatAcks.merge(msg.from, Math.min(msg.sentAt, System.currentTimeMillis()), Math::max);
+                renewLease();
+            }
+            break;
+        case ElectionMessage.VOTE_REQUEST: {
+            boolean grant = msg.epoch == epoch
+                    && (votedFor < 0 || votedFor == msg.from)
+                    && isAtLeastAsNew(msg.lastEpoch, msg.lastSeq);
+            if (grant) {
+                try {
+                    saveState(epoch, msg.from);
+                    votedFor = msg.from;
+                    resetElectionDeadline();
+                } catch (UncheckedIOException e) {
+                    // a vote that may be forgotten after a restart could be given twice in this epoch
+                    LOG.error("Cluster node {}: refusing vote for node {}: {}", nodeId, msg.from, e.getMessage());
+                    grant = false;
+                }
+            }
+            send(msg.from, reply(ElectionMessage.VOTE, grant));
+            break;
+        }
+        case ElectionMessage.VOTE:
+            if (state == State.CANDIDATE && msg.epoch == epoch && msg.granted) {
+                votes.add(msg.from);
+                if (hasMajority(votes.size())) becomeLeader();
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private boolean isAtLeastAsNew(long candidateEpoch, long candidateSeq) {
+        long ownEpoch = store.getAppliedEpoch();
+        if (candidateEpoch != ownEpoch) return candidateEpoch > ownEpoch;
+        return candidateSeq >= store.getAppliedSeq();
+    }
+
+    // ----- timers -----
+
+    private void tickLoop() {
+        while (active) {
+            try {
+                Thread.sleep(TICK_MS);
+            } catch (InterruptedException ie) {
+                return;
+            }
+            try {
+                tick();
+            } catch (UncheckedIOException e) {
+                // the state is only changed after it was persisted, so the next tick simply retries
+                LOG.error("Cluster node {}: {}", nodeId, e.getMessage());
+            } catch (RuntimeException e) {
+                LOG.error("Cluster node {}: tick failed: {}", nodeId, e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void tick() {
+        long now = System.currentTimeMillis();
+        if (state == State.LEADER) {
+            if (now >= nextHeartbeat) {
+                broadcast(message(ElectionMessage.HEARTBEAT));
+                nextHeartbeat = now + HEARTBEAT_INTERVAL_MS;
+            }
+        } else if (now >= electionDeadline) {
+            startElection();
+        }
+    }
+
+    private void startElection() {
+        // back off first, a failing state file must not be retried on every tick
+        resetElectionDeadline();
+        saveState(epoch + 1, nodeId);
+        leaseExpiry = 0;
+        epoch++;
+        state = State.CANDIDATE;
+        votedFor = nodeId;
+        leaderId = -1;
+        votes.clear();
+        votes.add(nodeId);
+        electionStartedAt = System.currentTimeMillis();
+        LOG.info("Cluster node {}: starting election for epoch {} (log at {})", nodeId, epoch,
+                store.getAppliedEpoch() + "/" + store.getAppliedSeq());
+        if (hasMajority(votes.size())) {
+            becomeLeader();
+            return;
+        }
+        broadcast(message(ElectionMessage.VOTE_REQUEST));
+    }
+
+    private void becomeLeader() {
+        state = State.LEADER;
+        leaderId = nodeId;
+        leaderClientEndpoint = clientEndpoint;
+        long now = System.currentTimeMillis();
+        heartbeatAcks.clear();
+        // the votes answer the vote requests and count as acknowledgements sent at the election start
+        for (int voter : votes) heartbeatAcks.put(voter, electionStartedAt);
+        renewLease();
+        backup.stopFollowing();
+        store.promote(epoch);
+        LOG.info("Cluster node {}: elected leader for epoch {}", nodeId, epoch);
+        broadcast(message(ElectionMessage.HEARTBEAT));
+        nextHeartbeat = now + HEARTBEAT_INTERVAL_MS;
+    }
+
+    private void becomeFollower(long newEpoch) {
+        if (state == State.LEADER) {
+            LOG.info("Cluster node {}: stepping down, epoch {} is newer", nodeId, newEpoch);
+        }
+        boolean epochChanged = newEpoch != epoch;
+        if (epochChanged) saveState(newEpoch, -1);
+        leaseExpiry = 0;
+        epoch = newEpoch;
+        state = State.FOLLOWER;
+        if (epochChanged) {
+            votedFor = -1;
+            leaderId = -1;
+            store.setLeaderEndpoint("");
+        }
+        store.demote(newEpoch);
+        resetElectionDeadline();
+    }
+
+    /**
+     * Whether this node is leader and a majority acknowledged it within the lease period.
+     * Lock-free: writers call it while holding the store's write lock, and this node holds its
+     * monitor while promoting or demoting the store.
+     */
+    private boolean holdsLease() {
+        return System.currentTimeMillis() < leaseExpiry;
+    }
+
+    /**
+     * Recompute {@link #leaseExpiry} from the acknowledgements: the lease lasts until {@value #LEASE_MS} ms
+     * after the oldest of the majority's acknowledged heartbeats was sent.
+     */
+    private void renewLease() {
+        if (state != State.LEADER) return;
+        int othersNeeded = peers.size() / 2; // a majority including ourselves
+        if (othersNeeded == 0) {
+            leaseExpiry = Long.MAX_VALUE;
+            return;
+        }
+        List<Long> acks = new ArrayList<>(heartbeatAcks.size());
+        for (Map.Entry<Integer, Long> ack : heartbeatAcks.entrySet()) {
+            if (ack.getKey() != nodeId) acks.add(ack.getValue());
+        }
+        if (acks.size() < othersNeeded) return;
+        acks.sort(Comparator.reverseOrder());
+        leaseExpiry = acks.get(othersNeeded - 1) + LEASE_MS;
+    }
+
+    private boolean hasMajority(int count) {
+        return count > peers.size() / 2;
+    }
+
+    private void resetElectionDeadline() {
+        electionDeadline = System.currentTimeMillis()
+                + ThreadLocalRandom.current().nextLong(ELECTION_TIMEOUT_MIN_MS, ELECTION_TIMEOUT_MAX_MS);
+    }
+
+    // ----- messaging -----
+
+    private ElectionMessage message(String type) {
+        ElectionMessage m = new ElectionMessage();
+        m.type = type;
+        m.epoch = epoch;
+        m.from = nodeId;
+        m.lastEpoch = store.getAppliedEpoch();
+        m.lastSeq = store.getAppliedSeq();
+        m.replicationEndpoint = replicationEndpoint;
+        m.clientEndpoint = clientEndpoint;
+        m.sentAt = System.currentTimeMillis();
+        return m;
+    }
+
+    private ElectionMessage reply(String type, boolean granted) {
+        ElectionMessage m = message(type);
+        m.granted = granted;
+        return m;
+    }
+
+    private void broadcast(ElectionMessage msg) {
+        for (int peer : peers.keySet()) {
+            if (peer != nodeId) send(peer, msg);
+        }
+    }
+
+    private void send(int peer, ElectionMessage msg) {
+        byte[] out = GSON.toJson(msg).getBytes(StandardCharsets.UTF_8);
+        try {
+            socket.send(new DatagramPacket(out, out.length, peers.get(peer)));
+        } catch (IOException e) {
+            // peer unreachable; elections tolerate lost messages
+        }
+    }
+
+    /** {@code host:port} as unresolved address, or null if missing or malformed. */
+    private static InetSocketAddress parse(String hostPort) {
+        if (hostPort == null) return null;
+        int sep = hostPort.lastIndexOf(':');
+        if (sep <= 0) return null;
+        try {
+            return InetSocketAddress.createUnresolved(hostPort.substring(0, sep), Integer.parseInt(hostPort.substring(sep + 1)));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException or port out of range
+            return null;
+        }
+    }
+
+    // ----- persistent state -----
+
+    private void loadState() {
+        if (stateFile == null || !Files.exists(stateFile)) return;
+        Properties p = new Properties();
+        try (var in = Files.newInputStream(stateFile)) {
+            p.load(in);
+            epoch = Long.parseLong(p.getProperty("epoch", "0"));
+            votedFor = Integer.parseInt(p.getProperty("votedFor", "-1"));
+        } catch (IOException | NumberFormatException e) {
+            LOG.warn("Cluster node {}: ignoring unreadable state file: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Durably store {@code newEpoch} and {@code newVotedFor}; called before the in-memory state changes,
+     * so a failure leaves the node as it was.
+     *
+     * @throws UncheckedIOException if the state could not be persisted
+     */
+    private void saveState(long newEpoch, int newVotedFor) {
+        if (stateFile == null) return;
+        Properties p = new Properties();
+        p.setProperty("epoch", String.valueOf(newEpoch));
+        p.setProperty("votedFor", String.valueOf(newVotedFor));
+        try {
+            Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                p.store(Channels.newOutputStream(channel), "cluster node " + nodeId);
+                // the rename must not become durable before the content it points to
+                channel.force(true);
+            }
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot persist election state to " + stateFile, e);
+        }
+    }
+
+    /** Datagram exchanged between cluster nodes. */
+    static class ElectionMessage {
+        static final String HEARTBEAT = "heartbeat";
+        static final String HEARTBEAT_ACK = "heartbeatAck";
+        static final String VOTE_REQUEST = "voteRequest";
+        static final String VOTE = "vote";
+
+        String type;
+        long epoch;
+        int from;
+        long lastEpoch;
+        long lastSeq;
+        boolean granted;
+        String replicationEndpoint;
+        String clientEndpoint;
+        /** Sender's clock when sent; a heartbeat ack echoes the heartbeat's value. */
+        long sentAt;
+    }
+}
@@ -0,0 +1,79 @@
+package backend;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring mapping ticket ids to shards.
+ *
+ * - Every shard is placed on the ring {@code virtualNodes} times to even out the key distribution.
+ * - Adding or removing a shard only moves the keys of the neighbouring ring segments.
+ *
+ * @param <T> shard type
+ */
+public final class ConsistentHashRing<T> {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final NavigableMap<Long, T> ring = new TreeMap<>();
+    private final List<T> shards;
+
+    /**
+     * @param shards       shard name to shard; names must be stable across processes so that
+     *                     every router computes the same placement
+     * @param virtualNodes ring positions per shard
+     */
+    public ConsistentHashRing(Map<String, T> shards, int virtualNodes) {
+        if (shards == null || shards.isEmpty()) throw new IllegalArgumentException("at least one shard required");
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes must be positive");
+        for (Map.Entry<String, T> shard : shards.entrySet()) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.put(hash(shard.getKey() + "#" + v), shard.getValue());
+            }
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards.values()));
+    }
+
+    public ConsistentHashRing(Map<String, T> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Return the shard owning the given ticket id.
+     */
+    public T shardFor(int ticketId) {
+        Map.Entry<Long, T> e = ring.ceilingEntry(mix(ticketId));
+        return e != null ? e.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * All shards in registration order.
+     */
+    public List<T> getShards() {
+        return shards;
+    }
+
+    private static long hash(String key) {
+        // FNV-1a over the UTF-8 bytes, finalized with the murmur3 mixer for a better spread
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
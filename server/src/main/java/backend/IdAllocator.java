@@ -0,0 +1,19 @@
+package backend;
+
+/**
+ * Source of ticket ids for a {@link TicketStore}.
+ *
+ * Implementations must be thread-safe and never hand out the same id twice
+ * within their scope (a single JVM for {@link SequentialIdAllocator}, every node
+ * sharing a coordinator file for {@link LeasedIdAllocator}).
+ */
+public interface IdAllocator {
+
+    /**
+     * Allocate the next unused ticket id.
+     *
+     * @return a positive, unique ticket id
+     * @throws IllegalStateException if no further ids can be allocated
+     */
+    int nextId();
+}
@@ -0,0 +1,269 @@
+package backend;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import com.google.gson.Gson;
+
+import entities.Ticket;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import logging.AsyncLogger;
+
+/**
+ * JMS transport for the JSON ticket protocol, by default on an embedded in-VM broker.
+ *
+ * - Requests are {@link BytesMessage}s on queue {@value #REQUEST_QUEUE} holding the same encoded
+ *   request as a UDP datagram. Each request is answered with a BytesMessage to its
+ *   {@code JMSReplyTo}, carrying the request's {@code JMSCorrelationID} (or its message id if it
+ *   has none). Requests without reply destination are executed without answer.
+ * - Several consumer sessions receive asynchronously and only hand requests to the
+ *   {@link AdmissionController}; workers send the replies, so a slow request does not hold up
+ *   the consumers.
+ * - If the store is a {@link NotifyingTicketStore}, every change is published on topic
+ *   {@value #EVENT_TOPIC} as a TextMessage {@code {"type":"created|updated","ticket":{...}}} with
+ *   string property {@code eventType} and int property {@code ticketId} for message selectors.
+ * - Everything is sent non-persistent: a request is worthless once its client gave up.
+ * - Without {@code ticket.jms.url} an embedded broker is started, reachable in-VM as
+ *   {@value #IN_VM_URL} and over TCP on {@code ticket.jms.port} (default 61616).
+ */
+public class JmsRemoteAccess implements RemoteAccess {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(JmsRemoteAccess.class);
+
+    public static final String REQUEST_QUEUE = "ticket.requests";
+    public static final String EVENT_TOPIC = "ticket.events";
+    public static final String IN_VM_URL = "vm://0";
+    static final int DEFAULT_PORT = 61616;
+    static final int DEFAULT_CONSUMERS = 4;
+    static final String TRANSPORT = "jms";
+    private static final int MAX_REPLY_PRODUCERS = 256;
+
+    private final String brokerUrl;
+    private final String bindHost;
+    private final int port;
+    private final int consumers;
+    private final Gson gson = new Gson();
+    private final Object eventLock = new Object();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean active = true;
+    private AdmissionController admission;
+    private EmbeddedActiveMQ broker;
+    private Connection connection;
+    // idle reply channels; a worker takes one for a reply, so replies are sent in parallel
+    private final BlockingQueue<ReplyChannel> replyChannels = new LinkedBlockingQueue<>();
+    // guarded by eventLock
+    private Session eventSession;
+    private MessageProducer eventProducer;
+
+    /**
+     * Configure from system properties {@code ticket.jms.url} (external broker, default: embedded),
+     * {@code ticket.jms.port}, {@code ticket.jms.consumers} (default 4) and {@code ticket.server.bind}.
+     */
+    public JmsRemoteAccess(AdmissionController admission) {
+        this(System.getProperty("ticket.jms.url"), System.getProperty("ticket.server.bind"),
+                Integer.getInteger("ticket.jms.port", DEFAULT_PORT),
+                Integer.getInteger("ticket.jms.consumers", DEFAULT_CONSUMERS), admission);
+    }
+
+    /**
+     * @param brokerUrl broker to connect to; null or blank starts an embedded broker
+     * @param bindHost  address of the embedded broker's TCP acceptor (default: all interfaces)
+     * @param port      port of the embedded broker's TCP acceptor, 0 for in-VM access only
+     * @param admission admission control shared with other transports; if null, one is created
+     *                  for this transport in {@link #prepareStartup(TicketStore)}
+     */
+    public JmsRemoteAccess(String brokerUrl, String bindHost, int port, int consumers, AdmissionController admission) {
+        if (consumers < 1) throw new IllegalArgumentException("consumers must be positive");
+        this.brokerUrl = brokerUrl == null || brokerUrl.isBlank() ? null : brokerUrl.trim();
+        this.bindHost = bindHost == null || bindHost.isBlank() ? "0.0.0.0" : bindHost;
+        this.port = port;
+        this.consumers = consumers;
+        this.admission = admission;
+    }
+
+    @Override
+    public void prepareStartup(TicketStore ticketStore) {
+        if (admission == null) admission = new AdmissionController(new TicketRequestHandler(ticketStore), new ServerMetrics());
+        try {
+            String url = brokerUrl;
+            if (url == null) {
+                startBroker();
+                url = IN_VM_URL;
+            }
+            connection = new ActiveMQConnectionFactory(url).createConnection();
+            connection.setExceptionListener(e -> LOG.warn("JMS connection failed: {}", e.getMessage()));
+            for (int i = 0; i < consumers; i++) {
+                Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                MessageConsumer consumer = session.createConsumer(session.createQueue(REQUEST_QUEUE));
+                consumer.setMessageListener(this::onRequest);
+            }
+            for (int i = 0; i < consumers; i++) {
+                replyChannels.add(new ReplyChannel(connection.createSession(false, Session.AUTO_ACKNOWLEDGE)));
+            }
+            eventSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            eventProducer = eventSession.createProducer(eventSession.createTopic(EVENT_TOPIC));
+            eventProducer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            if (ticketStore instanceof NotifyingTicketStore notifying) notifying.addListener(this::publish);
+            connection.start();
+            LOG.info("JMS transport consuming {} on {} with {} consumer(s)", REQUEST_QUEUE,
+                    brokerUrl == null ? "embedded broker" : brokerUrl, consumers);
+        } catch (Exception e) {
+            shutdown();
+            throw new IllegalStateException("Cannot start JMS transport: " + e.getMessage(), e);
+        }
+    }
+
+    private void startBroker() throws Exception {
+        Configuration config = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .setJMXManagementEnabled(false)
+                .addAcceptorConfiguration("in-vm", IN_VM_URL);
+        if (port > 0) config.addAcceptorConfiguration("tcp", "tcp://" + bindHost + ":" + port);
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(config);
+        broker.start();
+        LOG.info("Embedded JMS broker running on {}{}", IN_VM_URL, port > 0 ? " and tcp://" + bindHost + ":" + port : "");
+    }
+
+    @Override
+    public void run() {
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        active = false;
+        try {
+            if (connection != null) connection.close();
+        } catch (JMSException e) {
+            LOG.warn("Error closing JMS connection: {}", e.getMessage());
+        }
+        try {
+            if (broker != null) broker.stop();
+        } catch (Exception e) {
+            LOG.warn("Error stopping embedded JMS broker: {}", e.getMessage());
+        }
+        stopped.countDown();
+    }
+
+    private void onRequest(Message message) {
+        try {
+            if (!(message instanceof BytesMessage bytes)) {
+                LOG.debug("Ignoring JMS message of type {}", message.getClass().getSimpleName());
+                return;
+            }
+            byte[] data = new byte[(int) bytes.getBodyLength()];
+            bytes.readBytes(data);
+            Destination replyTo = message.getJMSReplyTo();
+            String correlationId = message.getJMSCorrelationID() != null ? message.getJMSCorrelationID() : message.getJMSMessageID();
+            admission.submit(data, 0, data.length, TRANSPORT, String.valueOf(replyTo),
+                    response -> reply(response, replyTo, correlationId));
+        } catch (JMSException e) {
+            LOG.warn("Cannot read JMS request: {}", e.getMessage());
+        }
+    }
+
+    private void reply(byte[] response, Destination replyTo, String correlationId) {
+        if (replyTo == null || !active) return;
+        ReplyChannel channel;
+        try {
+            channel = replyChannels.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            channel.send(replyTo, response, correlationId);
+        } catch (JMSException e) {
+            // e.g. the temporary reply queue of a client that disconnected
+            LOG.debug("Cannot reply to {}: {}", replyTo, e.getMessage());
+        } finally {
+            replyChannels.add(channel);
+        }
+    }
+
+    private void publish(TicketChangeListener.Kind kind, Ticket ticket) {
+        if (!active) return;
+        String json = gson.toJson(new ChangeEvent(kind.wireName(), ticket));
+        synchronized (eventLock) {
+            try {
+                TextMessage message = eventSession.createTextMessage(json);
+                message.setStringProperty("eventType", kind.wireName());
+                message.setIntProperty("ticketId", ticket.getId());
+                eventProducer.send(message);
+            } catch (JMSException e) {
+                LOG.warn("Cannot publish change of ticket {}: {}", ticket.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A session for sending replies, used by one worker at a time. Producers are kept per reply
+     * destination: an anonymous producer would look the destination up on the broker for every
+     * message.
+     */
+    private static final class ReplyChannel {
+        final Session session;
+        final Map<Destination, MessageProducer> producers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Destination, MessageProducer> eldest) {
+                if (size() <= MAX_REPLY_PRODUCERS) return false;
+                try {
+                    eldest.getValue().close();
+                } catch (JMSException ignored) {
+                }
+                return true;
+            }
+        };
+
+        ReplyChannel(Session session) {
+            this.session = session;
+        }
+
+        void send(Destination replyTo, byte[] response, String correlationId) throws JMSException {
+            MessageProducer producer = producers.get(replyTo);
+            if (producer == null) {
+                producer = session.createProducer(replyTo);
+                producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+                producers.put(replyTo, producer);
+            }
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(response);
+            message.setJMSCorrelationID(correlationId);
+            producer.send(message);
+        }
+    }
+
+    /** Wire format of a change event. */
+    private static final class ChangeEvent {
+        final String type;
+        final Ticket ticket;
+
+        ChangeEvent(String type, Ticket ticket) {
+            this.type = type;
+            this.ticket = ticket;
+        }
+    }
+}
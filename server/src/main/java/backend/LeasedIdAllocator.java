@@ -0,0 +1,127 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Id allocator that leases blocks of ids from a shared coordinator file.
+ *
+ * - The coordinator file holds the next unleased id as a decimal number (the high watermark).
+ * - Leasing a block locks the file, advances the watermark by {@code blockSize} and forces it
+ *   to disk before any id of the block is handed out, so a crash can only skip ids, never reuse them.
+ * - Ids inside a lease are handed out locally with a single atomic update; the file is only
+ *   touched once per block, so nodes and shards never coordinate per ticket.
+ *
+ * Every process (and every shard inside a process) sharing the same coordinator file receives
+ * disjoint id ranges.
+ */
+public class LeasedIdAllocator implements IdAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    // FileChannel locks are held per JVM, so leases from the same process are serialized here
+    private static final Object JVM_LEASE_LOCK = new Object();
+
+    private final Path coordinatorFile;
+    private final int blockSize;
+    private volatile Lease lease = new Lease(0, 0);
+
+    public LeasedIdAllocator(Path coordinatorFile) {
+        this(coordinatorFile, DEFAULT_BLOCK_SIZE);
+    }
+
+    public LeasedIdAllocator(Path coordinatorFile, int blockSize) {
+        if (coordinatorFile == null) throw new IllegalArgumentException("coordinatorFile must not be null");
+        if (blockSize <= 0) throw new IllegalArgumentException("blockSize must be positive");
+        this.coordinatorFile = coordinatorFile;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int nextId() {
+        while (true) {
+            Lease current = lease;
+            // never count past the limit, so the counter cannot wrap around into negative ids
+            int id = current.next.getAndUpdate(n -> n < current.limit ? n + 1 : n);
+            if (id < current.limit) return id;
+            renew(current);
+        }
+    }
+
+    public Path getCoordinatorFile() {
+        return coordinatorFile;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    private synchronized void renew(Lease exhausted) {
+        // another thread may already have renewed the lease while we were waiting
+        if (lease != exhausted) return;
+        lease = leaseBlock();
+    }
+
+    private Lease leaseBlock() {
+        synchronized (JVM_LEASE_LOCK) {
+            try (FileChannel channel = FileChannel.open(coordinatorFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    long start = readWatermark(channel);
+                    long end = start + blockSize;
+                    if (end > Integer.MAX_VALUE) {
+                        throw new IllegalStateException("Ticket id space exhausted in " + coordinatorFile);
+                    }
+                    writeWatermark(channel, end);
+                    return new Lease((int) start, (int) end);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to lease ticket ids from " + coordinatorFile, e);
+            }
+        }
+    }
+
+    private static long readWatermark(FileChannel channel) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(channel.size(), 64));
+        channel.read(buf, 0);
+        String text = new String(buf.array(), 0, buf.position(), StandardCharsets.US_ASCII).trim();
+        if (text.isEmpty()) return 1;
+        try {
+            return Math.max(1, Long.parseLong(text));
+        } catch (NumberFormatException nfe) {
+            throw new IOException("Corrupt id coordinator file, content: " + text, nfe);
+        }
+    }
+
+    private static void writeWatermark(FileChannel channel, long watermark) throws IOException {
+        // overwrite in place and only then cut off the rest, so a crash never leaves the file empty
+        ByteBuffer out = ByteBuffer.wrap((watermark + "\n").getBytes(StandardCharsets.US_ASCII));
+        int length = out.remaining();
+        while (out.hasRemaining()) {
+            channel.write(out, out.position());
+        }
+        channel.truncate(length);
+        channel.force(true);
+    }
+
+    /** A contiguous range [next, limit) of ids owned by this allocator. */
+    private static final class Lease {
+        final AtomicInteger next;
+        final int limit;
+
+        Lease(int start, int limit) {
+            this.next = new AtomicInteger(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package backend;
+
+/**
+ * Thrown when a write reaches a server that is currently a read-only replica.
+ */
+public class NotPrimaryException extends IllegalStateException {
+
+    private static final long serialVersionUID = 4203417285731106113L;
+
+    public NotPrimaryException(String message) {
+        super(message);
+    }
+}
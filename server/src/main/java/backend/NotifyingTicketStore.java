@@ -0,0 +1,108 @@
+package backend;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import entities.Priority;
+import entities.Status;
+import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
+import entities.Type;
+import logging.AsyncLogger;
+
+/**
+ * {@link TicketStore} decorator that reports every successful change to its
+ * {@link TicketChangeListener}s, e.g. to publish change events to clients.
+ *
+ * - Reads are passed through untouched.
+ * - A failing listener is logged and does not affect the change or the other listeners.
+ * - Changes applied to the wrapped store directly (e.g. by replication) are not reported.
+ */
+public class NotifyingTicketStore implements TicketStore {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(NotifyingTicketStore.class);
+
+    private final TicketStore delegate;
+    private final List<TicketChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public NotifyingTicketStore(TicketStore delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+    }
+
+    public void addListener(TicketChangeListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    public void removeListener(TicketChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Ticket storeNewTicket(String reporter, String topic, String description, Type type, Priority priority) {
+        Ticket ticket = delegate.storeNewTicket(reporter, topic, description, type, priority);
+        fire(TicketChangeListener.Kind.CREATED, ticket);
+        return ticket;
+    }
+
+    @Override
+    public Ticket storeTicket(Ticket ticket) {
+        Ticket stored = delegate.storeTicket(ticket);
+        fire(TicketChangeListener.Kind.UPDATED, stored);
+        return stored;
+    }
+
+    @Override
+    public void updateTicketStatus(int ticketId, Status newStatus) throws UnknownTicketException, IllegalStateException {
+        delegate.updateTicketStatus(ticketId, newStatus);
+        if (!listeners.isEmpty()) fire(TicketChangeListener.Kind.UPDATED, delegate.findTicketById(ticketId));
+    }
+
+    @Override
+    public Ticket transitionTicketStatus(int ticketId, Set<Status> expected, Status newStatus)
+            throws UnknownTicketException, IllegalStateException {
+        Ticket ticket = delegate.transitionTicketStatus(ticketId, expected, newStatus);
+        fire(TicketChangeListener.Kind.UPDATED, ticket);
+        return ticket;
+    }
+
+    @Override
+    public List<Ticket> getAllTickets() {
+        return delegate.getAllTickets();
+    }
+
+    @Override
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) {
+        return delegate.getTicketPage(offset, limit, sort);
+    }
+
+    @Override
+    public TicketPage getTicketPageAfter(Ticket after, int limit, TicketSort sort) {
+        return delegate.getTicketPageAfter(after, limit, sort);
+    }
+
+    @Override
+    public List<Ticket> searchTickets(TicketQuery query, TicketSort sort, int limit, BooleanSupplier cancelled) {
+        return delegate.searchTickets(query, sort, limit, cancelled);
+    }
+
+    @Override
+    public Ticket findTicketById(int id) {
+        return delegate.findTicketById(id);
+    }
+
+    private void fire(TicketChangeListener.Kind kind, Ticket ticket) {
+        if (ticket == null) return;
+        for (TicketChangeListener listener : listeners) {
+            try {
+                listener.ticketChanged(kind, ticket);
+            } catch (RuntimeException e) {
+                LOG.warn("Ticket change listener failed for ticket {}: {}", ticket.getId(), e.getMessage(), e);
+            }
+        }
+    }
+}
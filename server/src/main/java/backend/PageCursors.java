@@ -0,0 +1,98 @@
+package backend;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketSort;
+
+/**
+ * Serves offset pages from a keyset source ({@link TicketStore#getTicketPageAfter}) by remembering
+ * the last ticket before the offsets handed out so far.
+ *
+ * - A page right after one served before, as when a client scrolls or streams, costs one keyset
+ *   page of {@code limit} tickets, however deep it is.
+ * - Other offsets walk from the nearest remembered cursor below in steps of at least
+ *   {@value #MIN_STEP} tickets and remember the cursors passed, so memory stays bounded by the step.
+ * - Positions change with every write, so {@link #invalidate()} must be called after each one;
+ *   cursors taken while a write was in progress are not remembered. At most
+ *   {@code maxCursors} cursors are kept per order. Thread-safe.
+ */
+final class PageCursors {
+
+    /** Keyset page source, usually a store's {@link TicketStore#getTicketPageAfter}. */
+    @FunctionalInterface
+    interface Source {
+        TicketPage after(Ticket after, int limit, TicketSort sort);
+    }
+
+    private static final int MIN_STEP = 64;
+
+    private final int maxCursors;
+    private final AtomicLong version = new AtomicLong();
+    // per order: offset to the last ticket before it
+    private final Map<TicketSort, NavigableMap<Integer, Ticket>> cursors = new HashMap<>();
+
+    PageCursors(int maxCursors) {
+        this.maxCursors = maxCursors;
+    }
+
+    /** The tickets at positions {@code offset .. offset + limit} in {@code sort} order, taken from {@code source}. */
+    TicketPage page(Source source, int offset, int limit, TicketSort sort) {
+        long seen = version.get();
+        int position = 0;
+        Ticket cursor = null;
+        Map.Entry<Integer, Ticket> start = floor(sort, offset);
+        if (start != null) {
+            position = start.getKey();
+            cursor = start.getValue();
+        }
+        int total = -1;
+        int step = Math.max(limit, MIN_STEP);
+        while (position < offset) {
+            int wanted = Math.min(step, offset - position);
+            TicketPage skipped = source.after(cursor, wanted, sort);
+            total = skipped.getTotal();
+            List<Ticket> tickets = skipped.getTickets();
+            if (tickets.isEmpty()) return new TicketPage(offset, total, List.of());
+            position += tickets.size();
+            cursor = tickets.get(tickets.size() - 1);
+            remember(seen, sort, position, cursor);
+            if (tickets.size() < wanted) return new TicketPage(offset, total, List.of());
+        }
+        TicketPage page = source.after(cursor, limit, sort);
+        List<Ticket> tickets = page.getTickets();
+        if (!tickets.isEmpty()) remember(seen, sort, offset + tickets.size(), tickets.get(tickets.size() - 1));
+        return new TicketPage(offset, page.getTotal(), tickets);
+    }
+
+    /** Forget all cursors; call after every write. */
+    void invalidate() {
+        version.incrementAndGet();
+        synchronized (cursors) {
+            cursors.clear();
+        }
+    }
+
+    private Map.Entry<Integer, Ticket> floor(TicketSort sort, int offset) {
+        synchronized (cursors) {
+            NavigableMap<Integer, Ticket> known = cursors.get(sort);
+            return known == null ? null : known.floorEntry(offset);
+        }
+    }
+
+    private void remember(long seen, TicketSort sort, int offset, Ticket last) {
+        synchronized (cursors) {
+            // a write since the walk started may have shifted the positions
+            if (version.get() != seen) return;
+            NavigableMap<Integer, Ticket> known = cursors.computeIfAbsent(sort, k -> new TreeMap<>());
+            if (known.size() >= maxCursors) known.clear();
+            known.put(offset, last);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import com.google.gson.JsonObject;
+
+import entities.Priority;
+import entities.Status;
+import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
+import entities.Type;
+import protocol.ChunkAssembler;
+import protocol.DatagramChunk;
+import protocol.DatagramHeader;
+import protocol.PayloadCodec;
+
+/**
+ * TicketStore proxy for a ticket server running in another process (e.g. a shard).
+ *
+ * - Speaks the JSON protocol of {@link TicketRequestHandler} over UDP.
+ * - One request is in flight at a time per instance; callers needing parallelism
+ *   (e.g. {@link ShardedTicketStore}) use one instance per remote node.
+ * - Requests carry a {@link DatagramHeader} with a fresh request id; responses with another id
+ *   (late answers of requests that timed out) are discarded.
+ * - Large responses arrive as {@link DatagramChunk}s and are reassembled; missing chunks are
+ *   requested again every {@value #RESEND_AFTER_MS} ms until the request times out.
+ * - Pages are fetched in requests of at most {@value #PAGE_REQUEST_SIZE} tickets.
+ * - Transport failures surface as {@link UncheckedIOException}.
+ */
+public class RemoteTicketStore implements TicketStore {
+
+    private static final int DEFAULT_TIMEOUT_MS = 5000;
+    private static final int RESEND_AFTER_MS = 200;
+    private static final int MAX_RESPONSE_SIZE = 65507;
+    private static final int PAGE_REQUEST_SIZE = 50;
+
+    private final InetSocketAddress remote;
+    private final DatagramSocket socket;
+    private final int chunkSize = DatagramChunk.chunkSize();
+    private final ChunkAssembler<Long> assembler = new ChunkAssembler<>(DEFAULT_TIMEOUT_MS, 4);
+    private long nextRequestId;
+
+    public RemoteTicketStore(String host, int port) throws SocketException {
+        this.remote = new InetSocketAddress(host, port);
+        this.socket = new DatagramSocket();
+        this.socket.connect(remote);
+    }
+
+    @Override
+    public Ticket storeNewTicket(String reporter, String topic, String description, Type type, Priority priority) {
+        return request("create", new Ticket(0, reporter, topic, description, type, priority)).ticket;
+    }
+
+    @Override
+    public Ticket storeTicket(Ticket ticket) {
+        if (ticket == null || ticket.getId() <= 0) throw new IllegalArgumentException("ticket with positive id required");
+        return request("put", ticket).ticket;
+    }
+
+    @Override
+    public void updateTicketStatus(int ticketId, Status newStatus) throws UnknownTicketException, IllegalStateException {
+        transitionTicketStatus(ticketId, Collections.emptySet(), newStatus);
+    }
+
+    @Override
+    public Ticket transitionTicketStatus(int ticketId, Set<Status> expected, Status newStatus)
+            throws UnknownTicketException, IllegalStateException {
+        if (newStatus == null) throw new IllegalStateException("newStatus must not be null");
+        TicketRequestHandler.Response r = send("transition",
+                new TicketRequestHandler.TransitionPayload(ticketId, expected, newStatus));
+        if (TicketRequestHandler.ERROR_UNKNOWN_TICKET.equals(r.errorCode)) throw new UnknownTicketException(r.error);
+        return check(r).ticket;
+    }
+
+    @Override
+    public List<Ticket> getAllTickets() {
+        List<Ticket> tickets = request("list", null).tickets;
+        return tickets == null ? Collections.emptyList() : tickets;
+    }
+
+    @Override
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) {
+        List<Ticket> tickets = new ArrayList<>();
+        int total = 0;
+        while (tickets.size() < limit) {
+            int from = offset + tickets.size();
+            TicketRequestHandler.Response r = request("page",
+                    new TicketRequestHandler.PagePayload(from, Math.min(PAGE_REQUEST_SIZE, limit - tickets.size()), sort));
+            total = r.total == null ? 0 : r.total;
+            if (r.tickets == null || r.tickets.isEmpty()) break;
+            tickets.addAll(r.tickets);
+            if (from + r.tickets.size() >= total) break;
+        }
+        return new TicketPage(offset, total, tickets);
+    }
+
+    @Override
+    public TicketPage getTicketPageAfter(Ticket after, int limit, TicketSort sort) {
+        List<Ticket> tickets = new ArrayList<>();
+        int total = 0;
+        Ticket cursor = after;
+        while (tickets.size() < limit) {
+            int wanted = Math.min(PAGE_REQUEST_SIZE, limit - tickets.size());
+            TicketRequestHandler.PagePayload payload = cursor == null
+                    ? new TicketRequestHandler.PagePayload(0, wanted, sort)
+                    : new TicketRequestHandler.PagePayload(cursor, wanted, sort);
+            TicketRequestHandler.Response r = request("page", payload);
+            total = r.total == null ? 0 : r.total;
+            if (r.tickets == null || r.tickets.isEmpty()) break;
+            tickets.addAll(r.tickets);
+            if (r.tickets.size() < wanted) break;
+            cursor = r.tickets.get(r.tickets.size() - 1);
+        }
+        return new TicketPage(0, total, tickets);
+    }
+
+    /** Searches on the remote node; {@code cancelled} is checked before sending only. */
+    @Override
+    public List<Ticket> searchTickets(TicketQuery query, TicketSort sort, int limit, BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) throw new CancellationException("Search cancelled");
+        List<Ticket> tickets = request("search", new TicketRequestHandler.SearchPayload(
+                String.join(" ", query.getPrefixes()), query.getType(), sort, limit, 0)).tickets;
+        return tickets == null ? Collections.emptyList() : tickets;
+    }
+
+    @Override
+    public Ticket findTicketById(int id) {
+        return request("get", id).ticket;
+    }
+
+    public void close() {
+        socket.close();
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteTicketStore[" + remote + "]";
+    }
+
+    private TicketRequestHandler.Response request(String requestType, Object payload) {
+        return check(send(requestType, payload));
+    }
+
+    private static TicketRequestHandler.Response check(TicketRequestHandler.Response r) {
+        if (r.errorCode == null) return r;
+        if (TicketRequestHandler.ERROR_INVALID_STATE.equals(r.errorCode)) throw new IllegalStateException(r.error);
+        throw new IllegalStateException(r.errorCode + ": " + r.error);
+    }
+
+    private synchronized TicketRequestHandler.Response send(String requestType, Object payload) {
+        JsonObject req = new JsonObject();
+        req.addProperty("requestType", requestType);
+        req.add("payload", TicketRequestHandler.GSON.toJsonTree(payload));
+        long requestId = ++nextRequestId;
+        byte[] out = DatagramHeader.wrap(requestId, 0, TicketRequestHandler.GSON.toJson(req).getBytes(StandardCharsets.UTF_8));
+        try {
+            socket.send(new DatagramPacket(out, out.length));
+            byte[] response = receive(requestId);
+            TicketRequestHandler.Response r = TicketRequestHandler.GSON.fromJson(
+                    PayloadCodec.reader(response, 0, response.length), TicketRequestHandler.Response.class);
+            if (r == null) throw new IOException("Empty response from " + remote);
+            return r;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Request " + requestType + " to " + remote + " failed", e);
+        } finally {
+            assembler.discard(requestId);
+        }
+    }
+
+    /** The response to {@code requestId}, without header; other datagrams are dropped. */
+    private byte[] receive(long requestId) throws IOException {
+        long deadline = System.nanoTime() + DEFAULT_TIMEOUT_MS * 1_000_000L;
+        byte[] buf = new byte[MAX_RESPONSE_SIZE];
+        DatagramPacket in = new DatagramPacket(buf, buf.length);
+        while (true) {
+            long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+            if (remainingMs <= 0) throw new SocketTimeoutException("No response within " + DEFAULT_TIMEOUT_MS + " ms");
+            socket.setSoTimeout((int) Math.min(remainingMs, RESEND_AFTER_MS));
+            try {
+                in.setLength(buf.length);
+                socket.receive(in);
+            } catch (SocketTimeoutException idle) {
+                int[] missing = assembler.missing(requestId);
+                if (missing != null && missing.length > 0) {
+                    byte[] resend = DatagramChunk.resend(0, requestId, missing, chunkSize);
+                    socket.send(new DatagramPacket(resend, resend.length));
+                }
+                continue;
+            }
+            int length = in.getLength();
+            boolean chunk = DatagramChunk.isChunk(buf, 0, length);
+            if (!chunk && !DatagramHeader.isPresent(buf, 0, length)) continue;
+            // late response of an earlier request that timed out
+            if (DatagramHeader.requestId(buf, 0) != requestId) continue;
+            if (!chunk) return Arrays.copyOfRange(buf, DatagramHeader.BYTES, length);
+            byte[] message = assembler.accept(requestId, buf, 0, length, System.nanoTime());
+            if (message != null) return message;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package backend;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import entities.Priority;
+import entities.Status;
+import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
+import entities.Type;
+import tracing.Trace;
+
+/**
+ * TicketStore decorator adding primary-backup replication.
+ *
+ * - As {@link Role#PRIMARY} every mutation is applied to the local store and appended to an ordered
+ *   {@link ReplicationLog}, which {@link ReplicationPrimary} ships to the connected backups.
+ * - In {@link Mode#SEMI_SYNC} a write only returns once at least one backup acknowledged it, or the
+ *   ack timeout elapsed (the write then degrades to asynchronous and is counted).
+ * - As {@link Role#BACKUP} writes are refused with {@link NotPrimaryException}; reads are served from
+ *   the local copy that {@link ReplicationBackup} keeps up to date.
+ * - Every operation is stamped with the epoch of the primary that wrote it. A {@link ClusterNode}
+ *   promotes and demotes the store as leadership changes; operations from older epochs are refused.
+ */
+public class ReplicatingTicketStore implements TicketStore, ReplicationStatusMXBean {
+
+    public enum Role { PRIMARY, BACKUP }
+
+    public enum Mode { ASYNC, SEMI_SYNC }
+
+    private static final int DEFAULT_LOG_CAPACITY = 100_000;
+
+    private volatile TicketStore delegate;
+    private final Supplier<TicketStore> storeFactory;
+    private volatile IdAllocator idAllocator;
+    private final ReplicationLog log = new ReplicationLog(DEFAULT_LOG_CAPACITY);
+    private final Object writeLock = new Object();
+    private final Object ackMonitor = new Object();
+    private final ConcurrentMap<String, AtomicLong> backupAcks = new ConcurrentHashMap<>();
+    private final AtomicLong semiSyncTimeouts = new AtomicLong();
+
+    private final Mode mode;
+    private final long ackTimeoutMs;
+    private volatile Role role;
+    private volatile long epoch;
+    private volatile BooleanSupplier writeLease = () -> true;
+    private volatile String primaryAddress = "";
+    private volatile String leaderEndpoint = "";
+
+    // backup side progress (the applied position is the end of our own log)
+    private volatile long primarySeq;
+    private volatile long lastAppliedTimestamp;
+
+    public ReplicatingTicketStore(TicketStore delegate, IdAllocator idAllocator, Role role, Mode mode, long ackTimeoutMs) {
+        this(delegate, null, idAllocator, role, mode, ackTimeoutMs);
+    }
+
+    /**
+     * @param storeFactory creates an empty local store; when given, snapshots replace the local
+     *                     state entirely (required when a fenced primary rejoins as backup)
+     */
+    public ReplicatingTicketStore(TicketStore delegate, Supplier<TicketStore> storeFactory, IdAllocator idAllocator,
+                                  Role role, Mode mode, long ackTimeoutMs) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.storeFactory = storeFactory;
+        this.idAllocator = Objects.requireNonNull(idAllocator, "idAllocator must not be null");
+        this.role = Objects.requireNonNull(role, "role must not be null");
+        this.mode = Objects.requireNonNull(mode, "mode must not be null");
+        this.ackTimeoutMs = ackTimeoutMs;
+    }
+
+    // ----- TicketStore -----
+
+    @Override
+    public Ticket storeNewTicket(String reporter, String topic, String description, Type type, Priority priority) {
+        if (reporter == null) reporter = "unknown";
+        if (topic == null) topic = "";
+        long seq;
+        Ticket stored;
+        synchronized (writeLock) {
+            requirePrimary();
+            stored = delegate.storeTicket(new Ticket(idAllocator.nextId(), reporter, topic, description, type, priority));
+            seq = append(ReplicationMessage.create(stored.clone()));
+        }
+        awaitBackupAck(seq);
+        return stored;
+    }
+
+    @Override
+    public Ticket storeTicket(Ticket ticket) {
+        long seq;
+        Ticket stored;
+        synchronized (writeLock) {
+            requirePrimary();
+            stored = delegate.storeTicket(ticket);
+            seq = append(ReplicationMessage.create(stored.clone()));
+        }
+        awaitBackupAck(seq);
+        return stored;
+    }
+
+    @Override
+    public void updateTicketStatus(int ticketId, Status newStatus) throws UnknownTicketException, IllegalStateException {
+        long seq;
+        synchronized (writeLock) {
+            requirePrimary();
+            delegate.updateTicketStatus(ticketId, newStatus);
+            seq = append(ReplicationMessage.status(ticketId, newStatus));
+        }
+        awaitBackupAck(seq);
+    }
+
+    @Override
+    public Ticket transitionTicketStatus(int ticketId, Set<Status> expected, Status newStatus)
+            throws UnknownTicketException, IllegalStateException {
+        long seq;
+        Ticket updated;
+        synchronized (writeLock) {
+            requirePrimary();
+            updated = delegate.transitionTicketStatus(ticketId, expected, newStatus);
+            seq = append(ReplicationMessage.status(ticketId, newStatus));
+        }
+        awaitBackupAck(seq);
+        return updated;
+    }
+
+    @Override
+    public List<Ticket> getAllTickets() {
+        return delegate.getAllTickets();
+    }
+
+    @Override
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) {
+        return delegate.getTicketPage(offset, limit, sort);
+    }
+
+    @Override
+    public TicketPage getTicketPageAfter(Ticket after, int limit, TicketSort sort) {
+        return delegate.getTicketPageAfter(after, limit, sort);
+    }
+
+    @Override
+    public List<Ticket> searchTickets(TicketQuery query, TicketSort sort, int limit, BooleanSupplier cancelled) {
+        return delegate.searchTickets(query, sort, limit, cancelled);
+    }
+
+    @Override
+    public Ticket findTicketById(int id) {
+        return delegate.findTicketById(id);
+    }
+
+    // ----- primary side -----
+
+    ReplicationLog getLog() {
+        return log;
+    }
+
+    boolean isPrimary() {
+        return role == Role.PRIMARY;
+    }
+
+    /**
+     * Consistent copy of all tickets together with the sequence number it reflects.
+     */
+    ReplicationMessage snapshot() {
+        synchronized (writeLock) {
+            return ReplicationMessage.snapshot(log.getLastSeq(), log.getLastEpoch(), delegate.getAllTickets());
+        }
+    }
+
+    /**
+     * Make this store the primary for {@code newEpoch}, continuing the log it replicated so far.
+     */
+    void promote(long newEpoch) {
+        synchronized (writeLock) {
+            epoch = newEpoch;
+            if (!(idAllocator instanceof LeasedIdAllocator)) {
+                // continue after the highest replicated id; a leased allocator never overlaps anyway
+                int maxId = 0;
+                for (Ticket t : delegate.getAllTickets()) maxId = Math.max(maxId, t.getId());
+                idAllocator = new SequentialIdAllocator(maxId + 1);
+            }
+            backupAcks.clear();
+            role = Role.PRIMARY;
+        }
+    }
+
+    /**
+     * Stop accepting writes; the store follows the primary of {@code newEpoch} from now on.
+     */
+    void demote(long newEpoch) {
+        synchronized (writeLock) {
+            epoch = Math.max(epoch, newEpoch);
+            role = Role.BACKUP;
+        }
+        synchronized (ackMonitor) {
+            ackMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Additional condition for accepting writes as primary, e.g. a valid leader lease.
+     */
+    void setWriteLease(BooleanSupplier writeLease) {
+        this.writeLease = writeLease == null ? () -> true : writeLease;
+    }
+
+    private long append(ReplicationMessage op) {
+        op.epoch = epoch;
+        return log.append(op);
+    }
+
+    void backupConnected(String backup) {
+        backupAcks.put(backup, new AtomicLong());
+    }
+
+    void backupDisconnected(String backup) {
+        backupAcks.remove(backup);
+        synchronized (ackMonitor) {
+            ackMonitor.notifyAll();
+        }
+    }
+
+    void backupAcknowledged(String backup, long seq) {
+        AtomicLong acked = backupAcks.get(backup);
+        if (acked != null) acked.accumulateAndGet(seq, Math::max);
+        synchronized (ackMonitor) {
+            ackMonitor.notifyAll();
+        }
+    }
+
+    private void awaitBackupAck(long seq) {
+        Trace.markCurrent("store.apply");
+        if (mode != Mode.SEMI_SYNC) return;
+        try {
+            awaitAck(seq);
+        } finally {
+            Trace.markCurrent("store.replicate");
+        }
+    }
+
+    private void awaitAck(long seq) {
+        long deadline = System.currentTimeMillis() + ackTimeoutMs;
+        synchronized (ackMonitor) {
+            while (!backupAcks.isEmpty() && maxAckedSeq() < seq) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    semiSyncTimeouts.incrementAndGet();
+                    return;
+                }
+                try {
+                    ackMonitor.wait(remaining);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private long maxAckedSeq() {
+        long max = 0;
+        for (AtomicLong acked : backupAcks.values()) max = Math.max(max, acked.get());
+        return max;
+    }
+
+    private void requirePrimary() {
+        if (role != Role.PRIMARY) {
+            if (!leaderEndpoint.isEmpty()) {
+                throw new NotPrimaryException("This server is a read-only replica; send writes to the leader at " + leaderEndpoint);
+            }
+            throw new NotPrimaryException("This server is a read-only replica; send writes to the primary (replication endpoint "
+                    + primaryAddress + ")");
+        }
+        if (!writeLease.getAsBoolean()) {
+            throw new NotPrimaryException("This server lost its leader lease for epoch " + epoch + " and refuses writes");
+        }
+    }
+
+    // ----- backup side -----
+
+    long getAppliedSeq() {
+        return log.getLastSeq();
+    }
+
+    long getAppliedEpoch() {
+        return log.getLastEpoch();
+    }
+
+    void setPrimaryAddress(String primaryAddress) {
+        this.primaryAddress = primaryAddress == null ? "" : primaryAddress;
+    }
+
+    /**
+     * Client endpoint of the current cluster leader, reported to clients whose writes are refused.
+     */
+    void setLeaderEndpoint(String leaderEndpoint) {
+        this.leaderEndpoint = leaderEndpoint == null ? "" : leaderEndpoint;
+    }
+
+    /**
+     * Install a snapshot received from the primary.
+     */
+    void applySnapshot(ReplicationMessage snapshot) {
+        synchronized (writeLock) {
+            if (storeFactory != null) delegate = storeFactory.get();
+            if (snapshot.tickets != null) {
+                for (Ticket t : snapshot.tickets) delegate.storeTicket(t);
+            }
+            log.resetTo(snapshot.seq, snapshot.epoch);
+            primarySeq = Math.max(primarySeq, snapshot.seq);
+            lastAppliedTimestamp = snapshot.timestamp;
+        }
+    }
+
+    /**
+     * Apply the next operation of the primary's stream.
+     *
+     * @return false if the operation does not directly follow the last applied one or was written
+     *         by a primary of an older epoch
+     */
+    boolean applyOperation(ReplicationMessage op) throws UnknownTicketException {
+        synchronized (writeLock) {
+            if (op.epoch < log.getLastEpoch()) return false; // fenced primary
+            long appliedSeq = log.getLastSeq();
+            if (op.seq <= appliedSeq) return true; // duplicate after reconnect
+            if (op.seq != appliedSeq + 1) return false;
+            long primaryTimestamp = op.timestamp;
+            if (ReplicationMessage.CREATE.equals(op.type)) {
+                delegate.storeTicket(op.ticket);
+            } else if (ReplicationMessage.STATUS.equals(op.type)) {
+                delegate.updateTicketStatus(op.id, op.status);
+            }
+            // keep our own log in step so this node can serve backups after a promotion
+            log.append(op);
+            primarySeq = Math.max(primarySeq, op.seq);
+            lastAppliedTimestamp = primaryTimestamp;
+            return true;
+        }
+    }
+
+    void primaryHeartbeat(long seq) {
+        primarySeq = Math.max(primarySeq, seq);
+        if (log.getLastSeq() >= seq) lastAppliedTimestamp = System.currentTimeMillis();
+    }
+
+    // ----- ReplicationStatusMXBean -----
+
+    @Override
+    public String getRole() {
+        return role.name();
+    }
+
+    @Override
+    public String getMode() {
+        return mode.name();
+    }
+
+    @Override
+    public long getLastSequence() {
+        return log.getLastSeq();
+    }
+
+    @Override
+    public long getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    public int getConnectedBackups() {
+        return backupAcks.size();
+    }
+
+    @Override
+    public long getReplicationLagOperations() {
+        if (role == Role.PRIMARY) {
+            long last = log.getLastSeq();
+            long lag = 0;
+            for (AtomicLong acked : backupAcks.values()) lag = Math.max(lag, last - acked.get());
+            return lag;
+        }
+        return Math.max(0, primarySeq - log.getLastSeq());
+    }
+
+    @Override
+    public long getReplicationLagMillis() {
+        if (role == Role.PRIMARY || log.getLastSeq() >= primarySeq) return 0;
+        return Math.max(0, System.currentTimeMillis() - lastAppliedTimestamp);
+    }
+
+    @Override
+    public long getSemiSyncTimeouts() {
+        return semiSyncTimeouts.get();
+    }
+}
@@ -0,0 +1,190 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import com.google.gson.Gson;
+
+import logging.AsyncLogger;
+
+/**
+ * Keeps a backup {@link ReplicatingTicketStore} in step with its primary.
+ *
+ * - Connects to the primary's replication port, requests every operation after the last applied one
+ *   and applies the stream strictly in sequence order, acknowledging after each received batch.
+ * - A gap in the stream or a lost connection triggers a reconnect which resumes (or snapshots) from
+ *   the last applied sequence number.
+ * - A primary announcing an epoch older than the one this node knows is fenced: the stream is dropped.
+ * - The primary can be changed at runtime with {@link #follow(String, int)} (e.g. after a failover).
+ */
+public class ReplicationBackup implements RemoteAccess {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(ReplicationBackup.class);
+
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 500;
+    private static final Gson GSON = new Gson();
+
+    private final ReplicatingTicketStore store;
+    private final Object targetMonitor = new Object();
+    private volatile InetSocketAddress primary;
+    private volatile boolean active = true;
+    private volatile Socket socket;
+
+    /**
+     * Create a backup without a primary yet; call {@link #follow(String, int)} once it is known.
+     */
+    public ReplicationBackup(ReplicatingTicketStore store) {
+        this.store = Objects.requireNonNull(store, "store must not be null");
+    }
+
+    public ReplicationBackup(ReplicatingTicketStore store, String primaryHost, int primaryPort) {
+        this(store);
+        retarget(Objects.requireNonNull(primaryHost, "primaryHost must not be null"), primaryPort);
+    }
+
+    /**
+     * Switch to (or start) following the primary at the given replication endpoint.
+     */
+    public void follow(String primaryHost, int primaryPort) {
+        retarget(primaryHost, primaryPort);
+    }
+
+    // private, so the constructor does not call a method a subclass may override
+    private void retarget(String primaryHost, int primaryPort) {
+        InetSocketAddress target = InetSocketAddress.createUnresolved(primaryHost, primaryPort);
+        synchronized (targetMonitor) {
+            if (target.equals(primary)) return;
+            primary = target;
+            store.setPrimaryAddress(primaryHost + ":" + primaryPort);
+            targetMonitor.notifyAll();
+        }
+        closeSocket();
+    }
+
+    /**
+     * Stop following any primary, e.g. because this node was promoted.
+     */
+    public void stopFollowing() {
+        synchronized (targetMonitor) {
+            primary = null;
+        }
+        closeSocket();
+    }
+
+    @Override
+    public void prepareStartup(TicketStore ticketStore) {
+        // nothing to bind; the connection to the primary is opened by run()
+    }
+
+    @Override
+    public void run() {
+        while (active) {
+            InetSocketAddress target;
+            try {
+                synchronized (targetMonitor) {
+                    while (active && primary == null) targetMonitor.wait();
+                    target = primary;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (target == null) break;
+            try {
+                stream(target);
+            } catch (IOException | RuntimeException e) {
+                if (active && target.equals(primary)) {
+                    LOG.warn("Replication from {} interrupted: {}", target, e.getMessage());
+                }
+            }
+            if (!active) break;
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        active = false;
+        synchronized (targetMonitor) {
+            targetMonitor.notifyAll();
+        }
+        closeSocket();
+    }
+
+    private void closeSocket() {
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void stream(InetSocketAddress target) throws IOException {
+        try (Socket s = new Socket()) {
+            s.connect(new InetSocketAddress(target.getHostString(), target.getPort()), CONNECT_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+            socket = s;
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+
+            ReplicationMessage hello = ReplicationMessage.control(ReplicationMessage.HELLO, store.getAppliedSeq());
+            hello.epoch = store.getAppliedEpoch();
+            send(out, hello);
+            LOG.info("Replicating from primary {} starting after seq {}", target, hello.seq);
+
+            String line;
+            while (active && target.equals(primary) && (line = in.readLine()) != null) {
+                ReplicationMessage msg = GSON.fromJson(line, ReplicationMessage.class);
+                if (msg == null || msg.type == null) continue;
+                switch (msg.type) {
+                case ReplicationMessage.SNAPSHOT:
+                    store.applySnapshot(msg);
+                    break;
+                case ReplicationMessage.HEARTBEAT:
+                    if (msg.epoch < store.getEpoch()) {
+                        throw new IOException("Primary " + target + " is fenced: epoch " + msg.epoch
+                                + " < " + store.getEpoch());
+                    }
+                    store.primaryHeartbeat(msg.seq);
+                    break;
+                default:
+                    try {
+                        if (!store.applyOperation(msg)) {
+                            throw new IOException("Out of order operation seq " + msg.seq + " epoch " + msg.epoch
+                                    + ", applied " + store.getAppliedSeq());
+                        }
+                    } catch (UnknownTicketException e) {
+                        throw new IOException("Replication stream references unknown ticket: " + e.getMessage(), e);
+                    }
+                }
+                // acknowledge once the currently buffered batch has been applied
+                if (!in.ready()) {
+                    send(out, ReplicationMessage.control(ReplicationMessage.ACK, store.getAppliedSeq()));
+                }
+            }
+        } finally {
+            socket = null;
+        }
+    }
+
+    private static void send(BufferedWriter out, ReplicationMessage message) throws IOException {
+        out.write(GSON.toJson(message));
+        out.newLine();
+        out.flush();
+    }
+}
@@ -0,0 +1,100 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded, ordered in-memory log of replicated operations.
+ *
+ * Sequence numbers start at 1 and have no gaps. Once more than {@code capacity} operations are
+ * retained the oldest are dropped; backups that fall behind the retained window receive a snapshot.
+ */
+class ReplicationLog {
+
+    private final ReplicationMessage[] ring;
+    private long firstSeq = 1;
+    private long lastSeq;
+    private long lastEpoch;
+
+    ReplicationLog(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.ring = new ReplicationMessage[capacity];
+    }
+
+    /**
+     * Assign the next sequence number to {@code op} and append it.
+     */
+    synchronized long append(ReplicationMessage op) {
+        op.seq = ++lastSeq;
+        if (op.timestamp == 0) op.timestamp = System.currentTimeMillis();
+        lastEpoch = op.epoch;
+        ring[slot(op.seq)] = op;
+        if (lastSeq - firstSeq >= ring.length) firstSeq++;
+        notifyAll();
+        return op.seq;
+    }
+
+    synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Epoch of the primary that wrote the last operation.
+     */
+    synchronized long getLastEpoch() {
+        return lastEpoch;
+    }
+
+    /**
+     * Epoch of the operation with sequence number {@code seq}, or -1 if it is not retained.
+     * Sequence number 0 (empty log) always has epoch 0.
+     */
+    synchronized long epochAt(long seq) {
+        if (seq == lastSeq) return lastEpoch;
+        if (seq == 0) return 0;
+        if (seq < firstSeq || seq > lastSeq) return -1;
+        return ring[slot(seq)].epoch;
+    }
+
+    /**
+     * Restart numbering after {@code seq}, e.g. after a snapshot was installed.
+     */
+    synchronized void resetTo(long seq, long epoch) {
+        Arrays.fill(ring, null);
+        lastSeq = seq;
+        lastEpoch = epoch;
+        firstSeq = seq + 1;
+        notifyAll();
+    }
+
+    /**
+     * Return up to {@code max} operations following {@code afterSeq}, or null if some of them are
+     * no longer retained and the reader needs a snapshot.
+     */
+    synchronized List<ReplicationMessage> readAfter(long afterSeq, int max) {
+        List<ReplicationMessage> result = new ArrayList<>();
+        if (afterSeq >= lastSeq) return result;
+        if (afterSeq + 1 < firstSeq) return null;
+        for (long seq = afterSeq + 1; seq <= lastSeq && result.size() < max; seq++) {
+            result.add(ring[slot(seq)]);
+        }
+        return result;
+    }
+
+    /**
+     * Wait until an operation after {@code afterSeq} exists or the timeout elapses.
+     */
+    synchronized void awaitAfter(long afterSeq, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while (lastSeq <= afterSeq && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    private int slot(long seq) {
+        return (int) ((seq - 1) % ring.length);
+    }
+}
@@ -0,0 +1,74 @@
+package backend;
+
+import java.util.List;
+
+import entities.Status;
+import entities.Ticket;
+
+/**
+ * Line-delimited JSON message exchanged between a replication primary and its backups.
+ *
+ * Primary to backup:
+ * <ul>
+ * <li>{@code create} - ticket stored with its assigned id</li>
+ * <li>{@code status} - status change of ticket {@code id}</li>
+ * <li>{@code snapshot} - full ticket set as of {@code seq}, sent when a backup is too far behind</li>
+ * <li>{@code heartbeat} - primary is alive, its last sequence number is {@code seq}</li>
+ * </ul>
+ * Every message carries the {@code epoch} of the primary that produced it (or, for backups, the
+ * epoch of their last applied operation) so operations of a fenced primary can be recognised.
+ *
+ * Backup to primary:
+ * <ul>
+ * <li>{@code hello} - backup wants every operation after {@code seq}</li>
+ * <li>{@code ack} - backup has applied every operation up to {@code seq}</li>
+ * </ul>
+ */
+class ReplicationMessage {
+
+    static final String CREATE = "create";
+    static final String STATUS = "status";
+    static final String SNAPSHOT = "snapshot";
+    static final String HEARTBEAT = "heartbeat";
+    static final String HELLO = "hello";
+    static final String ACK = "ack";
+
+    String type;
+    long seq;
+    long epoch;
+    long timestamp;
+    Ticket ticket;
+    int id;
+    Status status;
+    List<Ticket> tickets;
+
+    static ReplicationMessage create(Ticket ticket) {
+        ReplicationMessage m = new ReplicationMessage();
+        m.type = CREATE;
+        m.ticket = ticket;
+        return m;
+    }
+
+    static ReplicationMessage status(int id, Status status) {
+        ReplicationMessage m = new ReplicationMessage();
+        m.type = STATUS;
+        m.id = id;
+        m.status = status;
+        return m;
+    }
+
+    static ReplicationMessage control(String type, long seq) {
+        ReplicationMessage m = new ReplicationMessage();
+        m.type = type;
+        m.seq = seq;
+        m.timestamp = System.currentTimeMillis();
+        return m;
+    }
+
+    static ReplicationMessage snapshot(long seq, long epoch, List<Ticket> tickets) {
+        ReplicationMessage m = control(SNAPSHOT, seq);
+        m.epoch = epoch;
+        m.tickets = tickets;
+        return m;
+    }
+}
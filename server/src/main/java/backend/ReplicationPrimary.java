@@ -0,0 +1,184 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+
+import logging.AsyncLogger;
+
+/**
+ * Ships the operation log of a primary {@link ReplicatingTicketStore} to its backups.
+ *
+ * - Backups connect over TCP and send a {@code hello} with the last sequence number they applied.
+ * - Each backup is served by its own virtual thread streaming operations in order as line-delimited
+ *   JSON; a snapshot is sent first when the backup is behind the retained log window.
+ * - A backup whose last operation does not match our log (same sequence number, other epoch) is
+ *   resynchronised with a snapshot.
+ * - Idle connections receive heartbeats carrying our epoch so backups can measure their lag and
+ *   reject a fenced primary. Streaming stops as soon as the store is no longer primary.
+ * - Acks read back from each backup feed semi-synchronous writes and the lag metrics.
+ */
+public class ReplicationPrimary implements RemoteAccess {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(ReplicationPrimary.class);
+
+    static final long HEARTBEAT_INTERVAL_MS = 200;
+    private static final int MAX_BATCH = 512;
+    private static final Gson GSON = new Gson();
+
+    private final ReplicatingTicketStore store;
+    private final int port;
+    private final String bindHost;
+    private final Set<Socket> sessions = ConcurrentHashMap.newKeySet();
+    private volatile boolean active = true;
+    private ServerSocket serverSocket;
+
+    public ReplicationPrimary(ReplicatingTicketStore store, String bindHost, int port) {
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        this.bindHost = bindHost;
+        this.port = port;
+    }
+
+    /**
+     * Bind the replication port. The log is always taken from the store given to the constructor.
+     */
+    @Override
+    public void prepareStartup(TicketStore ticketStore) {
+        try {
+            InetAddress addr = bindHost == null || bindHost.isBlank() ? null : InetAddress.getByName(bindHost);
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(addr, port));
+            LOG.info("Replication primary listening on {}", serverSocket.getLocalSocketAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind replication port " + port, e);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (active && serverSocket != null && !serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sessions.add(socket);
+                Thread.ofVirtual().name("replication-" + socket.getRemoteSocketAddress()).start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!active) break;
+                LOG.warn("Replication accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        active = false;
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        for (Socket s : sessions) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        String backup = String.valueOf(socket.getRemoteSocketAddress());
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            ReplicationMessage hello = GSON.fromJson(in.readLine(), ReplicationMessage.class);
+            if (hello == null || !ReplicationMessage.HELLO.equals(hello.type)) {
+                LOG.warn("Replication: unexpected handshake from {}", backup);
+                return;
+            }
+            if (!store.isPrimary()) {
+                LOG.info("Replication: refusing backup {}, this node is not primary", backup);
+                return;
+            }
+            LOG.info("Replication: backup {} connected at seq {}", backup, hello.seq);
+            store.backupConnected(backup);
+            Thread.ofVirtual().name("replication-acks-" + backup).start(() -> readAcks(backup, in));
+
+            ReplicationLog log = store.getLog();
+            long cursor = hello.seq;
+            boolean diverged = log.epochAt(hello.seq) != hello.epoch;
+            write(out, heartbeat(log.getLastSeq()));
+            while (active && !socket.isClosed() && store.isPrimary()) {
+                List<ReplicationMessage> batch = diverged ? null : log.readAfter(cursor, MAX_BATCH);
+                if (batch == null) {
+                    diverged = false;
+                    ReplicationMessage snapshot = store.snapshot();
+                    write(out, snapshot);
+                    out.flush();
+                    cursor = snapshot.seq;
+                    continue;
+                }
+                if (batch.isEmpty()) {
+                    log.awaitAfter(cursor, HEARTBEAT_INTERVAL_MS);
+                    if (log.getLastSeq() <= cursor) {
+                        write(out, heartbeat(cursor));
+                        out.flush();
+                    }
+                    continue;
+                }
+                for (ReplicationMessage op : batch) write(out, op);
+                out.flush();
+                cursor = batch.get(batch.size() - 1).seq;
+            }
+        } catch (SocketException se) {
+            LOG.info("Replication: backup {} disconnected", backup);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Replication to {} failed: {}", backup, e.getMessage());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sessions.remove(socket);
+            store.backupDisconnected(backup);
+        }
+    }
+
+    private void readAcks(String backup, BufferedReader in) {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                ReplicationMessage ack = GSON.fromJson(line, ReplicationMessage.class);
+                if (ack != null && ReplicationMessage.ACK.equals(ack.type)) {
+                    store.backupAcknowledged(backup, ack.seq);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // connection closed; the streaming side cleans up
+        }
+    }
+
+    private ReplicationMessage heartbeat(long seq) {
+        ReplicationMessage hb = ReplicationMessage.control(ReplicationMessage.HEARTBEAT, seq);
+        hb.epoch = store.getEpoch();
+        return hb;
+    }
+
+    private static void write(BufferedWriter out, ReplicationMessage message) throws IOException {
+        out.write(GSON.toJson(message));
+        out.newLine();
+    }
+}
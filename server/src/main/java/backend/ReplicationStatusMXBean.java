@@ -0,0 +1,34 @@
+package backend;
+
+/**
+ * JMX view of the replication state of a {@link ReplicatingTicketStore}.
+ */
+public interface ReplicationStatusMXBean {
+
+    /** PRIMARY or BACKUP. */
+    String getRole();
+
+    /** ASYNC or SEMI_SYNC. */
+    String getMode();
+
+    /** Epoch of the current primary as known to this node. */
+    long getEpoch();
+
+    /** Last operation appended (primary) or applied (backup). */
+    long getLastSequence();
+
+    /** Number of backups currently streaming from this primary. */
+    int getConnectedBackups();
+
+    /**
+     * Operations not yet applied: on a primary the distance to the slowest backup,
+     * on a backup the distance to the primary.
+     */
+    long getReplicationLagOperations();
+
+    /** On a backup, how long ago the last applied operation was written on the primary while behind. */
+    long getReplicationLagMillis();
+
+    /** Semi-synchronous writes that returned without a backup acknowledgement. */
+    long getSemiSyncTimeouts();
+}
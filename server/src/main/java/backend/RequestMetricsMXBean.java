@@ -0,0 +1,24 @@
+package backend;
+
+/**
+ * JMX view of the latency distribution of one request type on one transport.
+ * Latency runs from arrival of the request to its encoded response, including queueing.
+ */
+public interface RequestMetricsMXBean {
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,72 @@
+package backend;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The latest search of every client, so a search the client no longer waits for stops early.
+ *
+ * - Clients number their searches; a search cancels every older one of the same client, running
+ *   or still queued, as the user typed on and only the newest result is shown.
+ * - A {@code cancelSearch} for a search not seen yet leaves an entry behind, so the search is
+ *   cancelled even if the cancel overtook it.
+ * - Searches without a client id cannot be told apart and are never cancelled.
+ * - One entry per client at most; it is removed when its search ends. Leftover cancel entries
+ *   are dropped once more than {@value #MAX_TRACKED_CLIENTS} clients are tracked. Thread-safe.
+ */
+final class SearchRegistry {
+
+    /** A registered search, polled by the store while it searches. */
+    static final class Running implements BooleanSupplier {
+        final long seq;
+        volatile boolean cancelled;
+
+        Running(long seq, boolean cancelled) {
+            this.seq = seq;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            return cancelled;
+        }
+    }
+
+    private static final int MAX_TRACKED_CLIENTS = 10_000;
+    private static final Running NEVER_CANCELLED = new Running(0, false);
+
+    private final ConcurrentMap<String, Running> latest = new ConcurrentHashMap<>();
+
+    /**
+     * Register search {@code seq} of {@code clientId} and cancel the client's older searches.
+     * The returned entry is cancelled already if the client sent a newer search or cancelled this one.
+     */
+    Running begin(String clientId, long seq) {
+        if (clientId == null) return NEVER_CANCELLED;
+        Running search = new Running(seq, false);
+        Running winner = latest.merge(clientId, search, (older, newer) -> {
+            if (older.seq > newer.seq || (older.seq == newer.seq && older.cancelled)) return older;
+            older.cancelled = true;
+            return newer;
+        });
+        if (winner != search) search.cancelled = true;
+        return search;
+    }
+
+    /** Cancel search {@code seq} of {@code clientId} and the client's older searches. */
+    void cancel(String clientId, long seq) {
+        if (clientId == null) return;
+        if (latest.size() > MAX_TRACKED_CLIENTS) latest.values().removeIf(r -> r.cancelled);
+        latest.merge(clientId, new Running(seq, true), (older, tombstone) -> {
+            if (older.seq > seq) return older;
+            older.cancelled = true;
+            return tombstone;
+        });
+    }
+
+    /** The search ended; forget it unless a newer one replaced it already. */
+    void end(String clientId, Running search) {
+        if (clientId != null) latest.remove(clientId, search);
+    }
+}
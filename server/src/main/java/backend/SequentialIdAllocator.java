@@ -0,0 +1,29 @@
+package backend;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process id allocator backed by a single {@link AtomicInteger}.
+ *
+ * Only unique within one JVM; use {@link LeasedIdAllocator} when several server
+ * processes or shards hand out ids for the same ticket space.
+ */
+public class SequentialIdAllocator implements IdAllocator {
+
+    private final AtomicInteger next;
+
+    public SequentialIdAllocator() {
+        this(1);
+    }
+
+    public SequentialIdAllocator(int firstId) {
+        this.next = new AtomicInteger(Math.max(1, firstId));
+    }
+
+    @Override
+    public int nextId() {
+        int id = next.getAndIncrement();
+        if (id <= 0) throw new IllegalStateException("Ticket id space exhausted");
+        return id;
+    }
+}
@@ -0,0 +1,188 @@
+package backend;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.management.ObjectName;
+
+import metrics.LatencyHistogram;
+
+/**
+ * Request metrics of this server: latency histograms and counters per transport and request type,
+ * plus byte and packet counters per transport.
+ *
+ * - Recording is lock-free ({@link LatencyHistogram}, {@link LongAdder}); after the first request
+ *   of a kind, the hot path does one map lookup and no allocation.
+ * - Each new transport or (transport, request type) pair is handed to the publisher once, e.g.
+ *   to register it as MBean {@code backend:type=RequestMetrics,transport=udp,request=list} or
+ *   {@code backend:type=TransportMetrics,transport=udp}.
+ */
+public class ServerMetrics {
+
+    private static final int MAX_REQUEST_TYPES = 64;
+
+    private final ConcurrentMap<String, Transport> transports = new ConcurrentHashMap<>();
+    private final BiConsumer<Object, String> publisher;
+
+    /** Metrics that are only recorded, not published. */
+    public ServerMetrics() {
+        this((mbean, name) -> { });
+    }
+
+    /**
+     * @param publisher called with every new metrics object and its JMX object name
+     */
+    public ServerMetrics(BiConsumer<Object, String> publisher) {
+        this.publisher = publisher;
+    }
+
+    public Transport transport(String transport) {
+        Transport t = transports.get(transport);
+        if (t != null) return t;
+        return transports.computeIfAbsent(transport, name -> {
+            Transport created = new Transport(name);
+            publisher.accept(created, "backend:type=TransportMetrics,transport=" + name);
+            return created;
+        });
+    }
+
+    /**
+     * Record one answered request.
+     *
+     * @param requestType   may be null for undecodable requests
+     * @param latencyNanos  from arrival of the request to its encoded response
+     * @param failed        whether the response carried an error (including shed requests)
+     */
+    public void record(String transport, String requestType, long latencyNanos, boolean failed,
+                       int bytesIn, int bytesOut) {
+        Transport t = transport(transport);
+        t.requests.increment();
+        if (failed) t.errors.increment();
+        t.bytesIn.add(bytesIn);
+        t.bytesOut.add(bytesOut);
+
+        String type = requestType == null ? "unknown" : requestType;
+        RequestType r = t.requestTypes.get(type);
+        if (r == null) {
+            // request types are chosen by clients, do not let them create unbounded numbers of MBeans
+            if (t.requestTypes.size() >= MAX_REQUEST_TYPES) type = "other";
+            r = t.requestTypes.computeIfAbsent(type, k -> {
+                RequestType created = new RequestType();
+                publisher.accept(created, "backend:type=RequestMetrics,transport=" + t.name + ",request=" + quote(k));
+                return created;
+            });
+        }
+        r.latency.record(latencyNanos);
+        if (failed) r.errors.increment();
+    }
+
+    private static String quote(String value) {
+        return value.matches("[A-Za-z0-9_-]+") ? value : ObjectName.quote(value);
+    }
+
+    /** Counters of one transport. */
+    public static final class Transport implements TransportMetricsMXBean {
+        private final String name;
+        private final ConcurrentMap<String, RequestType> requestTypes = new ConcurrentHashMap<>();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder droppedPackets = new LongAdder();
+        private final LongAdder reassemblyTimeouts = new LongAdder();
+
+        Transport(String name) {
+            this.name = name;
+        }
+
+        public void droppedPacket() {
+            droppedPackets.increment();
+        }
+
+        public void reassemblyTimeout() {
+            reassemblyTimeouts.increment();
+        }
+
+        public void reassemblyTimeouts(long count) {
+            reassemblyTimeouts.add(count);
+        }
+
+        @Override
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        @Override
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        @Override
+        public long getDroppedPackets() {
+            return droppedPackets.sum();
+        }
+
+        @Override
+        public long getReassemblyTimeouts() {
+            return reassemblyTimeouts.sum();
+        }
+    }
+
+    /** Latency and error count of one request type on one transport. */
+    static final class RequestType implements RequestMetricsMXBean {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.getMean() / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latency.getValueAtPercentile(50) / 1e3;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return latency.getValueAtPercentile(90) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latency.getValueAtPercentile(99) / 1e3;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return latency.getValueAtPercentile(99.9) / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latency.getMax() / 1e3;
+        }
+    }
+}
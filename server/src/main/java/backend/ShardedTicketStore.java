@@ -0,0 +1,153 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import entities.Priority;
+import entities.Status;
+import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
+import entities.Type;
+
+/**
+ * TicketStore that partitions tickets across several shard stores by consistent hashing of the id.
+ *
+ * - Ids are allocated here (typically from a {@link LeasedIdAllocator}) and the ticket is then
+ *   stored on the shard owning that id, so lookups and updates go to exactly one shard.
+ * - Shards may be in-process stores or {@link RemoteTicketStore}s pointing to other server processes.
+ * - Listing is scatter-gather: all shards are queried in parallel and the results merged by id.
+ * - Pages are keyset pages: every shard returns {@code limit} tickets after the last ticket of the
+ *   previous page, remembered by {@link PageCursors}, so a deep page costs as much as the first.
+ */
+public class ShardedTicketStore implements TicketStore {
+
+    private final ConsistentHashRing<TicketStore> ring;
+    private final IdAllocator idAllocator;
+    private final ExecutorService scatterExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final PageCursors cursors = new PageCursors(1024);
+
+    public ShardedTicketStore(Map<String, TicketStore> shards, IdAllocator idAllocator) {
+        if (idAllocator == null) throw new IllegalArgumentException("idAllocator must not be null");
+        this.ring = new ConsistentHashRing<>(shards);
+        this.idAllocator = idAllocator;
+    }
+
+    @Override
+    public Ticket storeNewTicket(String reporter, String topic, String description, Type type, Priority priority) {
+        if (reporter == null) reporter = "unknown";
+        if (topic == null) topic = "";
+        int id = idAllocator.nextId();
+        return storeTicket(new Ticket(id, reporter, topic, description, type, priority));
+    }
+
+    @Override
+    public Ticket storeTicket(Ticket ticket) {
+        if (ticket == null || ticket.getId() <= 0) throw new IllegalArgumentException("ticket with positive id required");
+        try {
+            return ring.shardFor(ticket.getId()).storeTicket(ticket);
+        } finally {
+            cursors.invalidate();
+        }
+    }
+
+    @Override
+    public void updateTicketStatus(int ticketId, Status newStatus) throws UnknownTicketException, IllegalStateException {
+        try {
+            ring.shardFor(ticketId).updateTicketStatus(ticketId, newStatus);
+        } finally {
+            cursors.invalidate();
+        }
+    }
+
+    @Override
+    public Ticket transitionTicketStatus(int ticketId, Set<Status> expected, Status newStatus)
+            throws UnknownTicketException, IllegalStateException {
+        try {
+            return ring.shardFor(ticketId).transitionTicketStatus(ticketId, expected, newStatus);
+        } finally {
+            cursors.invalidate();
+        }
+    }
+
+    @Override
+    public Ticket findTicketById(int id) {
+        if (id <= 0) return null;
+        return ring.shardFor(id).findTicketById(id);
+    }
+
+    @Override
+    public List<Ticket> getAllTickets() {
+        List<Ticket> merged = new ArrayList<>();
+        for (List<Ticket> part : scatter(TicketStore::getAllTickets)) {
+            merged.addAll(part);
+        }
+        merged.sort(Comparator.comparingInt(Ticket::getId));
+        return merged;
+    }
+
+    @Override
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) {
+        return cursors.page(this::getTicketPageAfter, offset, limit, sort);
+    }
+
+    @Override
+    public TicketPage getTicketPageAfter(Ticket after, int limit, TicketSort sort) {
+        // the next limit tickets are among the next limit tickets of some shards
+        List<TicketPage> pages = scatter(shard -> shard.getTicketPageAfter(after, limit, sort));
+        int total = 0;
+        List<Ticket> merged = new ArrayList<>();
+        for (TicketPage page : pages) {
+            total += page.getTotal();
+            merged.addAll(page.getTickets());
+        }
+        merged.sort(sort.comparator());
+        return new TicketPage(0, total, merged.size() <= limit ? merged : merged.subList(0, limit));
+    }
+
+    @Override
+    public List<Ticket> searchTickets(TicketQuery query, TicketSort sort, int limit, BooleanSupplier cancelled) {
+        List<Ticket> merged = new ArrayList<>();
+        for (List<Ticket> part : scatter(shard -> shard.searchTickets(query, sort, limit, cancelled))) {
+            merged.addAll(part);
+        }
+        merged.sort(sort.comparator());
+        return merged.size() <= limit ? merged : new ArrayList<>(merged.subList(0, limit));
+    }
+
+    // run the call on all shards in parallel
+    private <T> List<T> scatter(Function<TicketStore, T> call) {
+        List<Future<T>> parts = new ArrayList<>();
+        for (TicketStore shard : ring.getShards()) {
+            parts.add(scatterExecutor.submit(() -> call.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(parts.size());
+        for (Future<T> part : parts) {
+            try {
+                results.add(part.get());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while listing shards", ie);
+            } catch (ExecutionException ee) {
+                if (ee.getCause() instanceof CancellationException ce) throw ce;
+                throw new IllegalStateException("Listing a shard failed: " + ee.getCause().getMessage(), ee.getCause());
+            }
+        }
+        return results;
+    }
+
+    public List<TicketStore> getShards() {
+        return ring.getShards();
+    }
+}
@@ -1,47 +1,94 @@
 package backend;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BooleanSupplier;
 
 import entities.Priority;
 import entities.Status;
 import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
 import entities.Type;
+import logging.AsyncLogger;
 
 /**
  * Basic thread-safe implementation of the TicketStore interface for testing.
  *
- * - Thread-safe via ConcurrentHashMap + AtomicInteger
+ * - Thread-safe via ConcurrentHashMap + {@link IdAllocator} (in-process counter by default)
  * - Returns defensive copies from getAllTickets()
+ * - Keeps the ids in a sorted index, so a page in id order costs a walk to its offset instead of
+ *   sorting all tickets. Pages and searches in another order keep the first tickets in a bounded
+ *   heap and copy only those. Offset pages in another order are taken after the cursor of the
+ *   previous page ({@link PageCursors}), so the heap holds one page however deep it is.
+ * - Keeps a {@link TicketSearchIndex} of topic and reporter words, so searches look at the
+ *   tickets starting with the query words only
  * - updateTicketStatus validates input and throws UnknownTicketException when appropriate
  *
  * NOTE: Still intended for testing only.
  */
 public class SimpleTicketStore implements TicketStore {
 
-    private final AtomicInteger nextTicketId = new AtomicInteger(1);
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(SimpleTicketStore.class);
+
+    private final IdAllocator idAllocator;
     private final ConcurrentMap<Integer, Ticket> ticketMap = new ConcurrentHashMap<>();
+    // tickets are never removed, so every id in here has a ticket
+    private final ConcurrentSkipListSet<Integer> ids = new ConcurrentSkipListSet<>();
+    private final TicketSearchIndex searchIndex = new TicketSearchIndex();
+    private final PageCursors cursors = new PageCursors(1024);
+
+    public SimpleTicketStore() {
+        this(new SequentialIdAllocator());
+    }
+
+    public SimpleTicketStore(IdAllocator idAllocator) {
+        if (idAllocator == null) throw new IllegalArgumentException("idAllocator must not be null");
+        this.idAllocator = idAllocator;
+    }
 
     @Override
     public Ticket storeNewTicket(String reporter, String topic, String description, Type type, Priority priority) {
         if (reporter == null) reporter = "unknown";
         if (topic == null) topic = "";
-        int id = nextTicketId.getAndIncrement();
+        int id = idAllocator.nextId();
         Ticket newTicket = new Ticket(id, reporter, topic, description, type, priority);
         ticketMap.put(id, newTicket);
-        System.out.println("Created new Ticket id=" + id + " reporter=" + reporter + " topic=\"" + topic + "\"");
+        ids.add(id);
+        searchIndex.add(newTicket);
+        cursors.invalidate();
+        LOG.debug("Created new Ticket id={} reporter={} topic=\"{}\"", id, reporter, topic);
         return newTicket;
     }
 
+    @Override
+    public Ticket storeTicket(Ticket ticket) {
+        if (ticket == null || ticket.getId() <= 0) throw new IllegalArgumentException("ticket with positive id required");
+        Ticket copy = ticket.clone();
+        ticketMap.put(copy.getId(), copy);
+        ids.add(copy.getId());
+        searchIndex.add(copy);
+        cursors.invalidate();
+        return copy.clone();
+    }
+
     @Override
     public void updateTicketStatus(int ticketId, Status newStatus) throws UnknownTicketException, IllegalStateException {
         if (newStatus == null) throw new IllegalStateException("newStatus must not be null");
         Ticket t = ticketMap.get(ticketId);
         if (t == null) throw new UnknownTicketException("Ticket id " + ticketId + " not found");
-        t.setStatus(newStatus);
+        t.changeStatus(newStatus);
+        cursors.invalidate();
     }
 
     @Override
@@ -58,4 +105,82 @@ public class SimpleTicketStore implements TicketStore {
         }
         return snapshot;
     }
+
+    @Override
+    public TicketPage getTicketPage(int offset, int limit, TicketSort sort) {
+        if (sort.getKey() != TicketSort.Key.ID) return cursors.page(this::getTicketPageAfter, offset, limit, sort);
+        int total = ids.size();
+        List<Ticket> page = new ArrayList<>(Math.max(0, Math.min(limit, total - offset)));
+        Iterator<Integer> it = sort.isDescending() ? ids.descendingIterator() : ids.iterator();
+        for (int skip = offset; skip > 0 && it.hasNext(); skip--) it.next();
+        while (page.size() < limit && it.hasNext()) {
+            Ticket t = ticketMap.get(it.next());
+            if (t != null) page.add(t.clone());
+        }
+        return new TicketPage(offset, total, page);
+    }
+
+    @Override
+    public TicketPage getTicketPageAfter(Ticket after, int limit, TicketSort sort) {
+        int total = ids.size();
+        if (sort.getKey() != TicketSort.Key.ID) {
+            Comparator<Ticket> order = sort.comparator();
+            TicketSort.Top top = sort.top(limit);
+            for (Ticket t : ticketMap.values()) {
+                if ((after == null || order.compare(t, after) > 0) && top.wants(t)) top.offer(t.clone());
+            }
+            return new TicketPage(0, total, top.toList());
+        }
+        NavigableSet<Integer> rest = ids;
+        if (after != null) rest = sort.isDescending() ? ids.headSet(after.getId(), false) : ids.tailSet(after.getId(), false);
+        Iterator<Integer> it = sort.isDescending() ? rest.descendingIterator() : rest.iterator();
+        List<Ticket> page = new ArrayList<>(Math.min(limit, 1024));
+        while (page.size() < limit && it.hasNext()) {
+            Ticket t = ticketMap.get(it.next());
+            if (t != null) page.add(t.clone());
+        }
+        return new TicketPage(0, total, page);
+    }
+
+    @Override
+    public List<Ticket> searchTickets(TicketQuery query, TicketSort sort, int limit, BooleanSupplier cancelled) {
+        PrimitiveIterator.OfInt candidates = query.isEmpty()
+                ? ids.stream().mapToInt(Integer::intValue).iterator() : searchIndex.candidates(query);
+        // candidates come in id order: done after limit matches, other orders look at all
+        List<Ticket> found = new ArrayList<>();
+        TicketSort.Top top = sort.isById() ? null : sort.top(limit);
+        for (int n = 0; (top != null || found.size() < limit) && candidates.hasNext(); n++) {
+            if ((n & 0xff) == 0 && cancelled.getAsBoolean()) throw new CancellationException("Search cancelled");
+            Ticket t = ticketMap.get(candidates.nextInt());
+            if (!query.matches(t)) continue;
+            if (top == null) {
+                found.add(t.clone());
+            } else if (top.wants(t)) {
+                top.offer(t.clone());
+            }
+        }
+        return top == null ? found : top.toList();
+    }
+
+    @Override
+    public Ticket findTicketById(int id) {
+        Ticket t = ticketMap.get(id);
+        return t == null ? null : t.clone();
+    }
+
+    @Override
+    public Ticket transitionTicketStatus(int ticketId, Set<Status> expected, Status newStatus)
+            throws UnknownTicketException, IllegalStateException {
+        if (newStatus == null) throw new IllegalStateException("newStatus must not be null");
+        Ticket t = ticketMap.get(ticketId);
+        if (t == null) throw new UnknownTicketException("Ticket id " + ticketId + " not found");
+        synchronized (t) {
+            if (!expected.contains(t.getStatus())) {
+                throw new IllegalStateException("Ticket is currently in status " + t.getStatus());
+            }
+            t.changeStatus(newStatus);
+            cursors.invalidate();
+            return t.clone();
+        }
+    }
 }
@@ -0,0 +1,256 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import logging.AsyncLogger;
+import protocol.Framing;
+
+/**
+ * TCP transport for the JSON ticket protocol using length-prefixed frames ({@link Framing}).
+ *
+ * - A single selector thread accepts connections and does all socket reads and writes.
+ * - Every complete request frame is passed to the {@link AdmissionController} and executed by its
+ *   workers, so a client may pipeline many requests on one connection; responses are still
+ *   written back in request order.
+ * - Finished responses are collected and written with one gathering write per connection, so
+ *   small responses completing together share a system call.
+ * - A connection with {@value #MAX_PIPELINED} unanswered requests is not read from until its
+ *   responses drain (back pressure instead of unbounded buffering).
+ */
+public class TcpRemoteAccess implements RemoteAccess {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(TcpRemoteAccess.class);
+
+    private static final int DEFAULT_PORT = 1160;
+    static final int MAX_PIPELINED = 128;
+    private static final int MAX_GATHER = 64;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    static final String TRANSPORT = "tcp";
+
+    private final int port;
+    private final String bindHost;
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private volatile boolean active = true;
+    private AdmissionController admission;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Listen on the port given by system property {@code ticket.server.tcpPort} (default 1160)
+     * and the address given by {@code ticket.server.bind} (default: all interfaces).
+     */
+    public TcpRemoteAccess() {
+        this(Integer.getInteger("ticket.server.tcpPort", DEFAULT_PORT), System.getProperty("ticket.server.bind"));
+    }
+
+    public TcpRemoteAccess(int port, String bindHost) {
+        this(port, bindHost, null);
+    }
+
+    /**
+     * @param admission admission control shared with other transports; if null, one is created
+     *                  for this transport in {@link #prepareStartup(TicketStore)}
+     */
+    public TcpRemoteAccess(int port, String bindHost, AdmissionController admission) {
+        this.port = port;
+        this.bindHost = bindHost;
+        this.admission = admission;
+    }
+
+    @Override
+    public void prepareStartup(TicketStore ticketStore) {
+        if (admission == null) admission = new AdmissionController(new TicketRequestHandler(ticketStore), new ServerMetrics());
+        try {
+            InetAddress addr = bindHost == null || bindHost.isBlank() ? null : InetAddress.getByName(bindHost);
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(addr, port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            LOG.info("TCP socket is running on {}", serverChannel.getLocalAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind TCP port " + port, e);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (selector == null) {
+            LOG.error("TCP selector is not initialized. Call prepareStartup(...) first.");
+            return;
+        }
+        try {
+            while (active) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection conn = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) conn.read();
+                        if (key.isValid() && key.isWritable()) conn.flush();
+                    } catch (IOException | RuntimeException e) {
+                        conn.close(e.getMessage());
+                    }
+                }
+                Connection conn;
+                while ((conn = completed.poll()) != null) {
+                    try {
+                        conn.flush();
+                    } catch (IOException | RuntimeException e) {
+                        conn.close(e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (active) LOG.error("TCP selector loop failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        active = false;
+        try {
+            if (selector != null) {
+                for (SelectionKey key : selector.keys()) key.channel().close();
+                selector.close();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LOG.warn("Error closing TCP transport: {}", e.getMessage());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection conn = new Connection(channel);
+        conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+        LOG.debug("TCP connection from {}", conn.remote);
+    }
+
+    private void responseReady(Connection conn) {
+        completed.add(conn);
+        if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    /** Response slot reserved in request order, filled by the worker. */
+    private static final class Slot {
+        volatile byte[] response;
+    }
+
+    /** Per connection state; socket I/O only happens on the selector thread. */
+    private final class Connection {
+        final SocketChannel channel;
+        final String remote;
+        SelectionKey key;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        ByteBuffer frame;
+        // guarded by this: requests in arrival order, head is the next response to write
+        final ArrayDeque<Slot> inFlight = new ArrayDeque<>();
+        final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remote = String.valueOf(channel.getRemoteAddress());
+        }
+
+        void read() throws IOException {
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                close(null);
+                return;
+            }
+            readBuffer.flip();
+            while (true) {
+                if (frame == null) {
+                    if (readBuffer.remaining() < Framing.HEADER_BYTES) break;
+                    int length = readBuffer.getInt();
+                    Framing.checkLength(length);
+                    frame = ByteBuffer.allocate(length);
+                }
+                int take = Math.min(frame.remaining(), readBuffer.remaining());
+                frame.put(frame.position(), readBuffer, readBuffer.position(), take);
+                frame.position(frame.position() + take);
+                readBuffer.position(readBuffer.position() + take);
+                if (frame.hasRemaining()) break;
+                dispatch(frame.array());
+                frame = null;
+            }
+            readBuffer.compact();
+            updateInterest();
+        }
+
+        private void dispatch(byte[] request) {
+            Slot slot = new Slot();
+            synchronized (this) {
+                inFlight.add(slot);
+            }
+            admission.submit(request, 0, request.length, TRANSPORT, remote, response -> {
+                slot.response = response;
+                responseReady(this);
+            });
+        }
+
+        void flush() throws IOException {
+            if (!channel.isOpen()) return;
+            synchronized (this) {
+                while (!inFlight.isEmpty() && inFlight.peek().response != null) {
+                    byte[] response = inFlight.poll().response;
+                    outbound.add(Framing.header(response.length));
+                    outbound.add(ByteBuffer.wrap(response));
+                }
+            }
+            while (!outbound.isEmpty()) {
+                ByteBuffer[] batch = outbound.stream().limit(MAX_GATHER).toArray(ByteBuffer[]::new);
+                channel.write(batch);
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) outbound.poll();
+                if (batch[batch.length - 1].hasRemaining()) break; // socket buffer full
+            }
+            updateInterest();
+        }
+
+        private void updateInterest() {
+            if (!key.isValid()) return;
+            int ops = 0;
+            synchronized (this) {
+                if (inFlight.size() < MAX_PIPELINED) ops |= SelectionKey.OP_READ;
+            }
+            if (!outbound.isEmpty()) ops |= SelectionKey.OP_WRITE;
+            key.interestOps(ops);
+        }
+
+        void close(String reason) {
+            if (!channel.isOpen()) return;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            LOG.debug("TCP connection from {} closed{}", remote, reason == null ? "" : ": " + reason);
+        }
+    }
+}
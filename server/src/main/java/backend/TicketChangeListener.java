@@ -0,0 +1,28 @@
+package backend;
+
+import entities.Ticket;
+
+/**
+ * Callback for changes made through a {@link NotifyingTicketStore}.
+ *
+ * Listeners are called synchronously on the thread that changed the store, after the change, and
+ * must not block it for long.
+ */
+@FunctionalInterface
+public interface TicketChangeListener {
+
+    /** Kind of change, also used as event type on the wire ({@link #wireName()}). */
+    enum Kind {
+        CREATED, UPDATED;
+
+        public String wireName() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * @param kind   whether the ticket is new or an existing ticket changed
+     * @param ticket the ticket as stored after the change
+     */
+    void ticketChanged(Kind kind, Ticket ticket);
+}
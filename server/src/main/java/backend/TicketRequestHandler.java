@@ -0,0 +1,526 @@
+package backend;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import entities.Status;
+import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
+import entities.Type;
+import logging.AsyncLogger;
+import protocol.CompressionStats;
+import protocol.PayloadCodec;
+import tracing.Trace;
+import tracing.TraceRecorder;
+
+/**
+ * Transport independent handler for the JSON ticket protocol.
+ *
+ * Requests have the form {@code {"requestType": "...", "payload": ...}} and are answered with a
+ * {@link Response} envelope. Supported request types:
+ * <ul>
+ * <li>{@code create} (payload: ticket) - store a new ticket</li>
+ * <li>{@code list} (optional payload: sort) - return all tickets</li>
+ * <li>{@code page} (payload: offset, limit, sort) - return at most {@value #MAX_PAGE_SIZE} tickets in
+ * sort order starting at offset, and the total number of tickets</li>
+ * <li>{@code search} (payload: query, type, sort, limit, seq) - return the first tickets in sort order
+ * matching the query, at most {@value #MAX_SEARCH_RESULTS}, see {@link TicketQuery}. A newer search of
+ * the same client cancels this one, which is then answered with {@value #ERROR_CANCELLED}</li>
+ * <li>{@code cancelSearch} (payload: seq) - cancel the client's search with this seq and older ones</li>
+ * <li>{@code get} (payload: id) - return a single ticket, absent if unknown</li>
+ * <li>{@code accept}/{@code reject}/{@code close} (payload: id) - checked status transitions</li>
+ * <li>{@code put} (payload: ticket with id) - store a ticket with a pre-assigned id (server to server)</li>
+ * <li>{@code transition} (payload: id, expected, status) - raw transition (server to server)</li>
+ * </ul>
+ *
+ * A sort is {@code {"key": "PRIORITY", "descending": false}} ({@link TicketSort}); without one,
+ * tickets are returned in id order ({@code list}: in store order).
+ *
+ * Requests may carry {@code "acceptEncoding": "deflate"} to receive compressed responses, see
+ * {@link #handle(byte[], int, int)}, and a {@code "traceId"} to have their server stages traced,
+ * see {@link TraceRecorder}.
+ *
+ * Status transition semantics match the client backends:
+ * accept OPEN/NEW -> IN_PROGRESS, reject OPEN/NEW -> CLOSED, close IN_PROGRESS -> CLOSED.
+ */
+public class TicketRequestHandler {
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(TicketRequestHandler.class);
+
+    public static final String ERROR_UNKNOWN_TICKET = "UNKNOWN_TICKET";
+    public static final String ERROR_INVALID_STATE = "INVALID_STATE";
+    public static final String ERROR_NOT_PRIMARY = "NOT_PRIMARY";
+    public static final String ERROR_BAD_REQUEST = "BAD_REQUEST";
+    public static final String ERROR_INTERNAL = "INTERNAL";
+    public static final String ERROR_BUSY = "BUSY";
+    public static final String ERROR_CANCELLED = "CANCELLED";
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_SEARCH_RESULTS = 1000;
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+
+    static final Gson GSON = new Gson();
+    private static final CompressionStats COMPRESSION_STATS = new CompressionStats();
+
+    private static final Set<Status> OPEN_STATES = EnumSet.of(Status.NEW, Status.OPEN);
+    private static final Set<Status> IN_PROGRESS_STATES = EnumSet.of(Status.IN_PROGRESS);
+
+    private final TicketStore ticketStore;
+    private final SearchRegistry searches = new SearchRegistry();
+
+    public TicketRequestHandler(TicketStore ticketStore) {
+        this.ticketStore = Objects.requireNonNull(ticketStore, "ticketStore must not be null");
+    }
+
+    /**
+     * Handle a single JSON request and return the JSON response.
+     * Never throws; failures are reported through {@link Response#error}.
+     */
+    public String handle(String requestJson) {
+        return GSON.toJson(dispatch(requestJson));
+    }
+
+    /**
+     * Handle a request in wire encoding ({@link PayloadCodec}) and return the encoded response.
+     * The response is compressed if the request announced support via {@code acceptEncoding};
+     * in that case the response announces the same so the client may compress its requests too.
+     * Never throws; failures are reported through {@link Response#error}.
+     */
+    public byte[] handle(byte[] data, int offset, int length) {
+        return process(decode(data, offset, length));
+    }
+
+    /**
+     * Decode and parse a request without executing it, e.g. to make admission decisions first.
+     * Never throws; undecodable requests are answered with an error by {@link #process(Request)}.
+     *
+     * The JSON is parsed in one pass straight from {@code data}, see {@link #parse(Reader, Request)}.
+     */
+    Request decode(byte[] data, int offset, int length) {
+        long codecStart = System.nanoTime();
+        Request request = new Request();
+        request.wireLength = length;
+        Reader json;
+        try {
+            json = PayloadCodec.reader(data, offset, length);
+        } catch (IllegalArgumentException e) {
+            request.decodeError = e.getMessage();
+            return request;
+        }
+        request.codecNanos = System.nanoTime() - codecStart;
+        request.rawLength = PayloadCodec.decodedLength(data, offset, length);
+        parse(json, request);
+        if (request.decodeError != null) return request;
+        if (request.traceId != null ? TraceRecorder.isEnabled() : TraceRecorder.sample()) {
+            request.trace = new Trace(request.traceId != null ? request.traceId : Trace.newId(), Trace.SERVER, codecStart);
+            request.trace.setRequestType(request.requestType);
+            request.trace.mark("decode");
+        }
+        // on arrival, so a queued search is cancelled before a worker spends time on it
+        if ("search".equals(request.requestType)) {
+            request.search = searches.begin(request.clientId, searchSeq(request));
+        } else if ("cancelSearch".equals(request.requestType)) {
+            searches.cancel(request.clientId, searchSeq(request));
+        }
+        return request;
+    }
+
+    /**
+     * Execute a decoded request and return the encoded response.
+     */
+    byte[] process(Request request) {
+        if (request.decodeError != null) return reply(request, Response.error(ERROR_BAD_REQUEST, request.decodeError));
+        BooleanSupplier cancelled = request.search != null ? request.search : NOT_CANCELLED;
+        // stores add their own stages through the trace bound to this thread
+        if (request.trace != null) request.trace.attach();
+        Response response;
+        try {
+            response = dispatch(request, cancelled);
+        } finally {
+            if (request.search != null) searches.end(request.clientId, request.search);
+            if (request.trace != null) Trace.detach();
+        }
+        if (request.trace != null) request.trace.mark("dispatch");
+        return reply(request, response);
+    }
+
+    /**
+     * Answer a decoded request with {@code response} without executing it, e.g. when it is shed.
+     * Ends what {@link #decode} registered for the request, like {@link #process(Request)} does.
+     */
+    byte[] reject(Request request, Response response) {
+        if (request.search != null) searches.end(request.clientId, request.search);
+        return reply(request, response);
+    }
+
+    /**
+     * Encode {@code response} as the answer to {@code request}.
+     */
+    byte[] reply(Request request, Response response) {
+        request.errorCode = response.errorCode;
+        if (request.acceptsCompression) response.acceptEncoding = PayloadCodec.DEFLATE;
+        byte[] raw = GSON.toJson(response).getBytes(StandardCharsets.UTF_8);
+        long codecStart = System.nanoTime();
+        byte[] encoded = PayloadCodec.encode(raw, request.acceptsCompression);
+        long codecNanos = request.codecNanos + System.nanoTime() - codecStart;
+        COMPRESSION_STATS.record(request.requestType, request.rawLength, request.wireLength, raw.length, encoded.length,
+                codecNanos);
+        if (request.trace != null) request.trace.mark("encode");
+        return encoded;
+    }
+
+    /**
+     * Compression statistics of all handlers in this process.
+     */
+    public static CompressionStats getCompressionStats() {
+        return COMPRESSION_STATS;
+    }
+
+    /**
+     * Read the envelope fields into {@code request} in a single pass, without building a JSON tree.
+     * Clients send the requestType before the payload, so the payload is read straight into its
+     * type; a payload that comes first is kept as a tree and converted when dispatched.
+     * Failures are reported through {@link Request#decodeError}.
+     */
+    private static void parse(Reader json, Request request) {
+        JsonReader reader = new JsonReader(json);
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                request.decodeError = "Request must be a JSON object";
+                return;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                case "requestType" -> request.requestType = nextString(reader);
+                case "clientId" -> request.clientId = nextString(reader);
+                case "acceptEncoding" -> request.acceptsCompression = PayloadCodec.DEFLATE.equals(nextString(reader));
+                case "traceId" -> request.traceId = nextString(reader);
+                case "payload" -> {
+                    if (!readPayload(reader, request)) return;
+                }
+                default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | JsonParseException | IllegalStateException | NumberFormatException e) {
+            request.decodeError = "Malformed request: " + e.getMessage();
+        }
+    }
+
+    // false if the payload does not fit its request type
+    private static boolean readPayload(JsonReader reader, Request request) throws IOException {
+        Class<?> type = payloadType(request.requestType);
+        if (type == null) {
+            request.payloadTree = JsonParser.parseReader(reader);
+            return true;
+        }
+        try {
+            request.payload = GSON.getAdapter(type).read(reader);
+            return true;
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            request.decodeError = "Invalid payload for " + request.requestType + ": " + e.getMessage();
+            return false;
+        }
+    }
+
+    private static Class<?> payloadType(String requestType) {
+        if (requestType == null) return null;
+        return switch (requestType) {
+        case "create", "put" -> Ticket.class;
+        case "list" -> ListPayload.class;
+        case "page" -> PagePayload.class;
+        case "search" -> SearchPayload.class;
+        case "transition" -> TransitionPayload.class;
+        case "get", "accept", "reject", "close" -> Integer.class;
+        case "cancelSearch" -> Long.class;
+        default -> null;
+        };
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+        case STRING:
+        case NUMBER:
+            return reader.nextString();
+        case BOOLEAN:
+            return String.valueOf(reader.nextBoolean());
+        case NULL:
+            reader.nextNull();
+            return null;
+        default:
+            reader.skipValue();
+            return null;
+        }
+    }
+
+    /** The payload of {@code request} as {@code type}, null if it has none. */
+    private static <T> T payload(Request request, Class<T> type) {
+        if (request.payload != null) return type.cast(request.payload);
+        return request.payloadTree == null ? null : GSON.fromJson(request.payloadTree, type);
+    }
+
+    private static int id(Request request) {
+        Integer id = payload(request, Integer.class);
+        if (id == null) throw new IllegalArgumentException("missing ticket id");
+        return id;
+    }
+
+    // seq of a search or cancelSearch request, 0 if missing; bad payloads are reported by dispatch
+    private static long searchSeq(Request request) {
+        try {
+            if ("cancelSearch".equals(request.requestType)) {
+                Long seq = payload(request, Long.class);
+                return seq == null ? 0 : seq;
+            }
+            SearchPayload search = payload(request, SearchPayload.class);
+            return search == null ? 0 : search.seq;
+        } catch (JsonParseException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    Response dispatch(String requestJson) {
+        Request request = new Request();
+        parse(new StringReader(requestJson), request);
+        if (request.decodeError != null) return Response.error(ERROR_BAD_REQUEST, request.decodeError);
+        return dispatch(request, NOT_CANCELLED);
+    }
+
+    private Response dispatch(Request request, BooleanSupplier cancelled) {
+        String requestType = request.requestType;
+        if (requestType == null) return Response.error(ERROR_BAD_REQUEST, "Missing requestType");
+
+        try {
+            switch (requestType) {
+            case "create": {
+                Ticket t = payload(request, Ticket.class);
+                if (t == null) return Response.error(ERROR_BAD_REQUEST, "Missing ticket payload");
+                Trace.markCurrent("payload");
+                return Response.ofTicket(ticketStore.storeNewTicket(t.getReporter(), t.getTopic(), t.getDescription(),
+                        t.getType(), t.getPriority()));
+            }
+            case "list": {
+                ListPayload list = payload(request, ListPayload.class);
+                List<Ticket> all = ticketStore.getAllTickets();
+                if (list != null && list.sort != null) {
+                    all = new ArrayList<>(all);
+                    all.sort(list.sort.comparator());
+                }
+                return Response.ofTickets(all);
+            }
+            case "page": {
+                PagePayload page = payload(request, PagePayload.class);
+                if (page == null || page.offset < 0 || page.limit < 0) {
+                    return Response.error(ERROR_BAD_REQUEST, "Invalid page payload");
+                }
+                int limit = Math.min(page.limit, MAX_PAGE_SIZE);
+                if (page.after != null) {
+                    return Response.ofPage(ticketStore.getTicketPageAfter(page.after, limit, orById(page.sort)));
+                }
+                return Response.ofPage(ticketStore.getTicketPage(page.offset, limit, orById(page.sort)));
+            }
+            case "search": {
+                SearchPayload search = payload(request, SearchPayload.class);
+                if (search == null || search.limit < 0) return Response.error(ERROR_BAD_REQUEST, "Invalid search payload");
+                TicketQuery query = new TicketQuery(search.query, search.type);
+                return Response.ofTickets(ticketStore.searchTickets(query, orById(search.sort),
+                        Math.min(search.limit, MAX_SEARCH_RESULTS), cancelled));
+            }
+            case "cancelSearch":
+                // done in decode, on arrival
+                return new Response();
+            case "get":
+                return Response.ofTicket(ticketStore.findTicketById(id(request)));
+            case "accept":
+                return transition(id(request), OPEN_STATES, Status.IN_PROGRESS, "accept");
+            case "reject":
+                return transition(id(request), OPEN_STATES, Status.CLOSED, "reject");
+            case "close":
+                return transition(id(request), IN_PROGRESS_STATES, Status.CLOSED, "close");
+            case "put": {
+                Ticket t = payload(request, Ticket.class);
+                if (t == null) return Response.error(ERROR_BAD_REQUEST, "Missing ticket payload");
+                if (t.getStatus() == null) return Response.error(ERROR_BAD_REQUEST, "Missing ticket status");
+                return Response.ofTicket(ticketStore.storeTicket(t));
+            }
+            case "transition": {
+                TransitionPayload tp = payload(request, TransitionPayload.class);
+                if (tp == null || tp.status == null || tp.expected == null || tp.expected.contains(null)) {
+                    return Response.error(ERROR_BAD_REQUEST, "Incomplete transition payload");
+                }
+                Set<Status> expected = tp.expected.isEmpty() ? EnumSet.allOf(Status.class) : EnumSet.copyOf(tp.expected);
+                return Response.ofTicket(ticketStore.transitionTicketStatus(tp.id, expected, tp.status));
+            }
+            default:
+                return Response.error(ERROR_BAD_REQUEST, "Unknown requestType: " + requestType);
+            }
+        } catch (UnknownTicketException e) {
+            return Response.error(ERROR_UNKNOWN_TICKET, e.getMessage());
+        } catch (CancellationException e) {
+            return Response.error(ERROR_CANCELLED, e.getMessage());
+        } catch (NotPrimaryException e) {
+            return Response.error(ERROR_NOT_PRIMARY, e.getMessage());
+        } catch (IllegalStateException e) {
+            return Response.error(ERROR_INVALID_STATE, e.getMessage());
+        } catch (JsonParseException | UnsupportedOperationException | IllegalArgumentException e) {
+            return Response.error(ERROR_BAD_REQUEST, "Invalid payload for " + requestType + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            // missing fields are checked above, anything else is a bug on this side
+            LOG.error("Request {} failed: {}", requestType, e.toString(), e);
+            return Response.error(ERROR_INTERNAL, e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    private static TicketSort orById(TicketSort sort) {
+        return sort == null ? TicketSort.BY_ID : sort;
+    }
+
+    private Response transition(int id, Set<Status> expected, Status newStatus, String action) throws UnknownTicketException {
+        try {
+            return Response.ofTicket(ticketStore.transitionTicketStatus(id, expected, newStatus));
+        } catch (UnknownTicketException e) {
+            throw new UnknownTicketException("Ticket ID is unknown: " + id, e);
+        } catch (NotPrimaryException e) {
+            throw e;
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Cannot " + action + " Ticket: " + e.getMessage(), e);
+        }
+    }
+
+    /** Payload of the server to server {@code transition} request. */
+    static class TransitionPayload {
+        int id;
+        List<Status> expected;
+        Status status;
+
+        TransitionPayload(int id, Set<Status> expected, Status status) {
+            this.id = id;
+            this.expected = List.copyOf(expected);
+            this.status = status;
+        }
+    }
+
+    /** Optional payload of the {@code list} request. */
+    static class ListPayload {
+        TicketSort sort;
+    }
+
+    /** Payload of the {@code page} request. */
+    static class PagePayload {
+        int offset;
+        int limit;
+        TicketSort sort;
+        /** If set, the page starts after this ticket instead of at {@code offset}. */
+        Ticket after;
+
+        PagePayload(int offset, int limit, TicketSort sort) {
+            this.offset = offset;
+            this.limit = limit;
+            this.sort = sort;
+        }
+
+        PagePayload(Ticket after, int limit, TicketSort sort) {
+            this(0, limit, sort);
+            this.after = after;
+        }
+    }
+
+    /** Payload of the {@code search} request. */
+    static class SearchPayload {
+        String query;
+        Type type;
+        TicketSort sort;
+        int limit;
+        long seq;
+
+        SearchPayload(String query, Type type, TicketSort sort, int limit, long seq) {
+            this.query = query;
+            this.type = type;
+            this.sort = sort;
+            this.limit = limit;
+            this.seq = seq;
+        }
+    }
+
+    /** A decoded request together with the envelope fields needed before dispatching it. */
+    static class Request {
+        String requestType;
+        String clientId;
+        String traceId;
+        /** The payload read as the type of its request, or null. */
+        Object payload;
+        /** The payload if it came before the requestType, or null. */
+        JsonElement payloadTree;
+        boolean acceptsCompression;
+        String decodeError;
+        String errorCode;
+        int wireLength;
+        int rawLength;
+        long codecNanos;
+        /** Set if this request is traced. */
+        Trace trace;
+        /** Set if this request is a search. */
+        SearchRegistry.Running search;
+    }
+
+    /** Response envelope; unset fields are omitted from the JSON. */
+    static class Response {
+        Ticket ticket;
+        List<Ticket> tickets;
+        Integer total;
+        String error;
+        String errorCode;
+        String acceptEncoding;
+        Long retryAfterMs;
+
+        static Response ofTicket(Ticket ticket) {
+            Response r = new Response();
+            r.ticket = ticket;
+            return r;
+        }
+
+        static Response ofTickets(List<Ticket> tickets) {
+            Response r = new Response();
+            r.tickets = tickets;
+            return r;
+        }
+
+        static Response ofPage(TicketPage page) {
+            Response r = ofTickets(page.getTickets());
+            r.total = page.getTotal();
+            return r;
+        }
+
+        static Response error(String errorCode, String message) {
+            Response r = new Response();
+            r.errorCode = errorCode;
+            r.error = message;
+            return r;
+        }
+
+        static Response busy(String message, long retryAfterMs) {
+            Response r = error(ERROR_BUSY, message);
+            r.retryAfterMs = retryAfterMs;
+            return r;
+        }
+    }
+}
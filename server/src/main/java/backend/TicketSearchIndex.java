@@ -0,0 +1,113 @@
+package backend;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import entities.Ticket;
+import entities.TicketQuery;
+
+/**
+ * Word prefix index over the topics and reporters of tickets, for searches run as the user types.
+ *
+ * - Every lower case word ({@link TicketQuery#words}) maps to the sorted ids of the tickets
+ *   containing it. A query word selects the range of indexed words starting with it, so a prefix
+ *   costs a range lookup instead of a scan over all tickets.
+ * - {@link #candidates} merges the id sets of that range in id order, without collecting them
+ *   first: a caller that stops at its result limit pays for as many ids as it looked at, even if
+ *   a one letter prefix matches half of all tickets. The longest query word drives the merge,
+ *   as it usually matches the fewest tickets; the other words and the type are checked on the
+ *   tickets themselves.
+ * - Topics and reporters never change, so tickets are only ever added. Thread-safe.
+ */
+final class TicketSearchIndex {
+
+    private final ConcurrentSkipListMap<String, ConcurrentSkipListSet<Integer>> words = new ConcurrentSkipListMap<>();
+
+    void add(Ticket ticket) {
+        Integer id = ticket.getId();
+        for (String word : TicketQuery.words(ticket.getTopic())) {
+            words.computeIfAbsent(word, w -> new ConcurrentSkipListSet<>()).add(id);
+        }
+        for (String word : TicketQuery.words(ticket.getReporter())) {
+            words.computeIfAbsent(word, w -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+
+    /**
+     * Ids of the tickets having a word that starts with the longest word of {@code query}, in
+     * ascending order without duplicates. The query must not be empty.
+     */
+    PrimitiveIterator.OfInt candidates(TicketQuery query) {
+        String driver = "";
+        for (String prefix : query.getPrefixes()) {
+            if (prefix.length() > driver.length()) driver = prefix;
+        }
+        PriorityQueue<Cursor> heads = new PriorityQueue<>();
+        for (ConcurrentSkipListSet<Integer> ids : words.subMap(driver, true, driver + Character.MAX_VALUE, false).values()) {
+            Cursor cursor = new Cursor(ids.iterator());
+            if (cursor.advance()) heads.add(cursor);
+        }
+        return new Merge(heads);
+    }
+
+    /** Number of distinct words indexed. */
+    int getWordCount() {
+        return words.size();
+    }
+
+    // the next id of one word's id set
+    private static final class Cursor implements Comparable<Cursor> {
+        final Iterator<Integer> ids;
+        int current;
+
+        Cursor(Iterator<Integer> ids) {
+            this.ids = ids;
+        }
+
+        boolean advance() {
+            if (!ids.hasNext()) return false;
+            current = ids.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return Integer.compare(current, other.current);
+        }
+    }
+
+    // k-way merge of sorted id sets
+    private static final class Merge implements PrimitiveIterator.OfInt {
+        private final PriorityQueue<Cursor> heads;
+        private boolean started;
+        private int last;
+
+        Merge(PriorityQueue<Cursor> heads) {
+            this.heads = heads;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!heads.isEmpty() && started && heads.peek().current == last) skipHead();
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) throw new NoSuchElementException();
+            last = heads.peek().current;
+            started = true;
+            skipHead();
+            return last;
+        }
+
+        private void skipHead() {
+            Cursor head = heads.poll();
+            if (head.advance()) heads.add(head);
+        }
+    }
+}
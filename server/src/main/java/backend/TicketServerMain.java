@@ -1,15 +1,52 @@
 package backend;
 
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import logging.AsyncLogger;
 
 public class TicketServerMain {
 
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(TicketServerMain.class);
+
     public static void main(String[] args) {
-        TicketStore simpleTestStore = new SimpleTicketStore();
+        IdAllocator idAllocator = createIdAllocator();
+        TicketStore simpleTestStore;
+        try {
+            simpleTestStore = createTicketStore(idAllocator);
+        } catch (SocketException | IllegalArgumentException e) {
+            LOG.error("Invalid shard configuration: {}", e.getMessage());
+            AsyncLogger.flush(1000);
+            return;
+        }
 
-        List<RemoteAccess> remoteAccessImplementations = getAvailableRemoteAccessImplementations(args);
-        System.out.println("Starting server with " + remoteAccessImplementations.size() + " remote access implementation(s).");
+        List<RemoteAccess> remoteAccessImplementations = new ArrayList<>();
+        try {
+            simpleTestStore = configureReplication(simpleTestStore, idAllocator, remoteAccessImplementations);
+        } catch (IllegalArgumentException e) {
+            LOG.error("Invalid replication configuration: {}", e.getMessage());
+            AsyncLogger.flush(1000);
+            return;
+        }
+        if (isJmsEnabled()) {
+            // change events for the JMS topic
+            simpleTestStore = new NotifyingTicketStore(simpleTestStore);
+        }
+        ServerMetrics metrics = new ServerMetrics(TicketServerMain::registerMBean);
+        AdmissionController admission = new AdmissionController(new TicketRequestHandler(simpleTestStore), metrics);
+        remoteAccessImplementations.addAll(getAvailableRemoteAccessImplementations(args, admission));
+        registerMBean(TicketRequestHandler.getCompressionStats(), "backend:type=Compression");
+        registerMBean(admission, "backend:type=Admission");
+        registerMBean(AsyncLogger.ring(), "backend:type=Logging");
+        LOG.info("Starting server with {} remote access implementation(s).", remoteAccessImplementations.size());
 
         List<Thread> threads = new ArrayList<>();
         for (RemoteAccess implementation : remoteAccessImplementations) {
@@ -18,23 +55,22 @@ public class TicketServerMain {
                 Thread t = new Thread((Runnable) implementation, implementation.getClass().getSimpleName());
                 t.start();
                 threads.add(t);
-                System.out.println("Started: " + implementation.getClass().getSimpleName());
+                LOG.info("Started: {}", implementation.getClass().getSimpleName());
             } catch (Exception e) {
-                System.out.println("Failed to start " + implementation.getClass().getSimpleName() + ": " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("Failed to start {}: {}", implementation.getClass().getSimpleName(), e.getMessage(), e);
             }
         }
 
         // Use a shutdown hook instead of waiting for stdin so the server keeps running
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("Shutdown initiated...");
+            LOG.info("Shutdown initiated...");
             // notify implementations to stop
             for (RemoteAccess implementation : remoteAccessImplementations) {
                 try {
                     implementation.shutdown();
-                    System.out.println("Shutdown requested for: " + implementation.getClass().getSimpleName());
+                    LOG.info("Shutdown requested for: {}", implementation.getClass().getSimpleName());
                 } catch (Exception e) {
-                    System.out.println("Error shutting down " + implementation.getClass().getSimpleName() + ": " + e.getMessage());
+                    LOG.warn("Error shutting down {}: {}", implementation.getClass().getSimpleName(), e.getMessage());
                 }
             }
 
@@ -43,31 +79,192 @@ public class TicketServerMain {
                 try {
                     t.join(2000);
                     if (t.isAlive()) {
-                        System.out.println("Thread " + t.getName() + " did not stop, interrupting.");
+                        LOG.warn("Thread {} did not stop, interrupting.", t.getName());
                         t.interrupt();
                     }
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                 }
             }
-            System.out.println("Shutdown hook completed.");
+            admission.shutdown();
+            for (String line : TicketRequestHandler.getCompressionStats().getReport()) {
+                LOG.info("Compression {}", line);
+            }
+            LOG.info("Shutdown hook completed.");
+            AsyncLogger.flush(1000);
         }));
 
-        System.out.println("Server running. Press Ctrl+C to shutdown.");
+        LOG.info("Server running. Press Ctrl+C to shutdown.");
         try {
             Thread.sleep(Long.MAX_VALUE);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
 
-        System.out.println("Completed. Bye!");
+        LOG.info("Completed. Bye!");
+        AsyncLogger.flush(1000);
+    }
+
+    /**
+     * Build the id allocator from system properties:
+     * - {@code ticket.id.leaseFile}: coordinator file shared by all server processes; when unset
+     *   ids come from an in-process counter
+     * - {@code ticket.id.leaseBlock}: number of ids leased per coordinator access (default 1000)
+     */
+    private static IdAllocator createIdAllocator() {
+        String leaseFile = System.getProperty("ticket.id.leaseFile");
+        if (leaseFile == null || leaseFile.isBlank()) {
+            return new SequentialIdAllocator();
+        }
+        int blockSize = LeasedIdAllocator.DEFAULT_BLOCK_SIZE;
+        try {
+            blockSize = Integer.parseInt(System.getProperty("ticket.id.leaseBlock", String.valueOf(blockSize)));
+        } catch (NumberFormatException ignored) {
+        }
+        LOG.info("Leasing ticket ids in blocks of {} from {}", blockSize, leaseFile);
+        return new LeasedIdAllocator(Paths.get(leaseFile), blockSize);
+    }
+
+    /**
+     * Build the ticket store from system properties:
+     * - {@code ticket.shard.nodes}: comma separated {@code host:port} list of shard servers; this
+     *   process then acts as the routing front server and forwards requests to the shards
+     * - {@code ticket.shard.count}: number of in-process shards (ignored if shard nodes are given)
+     * Without either property a single {@link SimpleTicketStore} is used.
+     */
+    private static TicketStore createTicketStore(IdAllocator idAllocator) throws SocketException {
+        Map<String, TicketStore> shards = new LinkedHashMap<>();
+        String nodes = System.getProperty("ticket.shard.nodes");
+        if (nodes != null && !nodes.isBlank()) {
+            for (String node : nodes.split(",")) {
+                InetSocketAddress addr = parseHostPort(node);
+                shards.put(node.trim(), new RemoteTicketStore(addr.getHostString(), addr.getPort()));
+            }
+        } else {
+            int count = Integer.getInteger("ticket.shard.count", 1);
+            if (count <= 1) return new SimpleTicketStore(idAllocator);
+            for (int i = 0; i < count; i++) {
+                shards.put("shard-" + i, new SimpleTicketStore(idAllocator));
+            }
+        }
+        LOG.info("Partitioning tickets across {} shard(s): {}", shards.size(), shards.keySet());
+        return new ShardedTicketStore(shards, idAllocator);
+    }
+
+    /**
+     * Wrap the store for primary-backup replication if {@code ticket.replication.role} is set:
+     * - {@code primary}: ships its operation log to backups connecting on {@code ticket.replication.port}
+     *   (default 1240); {@code ticket.replication.mode} is {@code async} (default) or {@code semi-sync},
+     *   semi-synchronous writes wait up to {@code ticket.replication.ackTimeoutMs} (default 1000) for a backup
+     * - {@code backup}: follows the primary at {@code ticket.replication.primary} ({@code host:port})
+     *   and serves reads only
+     * The replication state is published as JMX MBean {@code backend:type=Replication}.
+     */
+    private static TicketStore configureReplication(TicketStore store, IdAllocator idAllocator,
+                                                    List<RemoteAccess> implementations) {
+        String clusterNodes = System.getProperty("ticket.cluster.nodes");
+        if (clusterNodes != null && !clusterNodes.isBlank()) {
+            return configureCluster(clusterNodes, idAllocator, implementations);
+        }
+        String role = System.getProperty("ticket.replication.role");
+        if (role == null || role.isBlank()) return store;
+
+        ReplicatingTicketStore.Mode mode = "semi-sync".equalsIgnoreCase(System.getProperty("ticket.replication.mode"))
+                ? ReplicatingTicketStore.Mode.SEMI_SYNC : ReplicatingTicketStore.Mode.ASYNC;
+        long ackTimeoutMs = Long.getLong("ticket.replication.ackTimeoutMs", 1000L);
+        ReplicatingTicketStore replicated;
+        switch (role.trim().toLowerCase()) {
+        case "primary":
+            replicated = new ReplicatingTicketStore(store, idAllocator, ReplicatingTicketStore.Role.PRIMARY, mode, ackTimeoutMs);
+            implementations.add(new ReplicationPrimary(replicated, System.getProperty("ticket.server.bind"),
+                    Integer.getInteger("ticket.replication.port", 1240)));
+            break;
+        case "backup":
+            InetSocketAddress primary = parseHostPort(System.getProperty("ticket.replication.primary", ""));
+            replicated = new ReplicatingTicketStore(store, idAllocator, ReplicatingTicketStore.Role.BACKUP, mode, ackTimeoutMs);
+            implementations.add(new ReplicationBackup(replicated, primary.getHostString(), primary.getPort()));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown replication role '" + role + "'");
+        }
+        registerMBean(replicated, "backend:type=Replication");
+        LOG.info("Replication enabled: role={} mode={}", replicated.getRole(), replicated.getMode());
+        return replicated;
+    }
+
+    /**
+     * Run this process as member of a self-electing replica group:
+     * - {@code ticket.cluster.nodes}: comma separated {@code id@host:electionPort} list of all members
+     * - {@code ticket.cluster.nodeId}: id of this member
+     * - {@code ticket.cluster.stateFile}: optional file persisting the election epoch and vote
+     * Every member ships its log on {@code ticket.replication.port} while leader and follows the
+     * current leader otherwise; the member host is advertised for replication and client hints.
+     */
+    private static TicketStore configureCluster(String clusterNodes, IdAllocator idAllocator,
+                                                List<RemoteAccess> implementations) {
+        Map<Integer, InetSocketAddress> members = new LinkedHashMap<>();
+        for (String node : clusterNodes.split(",")) {
+            String value = node.trim();
+            int at = value.indexOf('@');
+            if (at <= 0) throw new IllegalArgumentException("Expected id@host:port but got '" + value + "'");
+            InetSocketAddress addr = parseHostPort(value.substring(at + 1));
+            members.put(Integer.parseInt(value.substring(0, at)), new InetSocketAddress(addr.getHostString(), addr.getPort()));
+        }
+        Integer nodeId = Integer.getInteger("ticket.cluster.nodeId");
+        if (nodeId == null || !members.containsKey(nodeId)) {
+            throw new IllegalArgumentException("ticket.cluster.nodeId must be one of " + members.keySet());
+        }
+        String host = members.get(nodeId).getHostString();
+        int replicationPort = Integer.getInteger("ticket.replication.port", 1240);
+        int clientPort = Integer.getInteger("ticket.server.port", 1140);
+
+        ReplicatingTicketStore.Mode mode = "semi-sync".equalsIgnoreCase(System.getProperty("ticket.replication.mode"))
+                ? ReplicatingTicketStore.Mode.SEMI_SYNC : ReplicatingTicketStore.Mode.ASYNC;
+        ReplicatingTicketStore replicated = new ReplicatingTicketStore(new SimpleTicketStore(idAllocator),
+                () -> new SimpleTicketStore(idAllocator), idAllocator, ReplicatingTicketStore.Role.BACKUP, mode,
+                Long.getLong("ticket.replication.ackTimeoutMs", 1000L));
+        ReplicationBackup backup = new ReplicationBackup(replicated);
+        String stateFile = System.getProperty("ticket.cluster.stateFile");
+        implementations.add(new ReplicationPrimary(replicated, System.getProperty("ticket.server.bind"), replicationPort));
+        implementations.add(backup);
+        implementations.add(new ClusterNode(nodeId, members, replicated, backup, host + ":" + replicationPort,
+                host + ":" + clientPort, stateFile == null || stateFile.isBlank() ? null : Paths.get(stateFile)));
+        registerMBean(replicated, "backend:type=Replication");
+        LOG.info("Cluster member {} of {}, mode={}", nodeId, members.keySet(), replicated.getMode());
+        return replicated;
+    }
+
+    /**
+     * Whether to serve clients over JMS as well ({@code ticket.jms.enabled}, default false), see
+     * {@link JmsRemoteAccess} for its properties.
+     */
+    private static boolean isJmsEnabled() {
+        return Boolean.getBoolean("ticket.jms.enabled");
+    }
+
+    private static void registerMBean(Object mbean, String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+        } catch (Exception e) {
+            LOG.warn("Could not register MBean {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static InetSocketAddress parseHostPort(String hostPort) {
+        String value = hostPort == null ? "" : hostPort.trim();
+        int sep = value.lastIndexOf(':');
+        if (sep <= 0) throw new IllegalArgumentException("Expected host:port but got '" + value + "'");
+        return InetSocketAddress.createUnresolved(value.substring(0, sep), Integer.parseInt(value.substring(sep + 1)));
     }
 
-    private static List<RemoteAccess> getAvailableRemoteAccessImplementations(String[] args) {
+    private static List<RemoteAccess> getAvailableRemoteAccessImplementations(String[] args, AdmissionController admission) {
         List<RemoteAccess> implementations = new ArrayList<>();
 
-        // add available RemoteAccess implementations here
-        implementations.add(new UDPRemoteAccess());
+        // add available RemoteAccess implementations here; all client transports share one admission queue
+        String bindHost = System.getProperty("ticket.server.bind");
+        implementations.add(new UDPRemoteAccess(Integer.getInteger("ticket.server.port", 1140), bindHost, admission));
+        implementations.add(new TcpRemoteAccess(Integer.getInteger("ticket.server.tcpPort", 1160), bindHost, admission));
+        if (isJmsEnabled()) implementations.add(new JmsRemoteAccess(admission));
 
         return implementations;
     }
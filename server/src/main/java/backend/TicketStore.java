@@ -1,17 +1,25 @@
 package backend;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 import entities.Priority;
 import entities.Status;
 import entities.Ticket;
+import entities.TicketPage;
+import entities.TicketQuery;
+import entities.TicketSort;
 import entities.Type;
 
 /**
  * Thread-safe abstraction for a ticket storage backend.
  *
  * Implementations must provide creation, status update and listing operations.
- * A small convenience default method is provided to lookup a ticket by id using getAllTickets().
+ * Small convenience default methods are provided to lookup a ticket by id using getAllTickets()
+ * and to perform a checked status transition.
  */
 public interface TicketStore {
 
@@ -28,6 +36,16 @@ public interface TicketStore {
     Ticket storeNewTicket(String reporter, String topic, String description,
                           Type type, Priority priority);
 
+    /**
+     * Store a ticket whose id was already assigned elsewhere (e.g. by a shard router or a
+     * replication primary). An existing ticket with the same id is replaced.
+     *
+     * @param ticket ticket with assigned id
+     * @return the stored Ticket
+     * @throws IllegalArgumentException if ticket is null or has no positive id
+     */
+    Ticket storeTicket(Ticket ticket);
+
     /**
      * Update the status of an existing ticket.
      *
@@ -45,6 +63,66 @@ public interface TicketStore {
      */
     List<Ticket> getAllTickets();
 
+    /**
+     * Return the tickets at positions {@code offset .. offset + limit} in {@code sort} order, e.g.
+     * for a client showing a huge list page by page. Default implementation selects them from
+     * getAllTickets() with a heap bounded to {@code offset + limit} tickets.
+     *
+     * Implementations that keep their tickets ordered should override this method.
+     *
+     * @param offset position of the first ticket, 0 based
+     * @param limit  maximum number of tickets to return
+     * @param sort   order of the tickets
+     * @return the page and the total number of tickets
+     */
+    default TicketPage getTicketPage(int offset, int limit, TicketSort sort) {
+        return TicketPage.of(getAllTickets(), sort, offset, limit);
+    }
+
+    /**
+     * Return the first {@code limit} tickets that come after {@code after} in {@code sort} order
+     * (keyset paging). Unlike an offset, the cursor costs nothing to skip, so deep pages cost as
+     * much as the first one. Default implementation scans getAllTickets() with a heap bounded to
+     * {@code limit} tickets.
+     *
+     * @param after  last ticket of the previous page, compared by its sort key and id; null for the first page
+     * @param limit  maximum number of tickets to return
+     * @param sort   order of the tickets
+     * @return the tickets and the total number of tickets; the page does not know its offset (0)
+     */
+    default TicketPage getTicketPageAfter(Ticket after, int limit, TicketSort sort) {
+        List<Ticket> all = getAllTickets();
+        Comparator<Ticket> order = sort.comparator();
+        TicketSort.Top top = sort.top(limit);
+        for (Ticket t : all) {
+            if (after == null || order.compare(t, after) > 0) top.offer(t);
+        }
+        return new TicketPage(0, all.size(), top.toList());
+    }
+
+    /**
+     * Return the first {@code limit} tickets in {@code sort} order that match {@code query}.
+     * Default implementation scans getAllTickets().
+     *
+     * Implementations that keep a search index should override this method.
+     *
+     * @param query     words to match as prefixes, and the type
+     * @param sort      order of the tickets
+     * @param limit     maximum number of tickets to return
+     * @param cancelled polled while searching, e.g. whether the client has sent a newer query
+     * @return matching tickets (may be empty, never null)
+     * @throws CancellationException if {@code cancelled} turned true before the search completed
+     */
+    default List<Ticket> searchTickets(TicketQuery query, TicketSort sort, int limit, BooleanSupplier cancelled) {
+        List<Ticket> all = getAllTickets();
+        TicketSort.Top found = sort.top(limit);
+        for (int i = 0; i < all.size(); i++) {
+            if ((i & 0xff) == 0 && cancelled.getAsBoolean()) throw new CancellationException("Search cancelled");
+            if (query.matches(all.get(i))) found.offer(all.get(i));
+        }
+        return found.toList();
+    }
+
     /**
      * Convenience lookup: find a ticket by id. Default implementation scans getAllTickets().
      *
@@ -60,4 +138,30 @@ public interface TicketStore {
         }
         return null;
     }
+
+    /**
+     * Atomically change the status of a ticket if its current status is one of {@code expected}.
+     *
+     * The default implementation serializes all transitions on this store instance.
+     * Implementations with finer grained locking should override this method.
+     *
+     * @param ticketId  id of the ticket to update
+     * @param expected  statuses the ticket may currently be in
+     * @param newStatus status to set
+     * @return the updated Ticket
+     * @throws UnknownTicketException if the ticket id does not exist
+     * @throws IllegalStateException  if the ticket is not in one of the expected statuses
+     */
+    default Ticket transitionTicketStatus(int ticketId, Set<Status> expected, Status newStatus)
+            throws UnknownTicketException, IllegalStateException {
+        synchronized (this) {
+            Ticket current = findTicketById(ticketId);
+            if (current == null) throw new UnknownTicketException("Ticket id " + ticketId + " not found");
+            if (!expected.contains(current.getStatus())) {
+                throw new IllegalStateException("Ticket is currently in status " + current.getStatus());
+            }
+            updateTicketStatus(ticketId, newStatus);
+            return findTicketById(ticketId);
+        }
+    }
 }
@@ -1,47 +1,70 @@
 package backend;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
 import entities.Priority;
 import entities.RawData;
 import entities.Status;
 import entities.Ticket;
 import entities.Type;
+import logging.AsyncLogger;
+import protocol.PayloadCodec;
 
 /**
  * Thread-safe in-memory ticket store with simple support for assembling chunked RawData payloads.
  *
  * Notes:
- * - Uses Gson to deserialize the payload carried in RawData.data (textual JSON).
+ * - Uses Gson to deserialize the payload carried in RawData.data (textual JSON). One shared instance,
+ *   and requests are read straight from their datagram bytes, see {@link #handleRequest(byte[], int, int)}.
+ * - Chunks are read one after another as a single JSON text, without joining them into a copy first.
  * - Chunk assembly key uses clientId + ":" + requestType to avoid collisions per-client/request-type.
+ * - All state is per instance, so several independent stores (e.g. shards) can live in one JVM.
  */
 public class TicketStoreData implements TicketStore {
 
-    private static final Map<Integer, Ticket> ticketData = new ConcurrentHashMap<>();
-    private static final Map<String, RawData[]> chunkPartialData = new ConcurrentHashMap<>();
-    private static final AtomicInteger idGenerator = new AtomicInteger(1);
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(TicketStoreData.class);
+    private static final Gson GSON = new Gson();
 
-    private final String rawTicketData; // JSON string passed to handleRequest
+    private final Map<Integer, Ticket> ticketData = new ConcurrentHashMap<>();
+    private final Map<String, RawData[]> chunkPartialData = new ConcurrentHashMap<>();
+    private final IdAllocator idAllocator;
 
-    public TicketStoreData(String rawTicketData) {
-        this.rawTicketData = rawTicketData;
+    public TicketStoreData() {
+        this(new SequentialIdAllocator());
+    }
+
+    public TicketStoreData(IdAllocator idAllocator) {
+        if (idAllocator == null) throw new IllegalArgumentException("idAllocator must not be null");
+        this.idAllocator = idAllocator;
     }
 
     /**
-     * Parse the rawTicketData payload and store or assemble tickets as appropriate.
+     * Parse the rawTicketData payload (JSON encoded RawData) and store or assemble tickets as appropriate.
      */
-    public void handleRequest() {
-        Gson g = new Gson();
-        RawData raw = g.fromJson(this.rawTicketData, RawData.class);
+    public void handleRequest(String rawTicketData) {
+        handleRequest(new StringReader(rawTicketData));
+    }
+
+    /**
+     * Like {@link #handleRequest(String)} for a request in wire encoding ({@link PayloadCodec}), read in
+     * one pass from {@code data} without decoding it into a String first.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid encoded message
+     */
+    public void handleRequest(byte[] data, int offset, int length) {
+        handleRequest(PayloadCodec.reader(data, offset, length));
+    }
+
+    private void handleRequest(Reader rawTicketData) {
+        RawData raw = GSON.fromJson(new JsonReader(rawTicketData), RawData.class);
         if (raw == null) return;
 
         if (isFullTicket(raw) && !isUpdateRequest(raw)) {
@@ -69,9 +92,9 @@ public class TicketStoreData implements TicketStore {
     public Ticket createFullTicket(RawData rawDataObject) {
         if (rawDataObject == null || rawDataObject.getData() == null) return null;
         try {
-            return new Gson().fromJson(rawDataObject.getData(), Ticket.class);
+            return GSON.fromJson(rawDataObject.getData(), Ticket.class);
         } catch (Exception ex) {
-            System.out.println("Failed to parse full ticket JSON: " + ex.getMessage());
+            LOG.warn("Failed to parse full ticket JSON: {}", ex.getMessage());
             return null;
         }
     }
@@ -87,7 +110,7 @@ public class TicketStoreData implements TicketStore {
         int chunkNo = rawDataObject.getChunkNo();
 
         if (totalChunks <= 0 || chunkNo <= 0 || chunkNo > totalChunks) {
-            System.out.println("Invalid chunk metadata: totalChunks=" + totalChunks + " chunkNo=" + chunkNo);
+            LOG.warn("Invalid chunk metadata: totalChunks={} chunkNo={}", totalChunks, chunkNo);
             return null;
         }
 
@@ -111,22 +134,16 @@ public class TicketStoreData implements TicketStore {
             RawData[] parts = chunkPartialData.remove(key);
             if (parts == null) return null;
 
-            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                for (RawData part : parts) {
-                    if (part == null) {
-                        // incomplete, shouldn't happen because of ifFull guard
-                        return null;
-                    }
-                    String d = part.getData();
-                    if (d != null) {
-                        baos.write(d.getBytes(StandardCharsets.UTF_8));
-                    }
+            for (RawData part : parts) {
+                if (part == null) {
+                    // incomplete, shouldn't happen because of ifFull guard
+                    return null;
                 }
-                byte[] fullBytes = baos.toByteArray();
-                String fullJson = new String(fullBytes, StandardCharsets.UTF_8);
-                return new Gson().fromJson(fullJson, Ticket.class);
-            } catch (IOException | RuntimeException ex) {
-                System.out.println("Error assembling chunks: " + ex.getMessage());
+            }
+            try {
+                return GSON.fromJson(new JsonReader(new ChunkReader(parts)), Ticket.class);
+            } catch (RuntimeException ex) {
+                LOG.warn("Error assembling chunks: {}", ex.getMessage());
                 return null;
             }
         }
@@ -134,26 +151,59 @@ public class TicketStoreData implements TicketStore {
         return null; // not yet complete
     }
 
+    /** The data of all chunks, read one after another. */
+    private static final class ChunkReader extends Reader {
+        private final RawData[] parts;
+        private int part;
+        private int pos;
+
+        ChunkReader(RawData[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            if (len == 0) return 0;
+            while (part < parts.length) {
+                String d = parts[part].getData();
+                if (d != null && pos < d.length()) {
+                    int n = Math.min(len, d.length() - pos);
+                    d.getChars(pos, pos + n, buf, off);
+                    pos += n;
+                    return n;
+                }
+                part++;
+                pos = 0;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+
     private static String makeChunkKey(RawData r) {
         String client = r.getClientId() == null ? "unknown" : r.getClientId();
         String req = r.getRequestType() == null ? "unknown" : r.getRequestType();
         return client + ":" + req;
     }
 
-    public static synchronized boolean ifFull(String key) {
+    public synchronized boolean ifFull(String key) {
         RawData[] arr = chunkPartialData.get(key);
         if (arr == null) return false;
         for (RawData rd : arr) if (rd == null) return false;
         return true;
     }
 
-    public static synchronized boolean putPartialTicketData(String key, RawData[] x) {
+    public synchronized boolean putPartialTicketData(String key, RawData[] x) {
         if (key == null || x == null) return false;
         chunkPartialData.put(key, x);
         return true;
     }
 
-    public static synchronized boolean deletePartialData(String key) {
+    public synchronized boolean deletePartialData(String key) {
         if (key == null) return false;
         return chunkPartialData.remove(key) != null;
     }
@@ -161,7 +211,7 @@ public class TicketStoreData implements TicketStore {
     /**
      * Convenience: get partial data array for a key (may be null).
      */
-    public static synchronized RawData[] getPartialData(String key) {
+    public synchronized RawData[] getPartialData(String key) {
         if (key == null) return null;
         return chunkPartialData.get(key);
     }
@@ -176,23 +226,35 @@ public class TicketStoreData implements TicketStore {
 
     @Override
     public Ticket storeNewTicket(String reporter, String topic, String description, Type type, Priority priority) {
-        int id = idGenerator.getAndIncrement();
+        int id = idAllocator.nextId();
         Ticket t = new Ticket(id, reporter, topic, description, type, priority);
         ticketData.put(id, t);
         return t;
     }
 
+    @Override
+    public Ticket storeTicket(Ticket ticket) {
+        if (ticket == null || ticket.getId() <= 0) throw new IllegalArgumentException("ticket with positive id required");
+        ticketData.put(ticket.getId(), ticket);
+        return ticket;
+    }
+
     @Override
     public void updateTicketStatus(int ticketId, Status newStatus)
             throws UnknownTicketException, IllegalStateException {
         Ticket t = ticketData.get(ticketId);
         if (t == null) throw new UnknownTicketException("Ticket id " + ticketId + " not found");
         if (newStatus == null) throw new IllegalStateException("Status must not be null");
-        t.setStatus(newStatus);
+        t.changeStatus(newStatus);
     }
 
     @Override
     public List<Ticket> getAllTickets() {
         return new ArrayList<>(ticketData.values());
     }
+
+    @Override
+    public Ticket findTicketById(int id) {
+        return ticketData.get(id);
+    }
 }
@@ -0,0 +1,22 @@
+package backend;
+
+/**
+ * JMX view of the traffic counters of one transport (udp, tcp).
+ */
+public interface TransportMetricsMXBean {
+
+    long getRequests();
+
+    /** Requests answered with an error, including requests shed by admission control. */
+    long getErrors();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    /** Datagrams received or to be sent that could not be processed. */
+    long getDroppedPackets();
+
+    /** Multi-datagram messages abandoned because not all parts arrived in time. */
+    long getReassemblyTimeouts();
+}
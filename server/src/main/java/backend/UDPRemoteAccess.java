@@ -5,80 +5,237 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
-import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import logging.AsyncLogger;
+import protocol.ChunkAssembler;
+import protocol.DatagramChunk;
+import protocol.DatagramHeader;
 
 /*
  * UDPRemoteAccess: improved UDP listener for ticket RPC/messages.
  * - Better naming, charset-safe string parsing, graceful shutdown handling.
  * - Non-static active flag so multiple instances behave correctly.
+ * - Requests with a DatagramHeader get it echoed in front of their response, so clients can
+ *   match responses to requests and retransmit.
+ * - Chunked requests ({@link DatagramChunk}) are acknowledged chunk by chunk with the ranges
+ *   received so far, and reassembled before they are submitted, each at most once; incomplete
+ *   ones are dropped after {@code ticket.udp.reassemblyTimeoutMs} (default 2000) and counted as
+ *   reassembly timeouts. Responses larger than {@code ticket.udp.chunkSize} go out as chunks and
+ *   are kept for {@code ticket.udp.resendWindowMs} (default 5000, at most
+ *   {@code ticket.udp.resendCacheBytes}, default 16 MB) to answer requests for missing chunks.
+ *   The socket receive buffer is {@code ticket.udp.receiveBufferBytes} (default 4 MB).
  */
 public class UDPRemoteAccess implements RemoteAccess, Runnable {
 
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(UDPRemoteAccess.class);
+
     private static final int DEFAULT_PORT = 1140;
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int MAX_ASSEMBLING = 4096;
+    private static final int RECEIVE_TIMEOUT_MS = 1000;
+    static final String TRANSPORT = "udp";
+
+    private final int chunkSize = DatagramChunk.chunkSize();
+    private final ChunkAssembler<MessageKey> assembler =
+            new ChunkAssembler<>(Long.getLong("ticket.udp.reassemblyTimeoutMs", 2000), MAX_ASSEMBLING);
+    private final SentResponses sent = new SentResponses(Long.getLong("ticket.udp.resendWindowMs", 5000),
+            Long.getLong("ticket.udp.resendCacheBytes", 16L * 1024 * 1024));
 
     private volatile boolean active = true;
     private DatagramSocket datagramSocket;
+    private AdmissionController admission;
+    private final int port;
+    private final String bindHost;
 
+    /**
+     * Listen on the port given by system property {@code ticket.server.port} (default 1140)
+     * and the address given by {@code ticket.server.bind} (default: local host address).
+     */
     public UDPRemoteAccess() {
+        this(Integer.getInteger("ticket.server.port", DEFAULT_PORT), System.getProperty("ticket.server.bind"));
+    }
+
+    public UDPRemoteAccess(int port, String bindHost) {
+        this(port, bindHost, null);
+    }
+
+    /**
+     * @param admission admission control shared with other transports; if null, one is created
+     *                  for this transport in {@link #prepareStartup(TicketStore)}
+     */
+    public UDPRemoteAccess(int port, String bindHost, AdmissionController admission) {
+        this.port = port;
+        this.bindHost = bindHost;
+        this.admission = admission;
     }
 
     @Override
     public void run() {
         // Ensure socket is available
         if (datagramSocket == null) {
-            System.out.println("UDP socket is not initialized. Call prepareStartup(...) first.");
+            LOG.error("UDP socket is not initialized. Call prepareStartup(...) first.");
             return;
         }
 
+        long reportedTimeouts = 0;
         while (active && !datagramSocket.isClosed()) {
-            byte[] buffer = new byte[64507]; // max UDP payload for IPv4
+            byte[] buffer = new byte[MAX_DATAGRAM_SIZE]; // max UDP payload for IPv4
             DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
             try {
+                assembler.expire(System.nanoTime());
+                long timeouts = assembler.getTimeouts();
+                if (timeouts > reportedTimeouts) {
+                    admission.getMetrics().transport(TRANSPORT).reassemblyTimeouts(timeouts - reportedTimeouts);
+                    reportedTimeouts = timeouts;
+                }
                 datagramSocket.receive(packet);
 
-                String rawJsonData = new String(packet.getData(), packet.getOffset(), packet.getLength(),
-                        StandardCharsets.UTF_8).trim();
-
                 InetAddress remoteAddr = packet.getAddress();
                 int remotePort = packet.getPort();
-                System.out.println("Received UDP packet from " + remoteAddr + ":" + remotePort +
-                        " - payload length=" + packet.getLength());
-                // TODO: parse rawJsonData and forward to ticket store / processing
-                System.out.println("Payload: " + rawJsonData);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Received UDP packet from {}:{} - payload length={}", remoteAddr, remotePort, packet.getLength());
+                }
+
+                byte[] data = packet.getData();
+                int offset = packet.getOffset();
+                String remote = remoteAddr.getHostAddress() + ":" + remotePort;
+                int length = packet.getLength();
+                if (DatagramChunk.isChunk(data, offset, length)) {
+                    long requestId = DatagramHeader.requestId(data, offset);
+                    int attempt = DatagramHeader.attempt(data, offset);
+                    MessageKey key = new MessageKey(packet.getSocketAddress(), requestId, attempt);
+                    byte[] message = assembler.accept(key, data, offset, length, System.nanoTime());
+                    // acknowledge every chunk, also duplicates of completed requests
+                    int[] ranges = assembler.receivedRanges(key);
+                    if (ranges != null) {
+                        reply(DatagramChunk.ack(attempt, requestId, DatagramChunk.count(data, offset), ranges), remoteAddr, remotePort);
+                    }
+                    if (message != null) {
+                        admission.submit(message, 0, message.length, TRANSPORT, remote,
+                                response -> reply(requestId, attempt, response, remoteAddr, remotePort));
+                    }
+                } else if (DatagramChunk.isResend(data, offset, length)) {
+                    resend(data, offset, length, remoteAddr, remotePort);
+                } else if (DatagramHeader.isPresent(data, offset, length)) {
+                    // echo the client's request id and attempt in front of the response
+                    long requestId = DatagramHeader.requestId(data, offset);
+                    int attempt = DatagramHeader.attempt(data, offset);
+                    admission.submit(data, offset + DatagramHeader.BYTES, length - DatagramHeader.BYTES, TRANSPORT,
+                            remote, response -> reply(requestId, attempt, response, remoteAddr, remotePort));
+                } else {
+                    admission.submit(data, offset, packet.getLength(), TRANSPORT, remote,
+                            response -> reply(response, remoteAddr, remotePort));
+                }
 
+            } catch (SocketTimeoutException idle) {
+                // wake up to expire incomplete chunked requests
             } catch (SocketException se) {
                 // Socket closed or network error - exit loop if socket closed
                 if (datagramSocket == null || datagramSocket.isClosed()) {
-                    System.out.println("UDP socket closed, stopping listener.");
+                    LOG.info("UDP socket closed, stopping listener.");
                     break;
                 }
-                System.out.println("SocketException in UDP listener: " + se.getMessage());
+                LOG.warn("SocketException in UDP listener: {}", se.getMessage());
             } catch (IOException ioe) {
-                System.out.println("I/O error while receiving UDP packet: " + ioe.getMessage());
+                admission.getMetrics().transport(TRANSPORT).droppedPacket();
+                LOG.warn("I/O error while receiving UDP packet: {}", ioe.getMessage());
                 // continue listening unless socket closed
             } catch (Exception e) {
-                System.out.println("Unexpected error in UDP listener: " + e.getMessage());
+                LOG.error("Unexpected error in UDP listener: {}", e.getMessage(), e);
             }
         }
     }
 
+    /** Reply to a request with a header: one datagram, or chunks kept for resending. */
+    private void reply(long requestId, int attempt, byte[] response, InetAddress remoteAddr, int remotePort) {
+        if (DatagramChunk.fitsOneDatagram(response.length, chunkSize)) {
+            reply(DatagramHeader.wrap(requestId, attempt, response), remoteAddr, remotePort);
+            return;
+        }
+        byte[] framed;
+        try {
+            framed = DatagramChunk.frame(attempt, requestId, response, chunkSize);
+        } catch (IllegalArgumentException e) {
+            admission.getMetrics().transport(TRANSPORT).droppedPacket();
+            LOG.warn("Response of {} bytes dropped: {}", response.length, e.getMessage());
+            return;
+        }
+        sent.put(new MessageKey(new InetSocketAddress(remoteAddr, remotePort), requestId, attempt), framed);
+        int count = DatagramChunk.count(response.length, chunkSize);
+        for (int i = 0; i < count; i++) {
+            sendChunk(framed, i, remoteAddr, remotePort);
+        }
+    }
+
+    /** Answer a client's request for missing chunks of a response, if it is still kept. */
+    private void resend(byte[] data, int offset, int length, InetAddress remoteAddr, int remotePort) {
+        MessageKey key = new MessageKey(new InetSocketAddress(remoteAddr, remotePort),
+                DatagramHeader.requestId(data, offset), DatagramHeader.attempt(data, offset));
+        byte[] framed = sent.get(key);
+        if (framed == null) {
+            if (LOG.isDebugEnabled()) LOG.debug("Resend of {} requested after it expired", key);
+            return;
+        }
+        int count = DatagramChunk.count(framed, 0);
+        for (int index : DatagramChunk.resendIndexes(data, offset, length)) {
+            if (index < count) sendChunk(framed, index, remoteAddr, remotePort);
+        }
+    }
+
+    private void sendChunk(byte[] framed, int index, InetAddress remoteAddr, int remotePort) {
+        int start = index * chunkSize;
+        int length = Math.min(chunkSize, framed.length - start);
+        try {
+            datagramSocket.send(new DatagramPacket(framed, start, length, remoteAddr, remotePort));
+        } catch (IOException e) {
+            admission.getMetrics().transport(TRANSPORT).droppedPacket();
+            LOG.warn("Failed to send UDP response chunk to {}:{}: {}", remoteAddr, remotePort, e.getMessage());
+        }
+    }
+
+    private void reply(byte[] response, InetAddress remoteAddr, int remotePort) {
+        if (response.length > MAX_DATAGRAM_SIZE) {
+            admission.getMetrics().transport(TRANSPORT).droppedPacket();
+            LOG.warn("Response of {} bytes exceeds the UDP datagram limit, dropped.", response.length);
+            return;
+        }
+        try {
+            datagramSocket.send(new DatagramPacket(response, response.length, remoteAddr, remotePort));
+        } catch (IOException e) {
+            admission.getMetrics().transport(TRANSPORT).droppedPacket();
+            LOG.warn("Failed to send UDP response to {}:{}: {}", remoteAddr, remotePort, e.getMessage());
+        }
+    }
+
     @Override
     public void prepareStartup(TicketStore ticketStore) {
+        if (admission == null) admission = new AdmissionController(new TicketRequestHandler(ticketStore), new ServerMetrics());
         // initialize and bind socket; try binding to local host, fallback to wildcard address
         try {
             InetAddress bindAddr;
-            try {
-                bindAddr = InetAddress.getLocalHost();
-            } catch (UnknownHostException uhe) {
-                bindAddr = InetAddress.getByName("0.0.0.0");
+            if (bindHost != null && !bindHost.isBlank()) {
+                bindAddr = InetAddress.getByName(bindHost);
+            } else {
+                try {
+                    bindAddr = InetAddress.getLocalHost();
+                } catch (UnknownHostException uhe) {
+                    bindAddr = InetAddress.getByName("0.0.0.0");
+                }
             }
-            this.datagramSocket = new DatagramSocket(new InetSocketAddress(bindAddr, DEFAULT_PORT));
-            System.out.println("UDP Socket is running on " + datagramSocket.getLocalSocketAddress().toString());
+            this.datagramSocket = new DatagramSocket(new InetSocketAddress(bindAddr, port));
+            datagramSocket.setSoTimeout(RECEIVE_TIMEOUT_MS);
+            // room for bursts of request chunks; the kernel caps it at net.core.rmem_max
+            datagramSocket.setReceiveBufferSize(Integer.getInteger("ticket.udp.receiveBufferBytes", 4 * 1024 * 1024));
+            LOG.info("UDP Socket is running on {}", datagramSocket.getLocalSocketAddress());
         } catch (SocketException | UnknownHostException e) {
-            System.out.println("Error creating UDP socket binding: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating UDP socket binding: {}", e.getMessage(), e);
         }
     }
 
@@ -90,8 +247,47 @@ public class UDPRemoteAccess implements RemoteAccess, Runnable {
                 this.datagramSocket.close();
             } catch (Exception e) {
                 // closing a DatagramSocket rarely throws, but log if it happens
-                System.out.println("Error closing UDP socket: " + e.getMessage());
+                LOG.warn("Error closing UDP socket: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** A chunked message: sender or receiver, message id and attempt. */
+    private record MessageKey(SocketAddress peer, long messageId, int attempt) {
+    }
+
+    /** Framed chunked responses recently sent, oldest first, bounded by age and total bytes. */
+    private static final class SentResponses {
+        private final long windowNanos;
+        private final long maxBytes;
+        private final Map<MessageKey, byte[]> framed = new LinkedHashMap<>();
+        private final Map<MessageKey, Long> sentAt = new LinkedHashMap<>();
+        private long bytes;
+
+        SentResponses(long windowMs, long maxBytes) {
+            this.windowNanos = windowMs * 1_000_000L;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void put(MessageKey key, byte[] chunks) {
+            long now = System.nanoTime();
+            byte[] replaced = framed.put(key, chunks);
+            if (replaced != null) bytes -= replaced.length;
+            sentAt.put(key, now);
+            bytes += chunks.length;
+            Iterator<Map.Entry<MessageKey, Long>> oldest = sentAt.entrySet().iterator();
+            while (oldest.hasNext()) {
+                Map.Entry<MessageKey, Long> entry = oldest.next();
+                if (bytes <= maxBytes && now - entry.getValue() <= windowNanos) break;
+                bytes -= framed.remove(entry.getKey()).length;
+                oldest.remove();
             }
         }
+
+        synchronized byte[] get(MessageKey key) {
+            Long at = sentAt.get(key);
+            if (at == null || System.nanoTime() - at > windowNanos) return null;
+            return framed.get(key);
+        }
     }
 }
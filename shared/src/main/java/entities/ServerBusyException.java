@@ -0,0 +1,23 @@
+package entities;
+
+/**
+ * Thrown if the server shed a request because it or the client's rate limit is overloaded.
+ * The request was not executed and may be retried after {@link #getRetryAfterMs()}.
+ */
+public class ServerBusyException extends TicketException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMs;
+
+    /** Exception with description and the server's retry hint in milliseconds. */
+    public ServerBusyException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    /** Milliseconds the server asked the client to wait before retrying. */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
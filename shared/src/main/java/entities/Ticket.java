@@ -17,6 +17,8 @@ public class Ticket implements Serializable, Cloneable {
     private Type type;
     private Priority priority;
     private Status status;
+    // number of status changes since creation, assigned by the store
+    private long version;
 
     public Ticket() {
         this(0, null, null, null, null, null, Status.NEW);
@@ -46,6 +48,7 @@ public class Ticket implements Serializable, Cloneable {
         this.type = other.type;
         this.priority = other.priority;
         this.status = other.status;
+        this.version = other.version;
     }
 
     public int getId() {
@@ -104,6 +107,25 @@ public class Ticket implements Serializable, Cloneable {
         this.status = status;
     }
 
+    /**
+     * Version of this ticket in its store: 0 when created and incremented with every status change
+     * ({@link #changeStatus(Status)}). Of two copies of a ticket the one with the higher version is
+     * newer.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /** Set a new status as a change of the stored ticket, incrementing its version. */
+    public void changeStatus(Status status) {
+        this.status = status;
+        this.version++;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder()
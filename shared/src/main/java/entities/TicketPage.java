@@ -0,0 +1,64 @@
+package entities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A slice of the tickets in id order or another {@link TicketSort}, together with the total
+ * number of tickets at the time it was taken.
+ */
+public class TicketPage implements Serializable {
+
+    private static final long serialVersionUID = 4012580335163724093L;
+
+    private final int offset;
+    private final int total;
+    // declared as ArrayList so the field type itself is serializable
+    private final ArrayList<Ticket> tickets;
+
+    public TicketPage(int offset, int total, List<Ticket> tickets) {
+        this.offset = Math.max(0, offset);
+        this.total = Math.max(0, total);
+        this.tickets = tickets == null ? new ArrayList<>() : new ArrayList<>(tickets);
+    }
+
+    /** Page of {@code all}, which must be sorted by id. */
+    public static TicketPage of(List<Ticket> all, int offset, int limit) {
+        int from = Math.min(Math.max(0, offset), all.size());
+        int to = Math.min(all.size(), from + Math.max(0, limit));
+        return new TicketPage(offset, all.size(), all.subList(from, to));
+    }
+
+    /**
+     * Page of {@code all} in {@code sort} order. Selects the first {@code offset + limit} tickets
+     * with a bounded heap instead of sorting all.
+     */
+    public static TicketPage of(Collection<Ticket> all, TicketSort sort, int offset, int limit) {
+        int from = Math.max(0, offset);
+        int needed = (int) Math.min(Integer.MAX_VALUE, (long) from + Math.max(0, limit));
+        List<Ticket> first = sort.first(all, needed);
+        return new TicketPage(offset, all.size(), first.subList(Math.min(from, first.size()), first.size()));
+    }
+
+    /** Position of the first ticket of this page. */
+    public int getOffset() {
+        return offset;
+    }
+
+    /** Number of all tickets, not only those of this page. */
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Ticket> getTickets() {
+        return Collections.unmodifiableList(tickets);
+    }
+
+    @Override
+    public String toString() {
+        return "TicketPage{offset=" + offset + ", total=" + total + ", size=" + tickets.size() + '}';
+    }
+}
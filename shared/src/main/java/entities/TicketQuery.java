@@ -0,0 +1,73 @@
+package entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A ticket search as typed by a user: every word of the query must be the start of a word of
+ * the ticket's topic or reporter, ignoring case, and the ticket must have the type if one is given.
+ * "mai ser" finds "Mail server down"; an empty query with no type matches every ticket.
+ *
+ * Shared by client and server, so every backend finds the same tickets.
+ */
+public final class TicketQuery {
+
+    private final String[] prefixes;
+    private final Type type;
+
+    public TicketQuery(String query, Type type) {
+        this.prefixes = words(query).toArray(new String[0]);
+        this.type = type;
+    }
+
+    /** Lower case words of {@code text}: runs of letters and digits. */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /** The words of the query, each matched as a prefix. */
+    public String[] getPrefixes() {
+        return prefixes.clone();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /** Whether the query has no words (it then filters by type only). */
+    public boolean isEmpty() {
+        return prefixes.length == 0;
+    }
+
+    public boolean matches(Ticket ticket) {
+        if (ticket == null || (type != null && ticket.getType() != type)) return false;
+        if (prefixes.length == 0) return true;
+        List<String> words = words(ticket.getTopic());
+        words.addAll(words(ticket.getReporter()));
+        for (String prefix : prefixes) {
+            if (!hasPrefix(words, prefix)) return false;
+        }
+        return true;
+    }
+
+    private static boolean hasPrefix(List<String> words, String prefix) {
+        for (String word : words) {
+            if (word.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+}
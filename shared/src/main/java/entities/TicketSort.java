@@ -0,0 +1,134 @@
+package entities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Order of a ticket list, page or search result, as sent by clients with {@code list},
+ * {@code page} and {@code search} requests.
+ *
+ * - Sorts by one {@link Key} ascending or descending. Enums sort in declaration order, so
+ *   {@code PRIORITY} ascending puts {@link Priority#CRITICAL} first and {@code STATUS} ascending
+ *   follows the workflow from {@link Status#NEW} to {@link Status#CLOSED}.
+ * - Tickets with equal keys are ordered by id, so the order is total and pages taken one after
+ *   another neither repeat nor skip tickets while nothing changes.
+ * - {@link #first(Iterable, int)} selects the first tickets with a heap bounded to the number
+ *   asked for, instead of sorting all of them.
+ */
+public final class TicketSort implements Serializable {
+
+    private static final long serialVersionUID = -2674089316602915387L;
+
+    public enum Key {
+        ID, PRIORITY, STATUS, TYPE
+    }
+
+    /** Ascending id, the order tickets were created in. */
+    public static final TicketSort BY_ID = new TicketSort(Key.ID, false);
+
+    private final Key key;
+    private final boolean descending;
+
+    public TicketSort(Key key, boolean descending) {
+        this.key = Objects.requireNonNull(key, "key must not be null");
+        this.descending = descending;
+    }
+
+    /** Ascending by {@code key}. */
+    public static TicketSort by(Key key) {
+        return new TicketSort(key, false);
+    }
+
+    public Key getKey() {
+        // absent when parsed from a request without key
+        return key == null ? Key.ID : key;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /** Same key, opposite direction. */
+    public TicketSort reversed() {
+        return new TicketSort(getKey(), !descending);
+    }
+
+    /** Whether this is {@link #BY_ID}, the order stores keep their tickets in. */
+    public boolean isById() {
+        return getKey() == Key.ID && !descending;
+    }
+
+    public Comparator<Ticket> comparator() {
+        Comparator<Ticket> byKey = switch (getKey()) {
+        case PRIORITY -> Comparator.comparing(Ticket::getPriority, Comparator.nullsLast(Comparator.naturalOrder()));
+        case STATUS -> Comparator.comparing(Ticket::getStatus, Comparator.nullsLast(Comparator.naturalOrder()));
+        case TYPE -> Comparator.comparing(Ticket::getType, Comparator.nullsLast(Comparator.naturalOrder()));
+        case ID -> Comparator.comparingInt(Ticket::getId);
+        };
+        if (descending) byKey = byKey.reversed();
+        return getKey() == Key.ID ? byKey : byKey.thenComparingInt(Ticket::getId);
+    }
+
+    /** The first {@code limit} of {@code tickets} in this order. */
+    public List<Ticket> first(Iterable<Ticket> tickets, int limit) {
+        Top top = top(limit);
+        for (Ticket t : tickets) top.offer(t);
+        return top.toList();
+    }
+
+    /** Collects the first {@code limit} tickets in this order from tickets offered one by one. */
+    public Top top(int limit) {
+        return new Top(comparator(), limit);
+    }
+
+    /** Bounded selection of the first tickets in an order; not thread-safe. */
+    public static final class Top {
+        private final Comparator<Ticket> order;
+        private final int limit;
+        // reversed, the head is the ticket that goes first when a better one is offered
+        private final PriorityQueue<Ticket> kept;
+
+        private Top(Comparator<Ticket> order, int limit) {
+            this.order = order;
+            this.limit = Math.max(0, limit);
+            this.kept = new PriorityQueue<>(Math.min(this.limit, 1024) + 1, order.reversed());
+        }
+
+        /** Whether {@code ticket} would be kept if offered now; lets callers copy only those. */
+        public boolean wants(Ticket ticket) {
+            return kept.size() < limit || (limit > 0 && order.compare(ticket, kept.peek()) < 0);
+        }
+
+        public void offer(Ticket ticket) {
+            if (!wants(ticket)) return;
+            if (kept.size() == limit) kept.poll();
+            kept.add(ticket);
+        }
+
+        /** The tickets kept, in order. */
+        public List<Ticket> toList() {
+            List<Ticket> sorted = new ArrayList<>(kept);
+            sorted.sort(order);
+            return sorted;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TicketSort other && getKey() == other.getKey() && descending == other.descending;
+    }
+
+    @Override
+    public int hashCode() {
+        return getKey().hashCode() * 31 + Boolean.hashCode(descending);
+    }
+
+    @Override
+    public String toString() {
+        return getKey().name().toLowerCase() + (descending ? " desc" : " asc");
+    }
+}
@@ -0,0 +1,118 @@
+package logging;
+
+/**
+ * Named logger writing through the process wide {@link LogRing}.
+ *
+ * - Messages are parameterized with {@code {}} placeholders, e.g.
+ *   {@code LOG.debug("Received {} bytes from {}", length, remote)}; the arguments are stored in a
+ *   preallocated ring slot and only formatted by the background writer. Arguments must therefore
+ *   not be mutated after the call. Primitive arguments are boxed by the caller.
+ * - A trailing {@link Throwable} argument without placeholder is printed with its stack trace.
+ * - Disabled levels cost one comparison. If the ring is full the message is dropped and counted
+ *   instead of blocking the caller.
+ * - The level is taken from system property {@code ticket.log.level} (DEBUG, INFO, WARN, ERROR or
+ *   OFF, default INFO) and can be changed at runtime via {@link LogRing#setLevel(String)}.
+ */
+public final class AsyncLogger {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private final String name;
+
+    private AsyncLogger(String name) {
+        this.name = name;
+    }
+
+    public static AsyncLogger getLogger(Class<?> owner) {
+        return new AsyncLogger(owner.getSimpleName());
+    }
+
+    public static AsyncLogger getLogger(String name) {
+        return new AsyncLogger(name);
+    }
+
+    /** The ring all loggers write to, e.g. to publish its counters. */
+    public static LogRing ring() {
+        return LogRing.INSTANCE;
+    }
+
+    /**
+     * Wait up to {@code timeoutMs} until everything logged so far is written, e.g. before exit.
+     */
+    public static void flush(long timeoutMs) {
+        LogRing.INSTANCE.flush(timeoutMs);
+    }
+
+    public boolean isDebugEnabled() {
+        return LogRing.INSTANCE.isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String format) {
+        log(Level.DEBUG, format, 0, null, null, null);
+    }
+
+    public void debug(String format, Object arg) {
+        log(Level.DEBUG, format, 1, arg, null, null);
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        log(Level.DEBUG, format, 2, arg1, arg2, null);
+    }
+
+    public void debug(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.DEBUG, format, 3, arg1, arg2, arg3);
+    }
+
+    public void info(String format) {
+        log(Level.INFO, format, 0, null, null, null);
+    }
+
+    public void info(String format, Object arg) {
+        log(Level.INFO, format, 1, arg, null, null);
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        log(Level.INFO, format, 2, arg1, arg2, null);
+    }
+
+    public void info(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.INFO, format, 3, arg1, arg2, arg3);
+    }
+
+    public void warn(String format) {
+        log(Level.WARN, format, 0, null, null, null);
+    }
+
+    public void warn(String format, Object arg) {
+        log(Level.WARN, format, 1, arg, null, null);
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        log(Level.WARN, format, 2, arg1, arg2, null);
+    }
+
+    public void warn(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.WARN, format, 3, arg1, arg2, arg3);
+    }
+
+    public void error(String format) {
+        log(Level.ERROR, format, 0, null, null, null);
+    }
+
+    public void error(String format, Object arg) {
+        log(Level.ERROR, format, 1, arg, null, null);
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        log(Level.ERROR, format, 2, arg1, arg2, null);
+    }
+
+    public void error(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.ERROR, format, 3, arg1, arg2, arg3);
+    }
+
+    private void log(Level level, String format, int argCount, Object arg1, Object arg2, Object arg3) {
+        LogRing ring = LogRing.INSTANCE;
+        if (ring.isEnabled(level)) ring.publish(level, name, format, argCount, arg1, arg2, arg3);
+    }
+}
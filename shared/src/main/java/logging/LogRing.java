@@ -0,0 +1,274 @@
+package logging;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import logging.AsyncLogger.Level;
+
+/**
+ * Preallocated multi-producer ring buffer of log events with a single background writer.
+ *
+ * - Producers claim a sequence number with one CAS, copy the event references into the slot and
+ *   publish it by writing the slot's sequence; nothing is allocated and no lock is taken.
+ * - When all slots are claimed and not yet written, new events are dropped and counted; the writer
+ *   reports the number of dropped events in the log once it has caught up.
+ * - The writer formats events into one reused buffer, writes them in batches and flushes when the
+ *   ring runs empty. It sleeps while there is nothing to write and is woken by the next event.
+ * - Configured by system properties {@code ticket.log.level} (default INFO),
+ *   {@code ticket.log.bufferSize} (slots, rounded up to a power of two, default 8192) and
+ *   {@code ticket.log.file} (append to this file instead of standard output).
+ */
+public final class LogRing implements LogRingMXBean {
+
+    static final LogRing INSTANCE = new LogRing(Integer.getInteger("ticket.log.bufferSize", 8192),
+            System.getProperty("ticket.log.level", "INFO"), System.getProperty("ticket.log.file"));
+
+    private static final long IDLE_PARK_NANOS = 50_000_000L;
+    private static final DateTimeFormatter SECONDS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    /** Next sequence to write, only advanced by the writer. */
+    private volatile long tail;
+    /** Sequence up to which the output has been flushed. */
+    private volatile long flushed;
+    private volatile int threshold;
+    private volatile boolean sleeping;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final Thread writer;
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(256);
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedSecondText;
+    private long reportedDrops;
+
+    LogRing(int bufferSize, String level, String file) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) slots[i] = new Slot();
+        mask = capacity - 1;
+        setLevel(level);
+        out = openOutput(file);
+        writer = new Thread(this::drain, "async-logger");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1000), "async-logger-flush"));
+    }
+
+    private static Writer openOutput(String file) {
+        if (file != null && !file.isBlank()) {
+            try {
+                return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 1 << 16);
+            } catch (IOException e) {
+                System.err.println("Cannot open log file " + file + ", logging to standard output: " + e.getMessage());
+            }
+        }
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    void publish(Level level, String logger, String format, int argCount, Object arg1, Object arg2, Object arg3) {
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+
+        Slot s = slots[(int) seq & mask];
+        s.timeMillis = System.currentTimeMillis();
+        s.level = level;
+        s.logger = logger;
+        s.thread = Thread.currentThread().getName();
+        s.format = format;
+        s.argCount = argCount;
+        s.arg1 = arg1;
+        s.arg2 = arg2;
+        s.arg3 = arg3;
+        s.sequence = seq;
+        if (sleeping) LockSupport.unpark(writer);
+    }
+
+    void flush(long timeoutMs) {
+        long target = head.get();
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        while (flushed < target && System.nanoTime() < deadline && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(1_000_000L);
+        }
+    }
+
+    private void drain() {
+        long next = 0;
+        while (true) {
+            Slot s = slots[(int) next & mask];
+            if (s.sequence != next) {
+                // a producer may have claimed the slot but not yet published it; only sleep if nothing is claimed
+                if (head.get() == next) {
+                    reportDrops();
+                    flushOutput(next);
+                    sleeping = true;
+                    if (head.get() == next) LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    sleeping = false;
+                } else {
+                    Thread.onSpinWait();
+                }
+                continue;
+            }
+            format(s);
+            s.clear();
+            tail = ++next;
+            write();
+        }
+    }
+
+    private void format(Slot s) {
+        StringBuilder b = line;
+        b.setLength(0);
+        appendHeader(b, s.timeMillis, s.level, s.thread, s.logger);
+
+        String f = s.format == null ? "null" : s.format;
+        int used = 0;
+        int from = 0;
+        int at;
+        while (used < s.argCount && (at = f.indexOf("{}", from)) >= 0) {
+            b.append(f, from, at).append(s.arg(used++));
+            from = at + 2;
+        }
+        b.append(f, from, f.length());
+
+        Object last = s.argCount > 0 ? s.arg(s.argCount - 1) : null;
+        if (used < s.argCount && last instanceof Throwable t) {
+            b.append(System.lineSeparator());
+            StringWriter trace = new StringWriter();
+            t.printStackTrace(new PrintWriter(trace));
+            b.append(trace);
+            b.setLength(b.length() - System.lineSeparator().length());
+        }
+        b.append(System.lineSeparator());
+        written.increment();
+    }
+
+    private void appendHeader(StringBuilder b, long timeMillis, Level level, String thread, String logger) {
+        long second = Math.floorDiv(timeMillis, 1000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedSecondText = SECONDS.format(Instant.ofEpochSecond(second));
+        }
+        int millis = (int) Math.floorMod(timeMillis, 1000L);
+        b.append(cachedSecondText).append('.');
+        if (millis < 100) b.append('0');
+        if (millis < 10) b.append('0');
+        b.append(millis).append(' ').append(level.name());
+        for (int i = level.name().length(); i < 5; i++) b.append(' ');
+        b.append(" [").append(thread).append("] ").append(logger).append(" - ");
+    }
+
+    private void write() {
+        try {
+            out.append(line);
+        } catch (IOException | RuntimeException ignored) {
+            // nowhere left to report a broken log output
+        }
+    }
+
+    private void flushOutput(long upTo) {
+        try {
+            out.flush();
+        } catch (IOException ignored) {
+        }
+        flushed = upTo;
+    }
+
+    private void reportDrops() {
+        long total = dropped.sum();
+        if (total == reportedDrops) return;
+        line.setLength(0);
+        appendHeader(line, System.currentTimeMillis(), Level.WARN, writer.getName(), LogRing.class.getSimpleName());
+        line.append(total - reportedDrops).append(" log message(s) dropped, ring buffer full")
+                .append(System.lineSeparator());
+        reportedDrops = total;
+        write();
+    }
+
+    @Override
+    public String getLevel() {
+        return Level.values()[threshold].name();
+    }
+
+    @Override
+    public void setLevel(String level) {
+        try {
+            threshold = Level.valueOf(level.trim().toUpperCase()).ordinal();
+        } catch (IllegalArgumentException | NullPointerException e) {
+            threshold = Level.INFO.ordinal();
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return slots.length;
+    }
+
+    @Override
+    public long getPending() {
+        return head.get() - tail;
+    }
+
+    @Override
+    public long getWritten() {
+        return written.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** One preallocated event; fields are reused for every pass of the ring. */
+    private static final class Slot {
+        volatile long sequence = -1;
+        long timeMillis;
+        Level level;
+        String logger;
+        String thread;
+        String format;
+        int argCount;
+        Object arg1;
+        Object arg2;
+        Object arg3;
+
+        Object arg(int index) {
+            return index == 0 ? arg1 : index == 1 ? arg2 : arg3;
+        }
+
+        void clear() {
+            // release references so logged objects can be collected before the slot is reused
+            format = null;
+            arg1 = null;
+            arg2 = null;
+            arg3 = null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package logging;
+
+/**
+ * JMX view of the {@link LogRing}: level control and overflow counters.
+ */
+public interface LogRingMXBean {
+
+    /** Lowest level written: DEBUG, INFO, WARN, ERROR or OFF. */
+    String getLevel();
+
+    void setLevel(String level);
+
+    int getBufferSize();
+
+    /** Events claimed but not yet written. */
+    long getPending();
+
+    long getWritten();
+
+    /** Events discarded because the ring buffer was full. */
+    long getDropped();
+}
@@ -0,0 +1,105 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets, in the style of HdrHistogram.
+ *
+ * - Values below {@value #SUB_BUCKETS} are counted exactly. Above that, every power of two is split
+ *   into {@value #HALF} linear sub-buckets, so each recorded value is off by at most 1/{@value #HALF}
+ *   (about 1.6%) over the whole {@code long} range.
+ * - {@link #record(long)} is a couple of bit operations and one atomic increment, with no
+ *   allocation and no locking, so it can run on every request.
+ * - Percentiles are computed from the live counters; concurrent recording only makes them
+ *   slightly stale, never inconsistent.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKET_COUNT = indexOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value, typically a latency in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) m = max.get();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Value at the given percentile (0-100): the highest value equivalent to the bucket the
+     * percentile falls into, capped at the recorded maximum. 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                long highest = i + 1 < BUCKET_COUNT ? lowestValueAt(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(highest, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Add all values recorded in {@code other} to this histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        long m = max.get();
+        long om = other.max.get();
+        while (om > m && !max.compareAndSet(m, om)) m = max.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / HALF - 1;
+        return (long) (index - shift * HALF) << shift;
+    }
+}
@@ -0,0 +1,204 @@
+package protocol;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reassembles messages from {@link DatagramChunk} datagrams.
+ *
+ * - Chunks are grouped by a key the caller derives from the datagram (e.g. sender, message id and
+ *   attempt), so chunks of different transmissions are never mixed.
+ * - Chunks with a wrong CRC or inconsistent index/count are dropped, duplicates are ignored. Keys
+ *   of completed messages are remembered for the timeout, so chunks that arrive again after
+ *   completion (retransmitted because an ack was lost) never assemble the message twice.
+ * - Incomplete messages older than the timeout are dropped by {@link #expire(long)}; at most
+ *   {@code maxMessages} messages are assembled at a time, the oldest is dropped to make room.
+ * - Thread-safe; chunks usually come from one receiver thread.
+ */
+public class ChunkAssembler<K> {
+
+    private final long timeoutNanos;
+    private final int maxMessages;
+    // insertion ordered, so the oldest partial message is first
+    private final Map<K, Partial> partials = new LinkedHashMap<>();
+    // chunk count of recently completed messages, oldest first
+    private final Map<K, Completed> completedKeys = new LinkedHashMap<>();
+    private long completed;
+    private long crcErrors;
+    private long duplicates;
+    private long timeouts;
+
+    private static final class Partial {
+        final byte[][] bodies;
+        final long startNanos;
+        int received;
+        int length;
+
+        Partial(int count, long startNanos) {
+            this.bodies = new byte[count][];
+            this.startNanos = startNanos;
+        }
+    }
+
+    private record Completed(int count, long atNanos) {
+    }
+
+    public ChunkAssembler(long timeoutMs, int maxMessages) {
+        this.timeoutNanos = timeoutMs * 1_000_000L;
+        this.maxMessages = maxMessages;
+    }
+
+    /**
+     * Add one chunk datagram.
+     *
+     * @return the complete message once its last chunk arrived, otherwise null
+     */
+    public synchronized byte[] accept(K key, byte[] data, int offset, int length, long nowNanos) {
+        if (!DatagramChunk.verify(data, offset, length)) {
+            crcErrors++;
+            return null;
+        }
+        int index = DatagramChunk.index(data, offset);
+        int count = DatagramChunk.count(data, offset);
+        if (count == 0 || index >= count) {
+            crcErrors++;
+            return null;
+        }
+        if (completedKeys.containsKey(key)) {
+            duplicates++;
+            return null;
+        }
+        if (count == 1) {
+            complete(key, 1, nowNanos);
+            return Arrays.copyOfRange(data, offset + DatagramChunk.BYTES, offset + length);
+        }
+        Partial partial = partials.get(key);
+        if (partial == null) {
+            if (partials.size() >= maxMessages) {
+                Iterator<Partial> eldest = partials.values().iterator();
+                eldest.next();
+                eldest.remove();
+                timeouts++;
+            }
+            partial = new Partial(count, nowNanos);
+            partials.put(key, partial);
+        } else if (partial.bodies.length != count) {
+            crcErrors++;
+            return null;
+        }
+        if (partial.bodies[index] != null) {
+            duplicates++;
+            return null;
+        }
+        partial.bodies[index] = Arrays.copyOfRange(data, offset + DatagramChunk.BYTES, offset + length);
+        partial.length += length - DatagramChunk.BYTES;
+        if (++partial.received < count) return null;
+
+        partials.remove(key);
+        complete(key, count, nowNanos);
+        byte[] message = new byte[partial.length];
+        int at = 0;
+        for (byte[] body : partial.bodies) {
+            System.arraycopy(body, 0, message, at, body.length);
+            at += body.length;
+        }
+        return message;
+    }
+
+    private void complete(K key, int count, long nowNanos) {
+        completed++;
+        completedKeys.put(key, new Completed(count, nowNanos));
+        if (completedKeys.size() > 4 * maxMessages) {
+            completedKeys.remove(completedKeys.keySet().iterator().next());
+        }
+    }
+
+    /** Indexes of the chunks still missing for {@code key}, or null if nothing is being assembled. */
+    public synchronized int[] missing(K key) {
+        Partial partial = partials.get(key);
+        if (partial == null) return null;
+        int[] missing = new int[partial.bodies.length - partial.received];
+        int n = 0;
+        for (int i = 0; i < partial.bodies.length; i++) {
+            if (partial.bodies[i] == null) missing[n++] = i;
+        }
+        return missing;
+    }
+
+    /**
+     * Chunks received for {@code key} as start (inclusive) and end (exclusive) index pairs in
+     * ascending order, all chunks for a recently completed message, or null if the key is unknown.
+     */
+    public synchronized int[] receivedRanges(K key) {
+        Completed done = completedKeys.get(key);
+        if (done != null) return new int[] {0, done.count()};
+        Partial partial = partials.get(key);
+        if (partial == null) return null;
+        int[] ranges = new int[partial.bodies.length + 1];
+        int n = 0;
+        for (int i = 0; i < partial.bodies.length; i++) {
+            boolean have = partial.bodies[i] != null;
+            boolean hadPrevious = i > 0 && partial.bodies[i - 1] != null;
+            if (have && !hadPrevious) ranges[n++] = i;
+            if (!have && hadPrevious) ranges[n++] = i;
+        }
+        if (partial.bodies[partial.bodies.length - 1] != null) ranges[n++] = partial.bodies.length;
+        return Arrays.copyOf(ranges, n);
+    }
+
+    /** Chunks received so far for {@code key}, or -1 if nothing is being assembled. */
+    public synchronized int received(K key) {
+        Partial partial = partials.get(key);
+        return partial == null ? -1 : partial.received;
+    }
+
+    /** Forget a message that is no longer wanted, without counting a timeout. */
+    public synchronized void discard(K key) {
+        partials.remove(key);
+        completedKeys.remove(key);
+    }
+
+    /**
+     * Drop messages that were started more than the timeout ago.
+     *
+     * @return the number of messages dropped
+     */
+    public synchronized int expire(long nowNanos) {
+        int expired = 0;
+        Iterator<Partial> it = partials.values().iterator();
+        while (it.hasNext() && nowNanos - it.next().startNanos > timeoutNanos) {
+            it.remove();
+            expired++;
+        }
+        timeouts += expired;
+        Iterator<Completed> done = completedKeys.values().iterator();
+        while (done.hasNext() && nowNanos - done.next().atNanos() > timeoutNanos) {
+            done.remove();
+        }
+        return expired;
+    }
+
+    public synchronized int getPending() {
+        return partials.size();
+    }
+
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+    /** Chunks dropped because their CRC or framing was wrong. */
+    public synchronized long getCrcErrors() {
+        return crcErrors;
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /** Incomplete messages dropped by {@link #expire(long)} or to make room. */
+    public synchronized long getTimeouts() {
+        return timeouts;
+    }
+}
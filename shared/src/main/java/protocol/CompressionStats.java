@@ -0,0 +1,74 @@
+package protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compression effect per request type: bytes before and after encoding in both directions and the
+ * time spent in {@link PayloadCodec}.
+ */
+public class CompressionStats implements CompressionStatsMXBean {
+
+    private final ConcurrentMap<String, Entry> byType = new ConcurrentHashMap<>();
+
+    /**
+     * Record one request/response exchange.
+     *
+     * @param rawIn     JSON bytes of the request
+     * @param wireIn    encoded bytes of the request
+     * @param rawOut    JSON bytes of the response
+     * @param wireOut   encoded bytes of the response
+     * @param codecNanos time spent encoding and decoding
+     */
+    public void record(String requestType, long rawIn, long wireIn, long rawOut, long wireOut, long codecNanos) {
+        Entry e = byType.computeIfAbsent(requestType == null ? "unknown" : requestType, k -> new Entry());
+        e.count.increment();
+        e.rawIn.add(rawIn);
+        e.wireIn.add(wireIn);
+        e.rawOut.add(rawOut);
+        e.wireOut.add(wireOut);
+        e.codecNanos.add(codecNanos);
+    }
+
+    @Override
+    public List<String> getReport() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Entry> t : new TreeMap<>(byType).entrySet()) {
+            Entry e = t.getValue();
+            long count = e.count.sum();
+            lines.add(String.format("%s: %d requests, in %d -> %d bytes (%.2fx), out %d -> %d bytes (%.2fx), codec %.3f ms (%.1f us/request)",
+                    t.getKey(), count,
+                    e.rawIn.sum(), e.wireIn.sum(), ratio(e.rawIn.sum(), e.wireIn.sum()),
+                    e.rawOut.sum(), e.wireOut.sum(), ratio(e.rawOut.sum(), e.wireOut.sum()),
+                    e.codecNanos.sum() / 1e6, count == 0 ? 0.0 : e.codecNanos.sum() / 1e3 / count));
+        }
+        return lines;
+    }
+
+    @Override
+    public long getBytesSaved() {
+        long saved = 0;
+        for (Entry e : byType.values()) {
+            saved += e.rawIn.sum() - e.wireIn.sum() + e.rawOut.sum() - e.wireOut.sum();
+        }
+        return saved;
+    }
+
+    private static double ratio(long raw, long wire) {
+        return wire == 0 ? 1.0 : (double) raw / wire;
+    }
+
+    private static final class Entry {
+        final LongAdder count = new LongAdder();
+        final LongAdder rawIn = new LongAdder();
+        final LongAdder wireIn = new LongAdder();
+        final LongAdder rawOut = new LongAdder();
+        final LongAdder wireOut = new LongAdder();
+        final LongAdder codecNanos = new LongAdder();
+    }
+}
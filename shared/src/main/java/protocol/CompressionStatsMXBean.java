@@ -0,0 +1,15 @@
+package protocol;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link CompressionStats}.
+ */
+public interface CompressionStatsMXBean {
+
+    /** One line per request type with compression ratios and codec time. */
+    List<String> getReport();
+
+    /** Bytes not sent thanks to compression, both directions. */
+    long getBytesSaved();
+}
@@ -0,0 +1,183 @@
+package protocol;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Chunk framing of UDP messages that do not fit one path-MTU sized datagram.
+ *
+ * - Layout: {@link #MAGIC}, the transmission attempt and the 8 byte message id at the same
+ *   positions as in {@link DatagramHeader} (so {@link DatagramHeader#attempt} and
+ *   {@link DatagramHeader#requestId} read them), then the 2 byte chunk index, the 2 byte chunk
+ *   count and the CRC32C of the chunk body, followed by the body. The message id of a request is
+ *   its request id; a response keeps the id and attempt of its request.
+ * - Datagrams are at most {@code ticket.udp.chunkSize} bytes including this header (default
+ *   {@value #DEFAULT_CHUNK_SIZE}), so they fit an Ethernet frame and are never IP-fragmented:
+ *   a lost packet costs one chunk instead of a whole 60 KB datagram.
+ * - A {@link #RESEND_MAGIC} datagram (attempt, message id, then 2 byte chunk indexes) asks the
+ *   peer to send the listed chunks of a message again.
+ * - An {@link #ACK_MAGIC} datagram (attempt, message id, 2 byte chunk count, 2 byte number of
+ *   ranges, then 2 byte start and end index of each range) tells the sender of a chunked request
+ *   which chunks arrived. The first range starts at 0 once the first chunk is there, so it doubles
+ *   as cumulative ack; the others are selective acks beyond the first gap.
+ * - Messages that fit one datagram are sent with a plain {@link DatagramHeader}.
+ */
+public final class DatagramChunk {
+
+    public static final byte MAGIC = 0x03;
+    public static final byte RESEND_MAGIC = 0x04;
+    public static final byte ACK_MAGIC = 0x05;
+    public static final int MAX_ACK_RANGES = 32;
+    public static final int BYTES = 18;
+    public static final int DEFAULT_CHUNK_SIZE = 1400;
+    public static final int MAX_CHUNKS = 0xffff;
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private DatagramChunk() {
+    }
+
+    /** Configured datagram size, system property {@code ticket.udp.chunkSize}. */
+    public static int chunkSize() {
+        int size = Integer.getInteger("ticket.udp.chunkSize", DEFAULT_CHUNK_SIZE);
+        return Math.max(BYTES + 64, Math.min(MAX_DATAGRAM_SIZE, size));
+    }
+
+    public static boolean isChunk(byte[] data, int offset, int length) {
+        return length >= BYTES && data[offset] == MAGIC;
+    }
+
+    public static boolean isResend(byte[] data, int offset, int length) {
+        return length >= DatagramHeader.BYTES && data[offset] == RESEND_MAGIC;
+    }
+
+    public static boolean isAck(byte[] data, int offset, int length) {
+        return length >= DatagramHeader.BYTES + 4 && data[offset] == ACK_MAGIC;
+    }
+
+    /** Number of chunks a message of {@code length} bytes is split into. */
+    public static int count(int length, int chunkSize) {
+        int body = chunkSize - BYTES;
+        return Math.max(1, (length + body - 1) / body);
+    }
+
+    /** Whether a message of {@code length} bytes with a {@link DatagramHeader} fits one datagram. */
+    public static boolean fitsOneDatagram(int length, int chunkSize) {
+        return DatagramHeader.BYTES + length <= chunkSize;
+    }
+
+    /**
+     * Write the header of chunk {@code index} of {@code message} to {@code header}, which must
+     * have {@link #BYTES} bytes; the body is {@code message[bodyOffset(index) .. + bodyLength(index)]}.
+     */
+    public static void writeHeader(ByteBuffer header, int attempt, long messageId, int index, int count, int crc) {
+        header.clear();
+        header.put(MAGIC).put((byte) Math.min(attempt, 0xff)).putLong(messageId)
+                .putShort((short) index).putShort((short) count).putInt(crc);
+        header.flip();
+    }
+
+    public static int bodyOffset(int index, int chunkSize) {
+        return index * (chunkSize - BYTES);
+    }
+
+    public static int bodyLength(int index, int messageLength, int chunkSize) {
+        return Math.min(chunkSize - BYTES, messageLength - bodyOffset(index, chunkSize));
+    }
+
+    public static int crc(byte[] data, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * All chunks of {@code message} back to back in one array: chunk {@code i} starts at
+     * {@code i * chunkSize} and the last one ends at the end of the array. Lets a sender without
+     * a connected channel send and resend chunks as slices of a single buffer.
+     */
+    public static byte[] frame(int attempt, long messageId, byte[] message, int chunkSize) {
+        int count = count(message.length, chunkSize);
+        checkCount(count);
+        byte[] framed = new byte[count * BYTES + message.length];
+        ByteBuffer out = ByteBuffer.wrap(framed);
+        ByteBuffer header = ByteBuffer.allocate(BYTES);
+        for (int i = 0; i < count; i++) {
+            int offset = bodyOffset(i, chunkSize);
+            int length = bodyLength(i, message.length, chunkSize);
+            writeHeader(header, attempt, messageId, i, count, crc(message, offset, length));
+            out.put(header).put(message, offset, length);
+        }
+        return framed;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a message needs more than {@link #MAX_CHUNKS} chunks
+     */
+    public static void checkCount(int count) {
+        if (count > MAX_CHUNKS) {
+            throw new IllegalArgumentException("Message needs " + count + " chunks (max " + MAX_CHUNKS + ")");
+        }
+    }
+
+    public static int index(byte[] data, int offset) {
+        return ((data[offset + 10] & 0xff) << 8) | (data[offset + 11] & 0xff);
+    }
+
+    public static int count(byte[] data, int offset) {
+        return ((data[offset + 12] & 0xff) << 8) | (data[offset + 13] & 0xff);
+    }
+
+    /** Whether the body of the chunk datagram matches its CRC. */
+    public static boolean verify(byte[] data, int offset, int length) {
+        int expected = ByteBuffer.wrap(data, offset + 14, 4).getInt();
+        return crc(data, offset + BYTES, length - BYTES) == expected;
+    }
+
+    /** Request for the chunks {@code missing} of a message, as many as fit one datagram. */
+    public static byte[] resend(int attempt, long messageId, int[] missing, int chunkSize) {
+        int n = Math.min(missing.length, (chunkSize - DatagramHeader.BYTES) / 2);
+        ByteBuffer out = ByteBuffer.allocate(DatagramHeader.BYTES + 2 * n);
+        out.put(RESEND_MAGIC).put((byte) Math.min(attempt, 0xff)).putLong(messageId);
+        for (int i = 0; i < n; i++) {
+            out.putShort((short) missing[i]);
+        }
+        return out.array();
+    }
+
+    /** Chunk indexes listed in a resend request. */
+    public static int[] resendIndexes(byte[] data, int offset, int length) {
+        int[] indexes = new int[(length - DatagramHeader.BYTES) / 2];
+        for (int i = 0; i < indexes.length; i++) {
+            int at = offset + DatagramHeader.BYTES + 2 * i;
+            indexes[i] = ((data[at] & 0xff) << 8) | (data[at + 1] & 0xff);
+        }
+        return indexes;
+    }
+
+    /**
+     * Acknowledgement of the chunks in {@code ranges} (start inclusive, end exclusive, ascending),
+     * of which the first {@link #MAX_ACK_RANGES} are sent.
+     */
+    public static byte[] ack(int attempt, long messageId, int count, int[] ranges) {
+        int n = Math.min(ranges.length / 2, MAX_ACK_RANGES);
+        ByteBuffer out = ByteBuffer.allocate(DatagramHeader.BYTES + 4 + 4 * n);
+        out.put(ACK_MAGIC).put((byte) Math.min(attempt, 0xff)).putLong(messageId);
+        out.putShort((short) count).putShort((short) n);
+        for (int i = 0; i < 2 * n; i++) {
+            out.putShort((short) ranges[i]);
+        }
+        return out.array();
+    }
+
+    /** Ranges of an acknowledgement, as start and end index pairs. */
+    public static int[] ackRanges(byte[] data, int offset, int length) {
+        int at = offset + DatagramHeader.BYTES + 2;
+        int n = Math.min(((data[at] & 0xff) << 8) | (data[at + 1] & 0xff), (length - DatagramHeader.BYTES - 4) / 4);
+        int[] ranges = new int[2 * n];
+        for (int i = 0; i < ranges.length; i++) {
+            int pos = at + 2 + 2 * i;
+            ranges[i] = ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,59 @@
+package protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Request header of UDP datagrams, echoed by the server in front of the response.
+ *
+ * - Layout: {@link #MAGIC}, the transmission attempt (0 for the first send, 1 for the first
+ *   retransmission and so on) and the 8 byte big-endian request id, followed by the encoded
+ *   message ({@link PayloadCodec}).
+ * - The request id lets a client with several requests in flight on one socket match responses,
+ *   and drop late responses of requests it gave up on. The echoed attempt tells which
+ *   transmission was answered, so retransmitted requests still yield round trip samples.
+ * - Datagrams without the header (first byte is JSON or {@link PayloadCodec#MARKER}) are plain
+ *   messages and answered without header, so older peers keep working.
+ */
+public final class DatagramHeader {
+
+    public static final byte MAGIC = 0x02;
+    public static final int BYTES = 10;
+
+    private DatagramHeader() {
+    }
+
+    public static boolean isPresent(byte[] data, int offset, int length) {
+        return length >= BYTES && data[offset] == MAGIC;
+    }
+
+    /** A datagram of header and payload. */
+    public static byte[] wrap(long requestId, int attempt, byte[] payload) {
+        byte[] datagram = new byte[BYTES + payload.length];
+        datagram[0] = MAGIC;
+        datagram[1] = (byte) Math.min(attempt, 0xff);
+        for (int i = 0; i < 8; i++) {
+            datagram[2 + i] = (byte) (requestId >>> (56 - 8 * i));
+        }
+        System.arraycopy(payload, 0, datagram, BYTES, payload.length);
+        return datagram;
+    }
+
+    /** Write the header alone to {@code header} ({@link #BYTES} bytes), for gather writes. */
+    public static void writeHeader(ByteBuffer header, long requestId, int attempt) {
+        header.clear();
+        header.put(MAGIC).put((byte) Math.min(attempt, 0xff)).putLong(requestId);
+        header.flip();
+    }
+
+    public static int attempt(byte[] data, int offset) {
+        return data[offset + 1] & 0xff;
+    }
+
+    public static long requestId(byte[] data, int offset) {
+        long id = 0;
+        for (int i = 0; i < 8; i++) {
+            id = (id << 8) | (data[offset + 2 + i] & 0xff);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,55 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Length-prefixed framing used by the stream transports.
+ *
+ * Every frame is a 4 byte big-endian length followed by that many payload bytes
+ * (the UTF-8 encoded JSON request or response).
+ */
+public final class Framing {
+
+    public static final int HEADER_BYTES = 4;
+
+    /** Upper bound for a single frame; larger lengths are treated as a corrupt stream. */
+    public static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private Framing() {
+    }
+
+    /**
+     * Header announcing a payload of {@code length} bytes, ready to be written.
+     */
+    public static ByteBuffer header(int length) {
+        checkLength(length);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(0, length);
+        return header;
+    }
+
+    /**
+     * Blocking read of the next frame payload.
+     *
+     * @throws EOFException if the stream ended before a complete frame
+     */
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        checkLength(length);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code length} is not a valid frame length
+     */
+    public static void checkLength(int length) {
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Invalid frame length " + length + " (max " + MAX_FRAME_BYTES + ")");
+        }
+    }
+}
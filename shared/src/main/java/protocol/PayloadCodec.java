@@ -0,0 +1,237 @@
+package protocol;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Wire encoding of ticket protocol messages with optional deflate compression.
+ *
+ * - Plain messages are the UTF-8 JSON itself, so peers without compression support interoperate.
+ * - Compressed messages start with {@link #MARKER} (never the first byte of JSON), followed by the
+ *   4 byte big-endian length of the JSON and the raw deflate stream.
+ * - Only messages of at least {@code ticket.compression.threshold} bytes (default
+ *   {@value #DEFAULT_THRESHOLD}) are compressed, and only if that actually makes them smaller.
+ * - Deflater/Inflater instances are pooled rather than thread-local because requests run on
+ *   short-lived virtual threads.
+ * - {@link #reader} decodes straight from the received bytes for a streaming JSON parser, without
+ *   the intermediate String of {@link #decode}.
+ */
+public final class PayloadCodec {
+
+    /** Value of the {@code acceptEncoding} envelope field announcing compression support. */
+    public static final String DEFLATE = "deflate";
+
+    public static final byte MARKER = 0x01;
+    public static final int DEFAULT_THRESHOLD = 1024;
+    private static final int HEADER_BYTES = 5;
+    private static final int POOL_LIMIT = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final int THRESHOLD = Integer.getInteger("ticket.compression.threshold", DEFAULT_THRESHOLD);
+    private static final Queue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<>();
+    private static final Queue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED_DEFLATERS = new AtomicInteger();
+    private static final AtomicInteger POOLED_INFLATERS = new AtomicInteger();
+
+    private PayloadCodec() {
+    }
+
+    public static byte[] encode(String json, boolean compress) {
+        return encode(json.getBytes(StandardCharsets.UTF_8), compress);
+    }
+
+    /**
+     * @param compress whether the receiver accepts compressed messages
+     * @return {@code raw} itself or its compressed form
+     */
+    public static byte[] encode(byte[] raw, boolean compress) {
+        if (!compress || raw.length < THRESHOLD) return raw;
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+        } else {
+            POOLED_DEFLATERS.decrementAndGet();
+        }
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            // give up as soon as the output would not be smaller than the input
+            byte[] out = new byte[raw.length];
+            ByteBuffer.wrap(out).put(MARKER).putInt(raw.length);
+            int len = HEADER_BYTES;
+            while (!deflater.finished() && len < out.length) {
+                len += deflater.deflate(out, len, out.length - len);
+            }
+            return deflater.finished() && len < raw.length ? Arrays.copyOf(out, len) : raw;
+        } finally {
+            deflater.reset();
+            if (POOLED_DEFLATERS.incrementAndGet() <= POOL_LIMIT) {
+                DEFLATERS.add(deflater);
+            } else {
+                POOLED_DEFLATERS.decrementAndGet();
+                deflater.end();
+            }
+        }
+    }
+
+    public static boolean isCompressed(byte[] data, int offset, int length) {
+        return length > 0 && data[offset] == MARKER;
+    }
+
+    /**
+     * Decode a plain or compressed message to its JSON text.
+     *
+     * @throws IllegalArgumentException if a compressed message is corrupt
+     */
+    public static String decode(byte[] data, int offset, int length) {
+        if (!isCompressed(data, offset, length)) return new String(data, offset, length, StandardCharsets.UTF_8);
+        return new String(inflate(data, offset, length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a plain or compressed message as JSON text. Plain messages are decoded from
+     * {@code data} as they are read, which must not change until then.
+     *
+     * @throws IllegalArgumentException if a compressed message is corrupt
+     */
+    public static Reader reader(byte[] data, int offset, int length) {
+        if (!isCompressed(data, offset, length)) return new Utf8Reader(data, offset, length);
+        byte[] raw = inflate(data, offset, length);
+        return new Utf8Reader(raw, 0, raw.length);
+    }
+
+    /** Length of the JSON in bytes once decoded, read from the header of a compressed message. */
+    public static int decodedLength(byte[] data, int offset, int length) {
+        if (!isCompressed(data, offset, length) || length < HEADER_BYTES) return length;
+        return ByteBuffer.wrap(data, offset + 1, 4).getInt();
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) {
+        if (length < HEADER_BYTES) throw new IllegalArgumentException("Truncated compressed message");
+        int rawLength = ByteBuffer.wrap(data, offset + 1, 4).getInt();
+        Framing.checkLength(rawLength);
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        } else {
+            POOLED_INFLATERS.decrementAndGet();
+        }
+        try {
+            inflater.setInput(data, offset + HEADER_BYTES, length - HEADER_BYTES);
+            byte[] raw = new byte[rawLength];
+            int len = 0;
+            while (len < rawLength) {
+                int n = inflater.inflate(raw, len, rawLength - len);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+                len += n;
+            }
+            if (len != rawLength) {
+                throw new IllegalArgumentException("Compressed message inflated to " + len + " of " + rawLength + " bytes");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed message: " + e.getMessage(), e);
+        } finally {
+            inflater.reset();
+            if (POOLED_INFLATERS.incrementAndGet() <= POOL_LIMIT) {
+                INFLATERS.add(inflater);
+            } else {
+                POOLED_INFLATERS.decrementAndGet();
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * UTF-8 decoding reader over a byte range. Unlike an InputStreamReader it has no buffers of its
+     * own, the JSON parser reading from it has one already. Malformed input reads as U+FFFD.
+     */
+    private static final class Utf8Reader extends Reader {
+        private static final char REPLACEMENT = '\uFFFD';
+
+        private final byte[] data;
+        private final int end;
+        private int pos;
+        // second half of a surrogate pair that did not fit into the last read
+        private char pendingLow;
+
+        Utf8Reader(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            if (len == 0) return 0;
+            int n = 0;
+            if (pendingLow != 0) {
+                buf[off + n++] = pendingLow;
+                pendingLow = 0;
+            }
+            while (n < len && pos < end) {
+                byte b = data[pos];
+                if (b >= 0) {
+                    buf[off + n++] = (char) b;
+                    pos++;
+                    continue;
+                }
+                int cp = nextCodePoint();
+                if (cp <= 0xFFFF) {
+                    buf[off + n++] = (char) cp;
+                } else {
+                    buf[off + n++] = Character.highSurrogate(cp);
+                    if (n < len) {
+                        buf[off + n++] = Character.lowSurrogate(cp);
+                    } else {
+                        pendingLow = Character.lowSurrogate(cp);
+                    }
+                }
+            }
+            return n == 0 ? -1 : n;
+        }
+
+        // multi byte sequence at pos
+        private int nextCodePoint() {
+            int b0 = data[pos] & 0xff;
+            int more;
+            int cp;
+            if (b0 >= 0xC2 && b0 <= 0xDF) {
+                more = 1;
+                cp = b0 & 0x1F;
+            } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+                more = 2;
+                cp = b0 & 0x0F;
+            } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+                more = 3;
+                cp = b0 & 0x07;
+            } else {
+                pos++;
+                return REPLACEMENT;
+            }
+            for (int i = 1; i <= more; i++) {
+                if (pos + i >= end || (data[pos + i] & 0xC0) != 0x80) {
+                    pos += i;
+                    return REPLACEMENT;
+                }
+                cp = (cp << 6) | (data[pos + i] & 0x3F);
+            }
+            pos += more + 1;
+            boolean overlong = (more == 2 && cp < 0x800) || (more == 3 && cp < 0x10000);
+            if (overlong || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF)) return REPLACEMENT;
+            return cp;
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
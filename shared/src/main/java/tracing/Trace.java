@@ -0,0 +1,94 @@
+package tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stage timestamps of one sampled request on one side (client or server).
+ *
+ * - Every {@link #mark(String)} records the monotonic time since the trace started; a stage lasts
+ *   from the previous mark to its own. Marks are two array stores, cheap enough for every stage.
+ * - Client and server traces of the same request share the {@link #getId() trace id}, which
+ *   travels in the {@code traceId} field of the request envelope. Their clocks are not comparable,
+ *   only durations are.
+ * - A trace may be bound to the current thread so code without access to the request, e.g. a
+ *   ticket store, can add stages via {@link #markCurrent(String)}.
+ * - A trace is handed from thread to thread together with its request, never used concurrently.
+ */
+public final class Trace {
+
+    public static final String CLIENT = "client";
+    public static final String SERVER = "server";
+
+    private static final int MAX_STAGES = 16;
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private final String id;
+    private final String side;
+    private final long startNanos;
+    private final long startMillis = System.currentTimeMillis();
+    private final String[] stages = new String[MAX_STAGES];
+    private final long[] offsets = new long[MAX_STAGES];
+    private int count;
+    private String requestType;
+
+    public Trace(String id, String side, long startNanos) {
+        this.id = id;
+        this.side = side;
+        this.startNanos = startNanos;
+    }
+
+    /** A new random 64 bit trace id in hex. */
+    public static String newId() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setRequestType(String requestType) {
+        this.requestType = requestType;
+    }
+
+    /** End the stage with the given name now. Marks beyond {@value #MAX_STAGES} are ignored. */
+    public void mark(String stage) {
+        if (count < MAX_STAGES) {
+            stages[count] = stage;
+            offsets[count++] = System.nanoTime() - startNanos;
+        }
+    }
+
+    /** Bind this trace to the current thread, see {@link #markCurrent(String)}. */
+    public void attach() {
+        CURRENT.set(this);
+    }
+
+    /** Unbind whatever trace is bound to the current thread. */
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /** Mark a stage of the trace bound to the current thread, if any. */
+    public static void markCurrent(String stage) {
+        Trace t = CURRENT.get();
+        if (t != null) t.mark(stage);
+    }
+
+    /**
+     * One line: id, side, request type, start as epoch millis and the {@code stage=nanos} marks,
+     * tab separated, with nanos counted from the start of the trace.
+     */
+    String toLine() {
+        StringBuilder b = new StringBuilder(64 + count * 24);
+        b.append(id).append('\t').append(side).append('\t').append(requestType).append('\t').append(startMillis).append('\t');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) b.append(',');
+            b.append(stages[i]).append('=').append(offsets[i]);
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package tracing;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes finished {@link Trace}s to a rolling file from a background thread.
+ *
+ * - Enabled by system property {@code ticket.trace.file}; without it tracing costs one static
+ *   field read per request.
+ * - {@code ticket.trace.sampleRate} (default 0.01) is the fraction of requests a client, or a
+ *   server for requests arriving without trace id, starts a trace for. Requests arriving with a
+ *   trace id are always recorded by an enabled server.
+ * - The file is moved to {@code <file>.1} once it exceeds {@code ticket.trace.maxBytes}
+ *   (default 16 MB), replacing the previous one.
+ * - Traces are queued without blocking; if the writer falls behind, traces are dropped and counted.
+ */
+public final class TraceRecorder {
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final String FILE = System.getProperty("ticket.trace.file");
+    private static final boolean ENABLED = FILE != null && !FILE.isBlank();
+    private static final double SAMPLE_RATE = parseRate(System.getProperty("ticket.trace.sampleRate", "0.01"));
+    private static final long MAX_BYTES = Long.getLong("ticket.trace.maxBytes", 16L << 20);
+
+    private static final BlockingQueue<Trace> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final LongAdder DROPPED = new LongAdder();
+
+    static {
+        if (ENABLED) {
+            Thread writer = new Thread(() -> write(Paths.get(FILE)), "trace-writer");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(TraceRecorder::drain, "trace-flush"));
+        }
+    }
+
+    private TraceRecorder() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /** Whether to start a trace for a request that does not carry one yet. */
+    public static boolean sample() {
+        return ENABLED && ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE;
+    }
+
+    /** Queue a finished trace for writing. */
+    public static void record(Trace trace) {
+        if (trace != null && ENABLED && !QUEUE.offer(trace)) DROPPED.increment();
+    }
+
+    /** Traces not written because the queue was full. */
+    public static long getDropped() {
+        return DROPPED.sum();
+    }
+
+    private static double parseRate(String value) {
+        try {
+            return Math.max(0, Math.min(1, Double.parseDouble(value)));
+        } catch (NumberFormatException e) {
+            return 0.01;
+        }
+    }
+
+    private static void drain() {
+        long deadline = System.currentTimeMillis() + 1000;
+        try {
+            while (!QUEUE.isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            // the last trace taken may still be in the writer's hands
+            Thread.sleep(20);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private static void write(Path file) {
+        BufferedWriter out = null;
+        long size = 0;
+        while (true) {
+            try {
+                Trace trace = QUEUE.poll(100, TimeUnit.MILLISECONDS);
+                if (trace == null) {
+                    if (out != null) out.flush();
+                    continue;
+                }
+                if (out == null || size > MAX_BYTES) {
+                    if (out != null) {
+                        out.close();
+                        Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    size = Files.size(file);
+                }
+                String line = trace.toLine();
+                out.write(line);
+                out.newLine();
+                size += line.length() + 1;
+                if (QUEUE.isEmpty()) out.flush();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                DROPPED.increment();
+                out = null;
+            }
+        }
+    }
+}